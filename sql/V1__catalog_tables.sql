@@ -0,0 +1,67 @@
+create table public.pricelist
+(
+    id              INTEGER PRIMARY KEY,
+    price           NUMERIC(12, 2) NOT NULL CHECK (price >= 0),
+    currency        VARCHAR(3) NOT NULL
+);
+
+create table public.slab
+(
+    id              TEXT COLLATE "C" PRIMARY KEY,
+    collection      TEXT NOT NULL,
+    color           TEXT,
+    tone            TEXT,
+    width           INTEGER NOT NULL CHECK (width > 0),
+    height          INTEGER NOT NULL CHECK (height > 0),
+    price_id        INTEGER NOT NULL REFERENCES public.pricelist (id),
+    image_path      TEXT
+);
+
+create table public.availability
+(
+    id              TEXT COLLATE "C" PRIMARY KEY REFERENCES public.slab (id),
+    quantity        INTEGER NOT NULL DEFAULT 0 CHECK (quantity >= 0)
+);
+
+-- Join of slab and pricelist, and foreign key checks when a price list is updated or deleted
+-- (availability.id is indexed by its primary key)
+create index slab_price_id_idx on public.slab (price_id);
+
+COMMENT ON COLUMN public.pricelist.id is
+  'ID of the price list, referenced by the slabs sold at this price';
+
+COMMENT ON COLUMN public.pricelist.price is
+  'Price of a slab';
+
+COMMENT ON COLUMN public.pricelist.currency is
+  'ISO 4217 code of the currency of the price';
+
+COMMENT ON COLUMN public.slab.id is
+  'ID of the slab type, in byte order (collation "C") like the catalog snapshot and the page cursors';
+
+COMMENT ON COLUMN public.slab.collection is
+  'Collection the slab belongs to';
+
+COMMENT ON COLUMN public.slab.color is
+  'Color of the slab';
+
+COMMENT ON COLUMN public.slab.tone is
+  'Tone of the color of the slab';
+
+COMMENT ON COLUMN public.slab.width is
+  'Width of the slab, in millimeters';
+
+COMMENT ON COLUMN public.slab.height is
+  'Height of the slab, in millimeters';
+
+COMMENT ON COLUMN public.slab.price_id is
+  'Price list of the slab';
+
+COMMENT ON COLUMN public.slab.image_path is
+  'Path of the slab image, relative to the image base URL';
+
+COMMENT ON COLUMN public.availability.id is
+  'ID of the slab type in stock';
+
+COMMENT ON COLUMN public.availability.quantity is
+  'Number of slabs in stock';
@@ -0,0 +1,48 @@
+-- Slabs in stock joined with their price, read by the availability endpoints instead of joining the three tables
+-- on every request
+create materialized view public.priced_availability as
+SELECT s.id, s.collection, s.color, s.tone, s.width, s.height, p.price, p.currency, a.quantity
+FROM public.slab s
+JOIN public.pricelist p on s.price_id = p.id
+JOIN public.availability a on s.id = a.id;
+
+-- Required by REFRESH MATERIALIZED VIEW CONCURRENTLY, which keeps the view readable while it's refreshed
+create unique index priced_availability_id_idx on public.priced_availability (id);
+
+-- Set when slab, pricelist or availability change, cleared by the application when it refreshes the view
+create table public.priced_availability_state
+(
+    id              BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    dirty           BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+insert into public.priced_availability_state (id, dirty) values (TRUE, FALSE);
+
+COMMENT ON COLUMN public.priced_availability_state.id is
+  'Always true: the table holds a single row';
+
+COMMENT ON COLUMN public.priced_availability_state.dirty is
+  'True if the catalog tables changed since the last refresh of priced_availability';
+
+create function public.mark_priced_availability_dirty() returns trigger
+    language plpgsql as
+$$
+BEGIN
+    -- Written by every statement, even when the flag is already set: the row lock held until the writer commits makes
+    -- the clear of the refresh wait for it, so that the refresh that follows sees its changes
+    UPDATE public.priced_availability_state SET dirty = TRUE;
+    RETURN NULL;
+END;
+$$;
+
+create trigger slab_priced_availability_dirty
+    after insert or update or delete or truncate on public.slab
+    for each statement execute function public.mark_priced_availability_dirty();
+
+create trigger pricelist_priced_availability_dirty
+    after insert or update or delete or truncate on public.pricelist
+    for each statement execute function public.mark_priced_availability_dirty();
+
+create trigger availability_priced_availability_dirty
+    after insert or update or delete or truncate on public.availability
+    for each statement execute function public.mark_priced_availability_dirty();
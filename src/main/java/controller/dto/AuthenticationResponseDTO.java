@@ -2,7 +2,8 @@ package controller.dto;
 
 import jakarta.ws.rs.core.Response;
 import lombok.Data;
-import org.json.JSONObject;
+import utils.JsonFieldExtractor;
+import utils.JsonFieldExtractor.JsonFields;
 
 @Data
 public class AuthenticationResponseDTO {
@@ -11,9 +12,9 @@ public class AuthenticationResponseDTO {
     private String tokenType;
 
     public AuthenticationResponseDTO(Response response) {
-        JSONObject jsonResponse = new JSONObject(response.readEntity(String.class));
-        this.token = jsonResponse.get("access_token").toString();
-        this.refreshToken = jsonResponse.get("refresh_token").toString();
-        this.tokenType = jsonResponse.get("token_type").toString();
+        JsonFields jsonResponse = JsonFieldExtractor.extract(response, "access_token", "refresh_token", "token_type");
+        this.token = jsonResponse.getString("access_token");
+        this.refreshToken = jsonResponse.getString("refresh_token");
+        this.tokenType = jsonResponse.getString("token_type");
     }
 }
@@ -0,0 +1,9 @@
+package controller.dto;
+
+import lombok.Data;
+
+@Data
+public class AvailabilityDTO {
+    private String id;
+    private int quantity;
+}
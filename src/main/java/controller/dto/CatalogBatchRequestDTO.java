@@ -0,0 +1,12 @@
+package controller.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CatalogBatchRequestDTO {
+    private List<PriceListDTO> priceLists;
+    private List<SlabDTO> slabs;
+    private List<AvailabilityDTO> availabilities;
+}
@@ -0,0 +1,21 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogBatchResponseDTO {
+    // Version of the catalog snapshot including the batch, null if the snapshot is disabled or the batch failed
+    private Long catalogVersion;
+    private int applied;
+    private int rejected;
+    private int failed;
+    private List<CatalogRowOutcomeDTO> priceLists;
+    private List<CatalogRowOutcomeDTO> slabs;
+    private List<CatalogRowOutcomeDTO> availabilities;
+}
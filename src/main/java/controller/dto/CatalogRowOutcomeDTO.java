@@ -0,0 +1,17 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogRowOutcomeDTO {
+    // Index of the row in its list of the request
+    private int index;
+    private String id;
+    // APPLIED, REJECTED (invalid row, not written) or FAILED (valid row, batch rolled back)
+    private String status;
+    private String reason;
+}
@@ -0,0 +1,16 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NestedSlabDTO {
+    private PricedSlabAvailabilityDTO product;
+    private double utilization;
+    private List<PlacedPieceDTO> pieces;
+}
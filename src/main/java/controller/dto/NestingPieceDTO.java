@@ -0,0 +1,10 @@
+package controller.dto;
+
+import lombok.Data;
+
+@Data
+public class NestingPieceDTO {
+    private int width;
+    private int height;
+    private int quantity = 1;
+}
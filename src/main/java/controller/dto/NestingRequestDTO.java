@@ -0,0 +1,13 @@
+package controller.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class NestingRequestDTO {
+    private List<NestingPieceDTO> pieces;
+    // Width of the blade cut, kept free between adjacent pieces
+    private int kerf;
+    private boolean allowRotation = true;
+}
@@ -0,0 +1,18 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NestingResponseDTO {
+    private double totalPrice;
+    private double utilization;
+    // Number of candidate layouts evaluated within the time budget
+    private int attempts;
+    private List<NestedSlabDTO> slabs;
+}
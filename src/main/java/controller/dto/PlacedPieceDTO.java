@@ -0,0 +1,19 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlacedPieceDTO {
+    // Index of the piece in the request
+    private int piece;
+    private int x;
+    private int y;
+    // Dimensions as placed on the slab, i.e. swapped if the piece was rotated
+    private int width;
+    private int height;
+    private boolean rotated;
+}
@@ -0,0 +1,10 @@
+package controller.dto;
+
+import lombok.Data;
+
+@Data
+public class PriceListDTO {
+    private String id;
+    private Double price;
+    private String currency;
+}
@@ -0,0 +1,26 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryMethodStatsDTO {
+    // DAO and method, e.g. SlabDAO.getProductTypesPaged
+    private String method;
+    // primary or replica
+    private String route;
+    private long calls;
+    private double totalMs;
+    private double meanMs;
+    private double maxMs;
+    private double p50Ms;
+    private double p95Ms;
+    private double p99Ms;
+    // Mean execution time of the statements alone, without connection acquire and mapping
+    private double meanExecutionMs;
+    private double meanRows;
+    private double maxRows;
+}
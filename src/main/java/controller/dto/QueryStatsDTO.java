@@ -0,0 +1,20 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryStatsDTO {
+    private boolean replicaInSync;
+    private double replicaLagSeconds;
+    private List<RouteStatsDTO> routes;
+    // Sorted by total time, descending
+    private List<QueryMethodStatsDTO> methods;
+    // Sorted by elapsed time, descending
+    private List<SlowStatementDTO> slowStatements;
+}
@@ -0,0 +1,17 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteStatsDTO {
+    // primary or replica
+    private String route;
+    private long connectionAcquires;
+    private double connectionAcquireMeanMs;
+    private double connectionAcquireMaxMs;
+    private double connectionAcquireP99Ms;
+}
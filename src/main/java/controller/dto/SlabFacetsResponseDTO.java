@@ -0,0 +1,19 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlabFacetsResponseDTO {
+    private int total;
+    private Map<String, Integer> collection;
+    private Map<String, Integer> color;
+    private Map<String, Integer> tone;
+    private Map<String, Integer> size;
+    private Map<String, Integer> price;
+}
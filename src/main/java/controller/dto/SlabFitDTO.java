@@ -0,0 +1,17 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlabFitDTO {
+    private PricedSlabAvailabilityDTO product;
+    // True if the piece must be rotated by 90 degrees to fit
+    private boolean rotated;
+    // Slab area left over after cutting the piece
+    private long waste;
+    private double wasteRatio;
+}
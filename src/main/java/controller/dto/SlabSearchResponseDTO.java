@@ -0,0 +1,15 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlabSearchResponseDTO {
+    private int total;
+    private List<PricedSlabAvailabilityDTO> items;
+}
@@ -0,0 +1,19 @@
+package controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlowStatementDTO {
+    private String method;
+    private String sql;
+    // Names of the bound parameters, their values are not kept
+    private List<String> parameters;
+    private double elapsedMs;
+    private String executedAt;
+}
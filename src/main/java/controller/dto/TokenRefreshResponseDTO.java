@@ -2,7 +2,8 @@ package controller.dto;
 
 import jakarta.ws.rs.core.Response;
 import lombok.Data;
-import org.json.JSONObject;
+import utils.JsonFieldExtractor;
+import utils.JsonFieldExtractor.JsonFields;
 
 @Data
 public class TokenRefreshResponseDTO {
@@ -11,9 +12,9 @@ public class TokenRefreshResponseDTO {
     private String tokenType;
 
     public TokenRefreshResponseDTO(Response response) {
-        JSONObject jsonResponse = new JSONObject(response.readEntity(String.class));
-        this.newToken = jsonResponse.get("access_token").toString();
-        this.newRefreshToken = jsonResponse.get("refresh_token").toString();
-        this.tokenType = jsonResponse.get("token_type").toString();
+        JsonFields jsonResponse = JsonFieldExtractor.extract(response, "access_token", "refresh_token", "token_type");
+        this.newToken = jsonResponse.getString("access_token");
+        this.newRefreshToken = jsonResponse.getString("refresh_token");
+        this.tokenType = jsonResponse.getString("token_type");
     }
 }
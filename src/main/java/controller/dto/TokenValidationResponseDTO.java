@@ -1,15 +1,63 @@
 package controller.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.ws.rs.core.Response;
 import lombok.Data;
+import org.json.JSONArray;
 import org.json.JSONObject;
+import utils.JsonFieldExtractor;
+import utils.JsonFieldExtractor.JsonFields;
+
+import java.util.HashSet;
+import java.util.Set;
 
 @Data
 public class TokenValidationResponseDTO {
     private boolean tokenValid;
 
+    // Epoch seconds of the token expiration, when known. Used server side only
+    @JsonIgnore
+    private Long expiresAt;
+
+    // Identity of the token owner, when the token is valid. Used server side only
+    @JsonIgnore
+    private String subject;
+    @JsonIgnore
+    private String username;
+    @JsonIgnore
+    private Set<String> roles = Set.of();
+
     public TokenValidationResponseDTO(Response response) {
-        JSONObject jsonResponse = new JSONObject(response.readEntity(String.class));
-        this.tokenValid = jsonResponse.getBoolean("active");
+        JsonFields jsonResponse = JsonFieldExtractor.extract(response, "active", "exp", "sub", "username", "realm_access.roles");
+        this.tokenValid = Boolean.parseBoolean(jsonResponse.getString("active"));
+        this.expiresAt = jsonResponse.optLong("exp");
+        this.subject = jsonResponse.optString("sub");
+        this.username = jsonResponse.optString("username");
+        this.roles = Set.copyOf(jsonResponse.optStringList("realm_access.roles"));
+    }
+
+    /**
+     * Builds the response of a token verified locally
+     * @param claims the verified token claims
+     */
+    public TokenValidationResponseDTO(JSONObject claims) {
+        this.tokenValid = true;
+        this.expiresAt = claims.has("exp") ? claims.getLong("exp") : null;
+        this.subject = claims.optString("sub", null);
+        this.username = claims.optString("preferred_username", null);
+
+        Set<String> realmRoles = new HashSet<>();
+        JSONObject realmAccess = claims.optJSONObject("realm_access");
+        JSONArray realmAccessRoles = realmAccess == null ? null : realmAccess.optJSONArray("roles");
+        if (realmAccessRoles != null) {
+            for (int i = 0; i < realmAccessRoles.length(); ++i) {
+                realmRoles.add(realmAccessRoles.optString(i));
+            }
+        }
+        this.roles = Set.copyOf(realmRoles);
+    }
+
+    public TokenValidationResponseDTO(boolean tokenValid) {
+        this.tokenValid = tokenValid;
     }
 }
@@ -0,0 +1,39 @@
+package controller.security;
+
+import controller.dto.TokenValidationResponseDTO;
+import lombok.Getter;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Owner of the bearer token of the current request, as validated by AuthenticationFilter
+ */
+@Getter
+public class AuthenticatedPrincipal implements Principal {
+
+    private final String subject;
+    private final String username;
+    private final Set<String> roles;
+    private final Instant expiresAt;
+
+    public AuthenticatedPrincipal(TokenValidationResponseDTO tokenValidationResponseDTO) {
+        this.subject = tokenValidationResponseDTO.getSubject();
+        this.username = tokenValidationResponseDTO.getUsername();
+        this.roles = tokenValidationResponseDTO.getRoles();
+        this.expiresAt = tokenValidationResponseDTO.getExpiresAt() == null ? null : Instant.ofEpochSecond(tokenValidationResponseDTO.getExpiresAt());
+    }
+
+    /**
+     * @return the username, or the subject (keycloak Id of the user) if the token carries no username
+     */
+    @Override
+    public String getName() {
+        return username != null ? username : subject;
+    }
+
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+}
@@ -0,0 +1,138 @@
+package controller.security;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.NotAuthorizedException;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.ServiceUnavailableException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.ext.Provider;
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.resteasy.reactive.server.spi.ResteasyReactiveContainerRequestContext;
+import org.jboss.resteasy.reactive.server.spi.ResteasyReactiveContainerRequestFilter;
+import service.KeycloakService;
+
+import java.lang.reflect.Method;
+import java.security.Principal;
+
+/**
+ * Authenticates the requests to the resources annotated with @Secured.
+ * The bearer token is validated once per request, without blocking the event loop while waiting for Keycloak,
+ * and the request is rejected before any resource or DB work if the token is missing or invalid (401), or if the
+ * token owner has none of the required roles (403). Otherwise the AuthenticatedPrincipal is published through
+ * the request SecurityContext. If the token cannot be checked because Keycloak or the realm JWKS is unreachable, the
+ * request is rejected with 503 instead, so that an outage is not reported to the clients as invalid credentials.
+ */
+@Slf4j
+@Secured
+@Provider
+@Priority(Priorities.AUTHENTICATION)
+public class AuthenticationFilter implements ResteasyReactiveContainerRequestFilter {
+
+    private static final String AUTHENTICATION_SCHEME = "Bearer";
+
+    @Inject
+    KeycloakService keycloakService;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ResteasyReactiveContainerRequestContext requestContext) {
+        String[] requiredRoles = requiredRoles();
+        boolean secure = requestContext.getSecurityContext() != null && requestContext.getSecurityContext().isSecure();
+
+        requestContext.suspend();
+
+        keycloakService.validateTokenAndGetResponseAsync(requestContext.getHeaderString(HttpHeaders.AUTHORIZATION))
+                .subscribe().with(
+                        tokenValidationResponseDTO -> {
+                            AuthenticatedPrincipal principal = new AuthenticatedPrincipal(tokenValidationResponseDTO);
+
+                            if (!hasAnyRole(principal, requiredRoles)) {
+                                log.warn("User {} lacks the roles required by {}", principal.getName(), requestContext.getUriInfo().getPath());
+                                requestContext.resume(new ForbiddenException());
+                                return;
+                            }
+
+                            requestContext.setSecurityContext(new PrincipalSecurityContext(principal, secure));
+                            requestContext.resume();
+                        },
+                        e -> {
+                            if (e instanceof WebApplicationException) {
+                                log.debug("Request to {} not authenticated: {}", requestContext.getUriInfo().getPath(), e.getMessage());
+                            } else {
+                                log.error("Failed to authenticate the request to {}: {}", requestContext.getUriInfo().getPath(), e.getMessage(), e);
+                            }
+                            requestContext.resume(toAuthenticationFailure(e));
+                        });
+    }
+
+    /**
+     * Maps a token validation failure to the response of the request
+     * @param failure the failure of the token validation
+     * @return 401 if the token is missing or invalid, 503 if the token could not be checked
+     */
+    static WebApplicationException toAuthenticationFailure(Throwable failure) {
+        if (failure instanceof WebApplicationException) {
+            return new NotAuthorizedException(AUTHENTICATION_SCHEME);
+        }
+
+        return new ServiceUnavailableException("Authentication service unavailable");
+    }
+
+    private String[] requiredRoles() {
+        Method resourceMethod = resourceInfo.getResourceMethod();
+        if (resourceMethod != null && resourceMethod.isAnnotationPresent(Secured.class)) {
+            return resourceMethod.getAnnotation(Secured.class).roles();
+        }
+
+        Class<?> resourceClass = resourceInfo.getResourceClass();
+        if (resourceClass != null && resourceClass.isAnnotationPresent(Secured.class)) {
+            return resourceClass.getAnnotation(Secured.class).roles();
+        }
+
+        return new String[0];
+    }
+
+    private static boolean hasAnyRole(AuthenticatedPrincipal principal, String[] requiredRoles) {
+        if (requiredRoles.length == 0) {
+            return true;
+        }
+
+        for (String role : requiredRoles) {
+            if (principal.hasRole(role)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record PrincipalSecurityContext(AuthenticatedPrincipal principal, boolean secure) implements SecurityContext {
+
+        @Override
+        public Principal getUserPrincipal() {
+            return principal;
+        }
+
+        @Override
+        public boolean isUserInRole(String role) {
+            return principal.hasRole(role);
+        }
+
+        @Override
+        public boolean isSecure() {
+            return secure;
+        }
+
+        @Override
+        public String getAuthenticationScheme() {
+            return AUTHENTICATION_SCHEME;
+        }
+    }
+}
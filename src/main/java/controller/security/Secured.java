@@ -0,0 +1,25 @@
+package controller.security;
+
+import jakarta.ws.rs.NameBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the resources (or resource methods) that require a valid bearer token.
+ * Requests are authenticated by AuthenticationFilter before the resource method runs; the authenticated
+ * principal is then available through the injected SecurityContext.
+ */
+@NameBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Secured {
+
+    /**
+     * @return the realm roles of which the token owner must have at least one. Empty means any authenticated user.
+     * When both the resource and the method are annotated, the method annotation wins
+     */
+    String[] roles() default {};
+}
@@ -0,0 +1,82 @@
+package controller.v1.admin;
+
+import controller.dto.CatalogBatchRequestDTO;
+import controller.dto.CatalogBatchResponseDTO;
+import controller.security.Secured;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import service.catalog.CatalogBatchService;
+
+@Slf4j
+@Secured(roles = CatalogAdminResource.CATALOG_ADMIN_ROLE)
+@Path("api/v1/admin/catalog")
+public class CatalogAdminResource {
+
+    static final String CATALOG_ADMIN_ROLE = "catalog-admin";
+
+    @Inject
+    CatalogBatchService catalogBatchService;
+
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @APIResponses(value = {
+            @APIResponse(
+                    responseCode = "400",
+                    description = "Bad Request"),
+            @APIResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"),
+            @APIResponse(
+                    responseCode = "403",
+                    description = "Forbidden"),
+            @APIResponse(
+                    responseCode = "409",
+                    description = "The batch was rolled back, nothing was written",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CatalogBatchResponseDTO.class))),
+            @APIResponse(
+                    responseCode = "500",
+                    description = "Internal Server Error"),
+            @APIResponse(
+                    responseCode = "200",
+                    description = "Batch applied, the outcome of every row is returned",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CatalogBatchResponseDTO.class)))})
+    @Operation(summary = "Inserts or updates price lists, slabs and availabilities in bulk",
+            description = "The valid rows are written in a single transaction and the catalog version is bumped once for the whole batch; " +
+                    "invalid rows are rejected and reported with the reason, without blocking the others. " +
+                    "The client must prove it was able to successfully login by validating its token, and the token owner must have the \"" +
+                    CATALOG_ADMIN_ROLE + "\" role." +
+                    "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
+    public Response applyCatalogBatch(CatalogBatchRequestDTO catalogBatchRequestDTO) {
+        log.info("Applying catalog batch from the applyCatalogBatch");
+
+        if (catalogBatchRequestDTO == null) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        try {
+            CatalogBatchResponseDTO catalogBatchResponseDTO = catalogBatchService.apply(catalogBatchRequestDTO);
+            Response.Status status = catalogBatchResponseDTO.getFailed() > 0 ? Response.Status.CONFLICT : Response.Status.OK;
+            return Response.status(status).entity(catalogBatchResponseDTO).type(MediaType.APPLICATION_JSON).build();
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid catalog batch: {}", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).build();
+
+        } catch (Exception e) {
+            log.error("Error in applyCatalogBatch: ", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package controller.v1.admin;
+
+import controller.dto.QueryStatsDTO;
+import controller.security.Secured;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import producer.JdbiQueryMetrics;
+import repository.DataSourceRouter;
+
+@Slf4j
+@Secured(roles = DatabaseAdminResource.DATABASE_ADMIN_ROLE)
+@Path("api/v1/admin/db")
+public class DatabaseAdminResource {
+
+    static final String DATABASE_ADMIN_ROLE = "db-admin";
+
+    @Inject
+    JdbiQueryMetrics queryMetrics;
+
+    @Inject
+    DataSourceRouter dataSourceRouter;
+
+    @GET
+    @Path("/queries")
+    @Produces(MediaType.APPLICATION_JSON)
+    @APIResponses(value = {
+            @APIResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"),
+            @APIResponse(
+                    responseCode = "403",
+                    description = "Forbidden"),
+            @APIResponse(
+                    responseCode = "500",
+                    description = "Internal Server Error"),
+            @APIResponse(
+                    responseCode = "200",
+                    description = "Query statistics successfully returned",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = QueryStatsDTO.class)))})
+    @Operation(summary = "Returns the query statistics of every DAO method and the slowest statements",
+            description = "Latency percentiles, statement execution time and rows of every DAO method called since startup, " +
+                    "per route (primary or replica), the replica lag, the time spent acquiring DB connections on each route, and the slowest statements with their bound values left out. " +
+                    "The client must prove it was able to successfully login by validating its token, and the token owner must have the \"" +
+                    DATABASE_ADMIN_ROLE + "\" role." +
+                    "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
+    public Response getQueryStats() {
+        log.info("Fetching query statistics from the getQueryStats");
+
+        try {
+            QueryStatsDTO queryStatsDTO = queryMetrics.getStats();
+            queryStatsDTO.setReplicaInSync(dataSourceRouter.isReplicaInSync());
+            queryStatsDTO.setReplicaLagSeconds(dataSourceRouter.getReplicaLagSeconds());
+
+            return Response.ok().entity(queryStatsDTO).type(MediaType.APPLICATION_JSON).build();
+
+        } catch (Exception e) {
+            log.error("Error in getQueryStats: ", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
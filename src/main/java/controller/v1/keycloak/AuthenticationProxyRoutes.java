@@ -0,0 +1,177 @@
+package controller.v1.keycloak;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.BodyHandler;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+import service.KeycloakTokenProxy;
+import utils.JsonFieldExtractor;
+import utils.JsonFieldExtractor.JsonFields;
+import utils.JsonFieldRenamer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Proxy mode of the /token/request and /token/refresh endpoints of AuthenticationResource.
+ * When enabled, these routes take precedence over the resource methods: the Keycloak response body is streamed to the
+ * client buffer by buffer instead of being read into a String, parsed into a DTO and serialized again.
+ * With keycloak.token-proxy.rename-fields the Keycloak field names are rewritten on the fly to the ones of
+ * AuthenticationResponseDTO/TokenRefreshResponseDTO, so clients see the same payload as without the proxy.
+ * Error responses from Keycloak are passed through as they are, like the resource methods do, and a failure to reach
+ * Keycloak is answered with the same status as the resource method (500 for a token request, 401 for a refresh).
+ * Request bodies are buffered, not streamed: larger than keycloak.token-proxy.max-body-bytes they are rejected with 413
+ * before being parsed.
+ * The proxy is disabled by default, since it replaces the resource methods.
+ */
+@Slf4j
+@ApplicationScoped
+public class AuthenticationProxyRoutes {
+
+    // Configuration parameters
+    private final boolean ENABLED = ConfigProvider.getConfig().getValue("keycloak.token-proxy.enabled", Boolean.class);
+    private final boolean RENAME_FIELDS = ConfigProvider.getConfig().getValue("keycloak.token-proxy.rename-fields", Boolean.class);
+    private final long MAX_BODY_BYTES = ConfigProvider.getConfig().getValue("keycloak.token-proxy.max-body-bytes", Long.class);
+
+    private static final String TOKEN_REQUEST_PATH = "/api/v1/authentication/token/request";
+    private static final String TOKEN_REFRESH_PATH = "/api/v1/authentication/token/refresh";
+
+    private static final Map<String, String> TOKEN_REQUEST_RENAMES = Map.of(
+            "access_token", "token",
+            "refresh_token", "refreshToken",
+            "token_type", "tokenType");
+    private static final Map<String, String> TOKEN_REFRESH_RENAMES = Map.of(
+            "access_token", "newToken",
+            "refresh_token", "newRefreshToken",
+            "token_type", "tokenType");
+
+    @Inject
+    KeycloakTokenProxy keycloakTokenProxy;
+
+    void registerRoutes(@Observes Router router) {
+        if (!ENABLED) {
+            return;
+        }
+
+        BodyHandler bodyHandler = BodyHandler.create(false).setBodyLimit(MAX_BODY_BYTES);
+
+        router.post(TOKEN_REQUEST_PATH).handler(bodyHandler).handler(routingContext -> proxy(routingContext, TOKEN_REQUEST_RENAMES,
+                Response.Status.INTERNAL_SERVER_ERROR,
+                requestBody -> keycloakTokenProxy.requestToken(requestBody.optString("username"), requestBody.optString("password")),
+                "username", "password"));
+
+        router.post(TOKEN_REFRESH_PATH).handler(bodyHandler).handler(routingContext -> proxy(routingContext, TOKEN_REFRESH_RENAMES,
+                Response.Status.UNAUTHORIZED,
+                requestBody -> keycloakTokenProxy.refreshToken(requestBody.optString("refreshToken")),
+                "refreshToken"));
+
+        log.info("Token endpoints served in proxy mode (rename fields: {})", RENAME_FIELDS);
+    }
+
+    private void proxy(RoutingContext routingContext, Map<String, String> renames, Response.Status failureStatus,
+                       Function<JsonFields, Future<HttpClientResponse>> grant, String... requestFields) {
+
+        HttpServerResponse serverResponse = routingContext.response();
+
+        // The request body is small and bounded by the body handler, it's read from memory
+        Buffer requestBody = routingContext.body().buffer();
+        JsonFields fields;
+        try (InputStream inputStream = new ByteArrayInputStream(requestBody == null ? new byte[0] : requestBody.getBytes())) {
+            fields = JsonFieldExtractor.extract(inputStream, requestFields);
+        } catch (IOException e) {
+            log.error("Invalid request body: {}", e.getMessage());
+            serverResponse.setStatusCode(Response.Status.BAD_REQUEST.getStatusCode()).end();
+            return;
+        }
+
+        grant.apply(fields)
+                .onSuccess(keycloakResponse -> {
+                    serverResponse.setStatusCode(keycloakResponse.statusCode());
+
+                    String contentType = keycloakResponse.getHeader(HttpHeaders.CONTENT_TYPE);
+                    if (contentType != null) {
+                        serverResponse.putHeader(HttpHeaders.CONTENT_TYPE, contentType);
+                    }
+
+                    if (RENAME_FIELDS && keycloakResponse.statusCode() == Response.Status.OK.getStatusCode()) {
+                        pipeRenamed(keycloakResponse, serverResponse, renames);
+                    } else {
+                        // An HTTP/1.1 response written before its end needs either a length or chunked encoding
+                        String contentLength = keycloakResponse.getHeader(HttpHeaders.CONTENT_LENGTH);
+                        if (contentLength != null) {
+                            serverResponse.putHeader(HttpHeaders.CONTENT_LENGTH, contentLength);
+                        } else {
+                            serverResponse.setChunked(true);
+                        }
+                        keycloakResponse.pipeTo(serverResponse);
+                    }
+                })
+                .onFailure(e -> {
+                    log.error(e.getMessage());
+                    if (!serverResponse.headWritten()) {
+                        serverResponse.setStatusCode(failureStatus.getStatusCode()).end();
+                    }
+                });
+    }
+
+    /**
+     * Streams the Keycloak response to the client, renaming the fields chunk by chunk.
+     * Reading from Keycloak is paused while the client write queue is full.
+     */
+    private void pipeRenamed(HttpClientResponse keycloakResponse, HttpServerResponse serverResponse, Map<String, String> renames) {
+        JsonFieldRenamer renamer;
+        try {
+            renamer = new JsonFieldRenamer(renames);
+        } catch (IOException e) {
+            keycloakResponse.request().reset();
+            serverResponse.setStatusCode(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()).end();
+            return;
+        }
+
+        serverResponse.setChunked(true);
+        serverResponse.drainHandler(ignored -> keycloakResponse.resume());
+
+        keycloakResponse.handler(chunk -> {
+            try {
+                byte[] renamed = renamer.transform(chunk.getBytes());
+                if (renamed.length > 0) {
+                    serverResponse.write(Buffer.buffer(renamed));
+                }
+                if (serverResponse.writeQueueFull()) {
+                    keycloakResponse.pause();
+                }
+            } catch (IOException e) {
+                log.error("Invalid token response from Keycloak: {}", e.getMessage());
+                keycloakResponse.request().reset();
+                serverResponse.reset();
+            }
+        });
+
+        keycloakResponse.endHandler(ignored -> {
+            try {
+                serverResponse.end(Buffer.buffer(renamer.finish()));
+            } catch (IOException e) {
+                log.error("Invalid token response from Keycloak: {}", e.getMessage());
+                serverResponse.reset();
+            }
+        });
+
+        keycloakResponse.exceptionHandler(e -> {
+            log.error("Token response from Keycloak interrupted: {}", e.getMessage());
+            serverResponse.reset();
+        });
+    }
+}
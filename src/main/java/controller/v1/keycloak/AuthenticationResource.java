@@ -1,6 +1,7 @@
 package controller.v1.keycloak;
 
 import controller.dto.*;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.POST;
@@ -14,6 +15,7 @@ import service.KeycloakService;
 /**
  * RESTful web service controller that handles authentication-related requests.
  * It uses the KeycloakTokenService to interact with the Keycloak authentication server.
+ * When keycloak.token-proxy.enabled is set, /token/request and /token/refresh are served by AuthenticationProxyRoutes.
  */
 @Path("/api/v1/authentication")
 @Slf4j
@@ -32,20 +34,19 @@ public class AuthenticationResource {
     @Path("/token/request")
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response requestToken(AuthenticationRequestDTO authenticationRequestDTO) {
-
-        try {
-            Response serviceResponse = keycloakService.requestToken(authenticationRequestDTO);
-
-            if (serviceResponse.getStatus() != 200)
-                return serviceResponse;
-
-            return Response.ok().entity(new AuthenticationResponseDTO(serviceResponse)).type(MediaType.APPLICATION_JSON).build();
-
-        } catch (Exception e) {
-            log.error(e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-        }
+    public Uni<Response> requestToken(AuthenticationRequestDTO authenticationRequestDTO) {
+
+        return keycloakService.requestTokenAsync(authenticationRequestDTO)
+                .map(serviceResponse -> {
+                    if (serviceResponse.getStatus() != 200)
+                        return serviceResponse;
+
+                    return Response.ok().entity(new AuthenticationResponseDTO(serviceResponse)).type(MediaType.APPLICATION_JSON).build();
+                })
+                .onFailure().recoverWithItem(e -> {
+                    log.error(e.getMessage());
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+                });
     }
 
     /**
@@ -58,20 +59,19 @@ public class AuthenticationResource {
     @POST
     @Path("/token/refresh")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response refreshToken(TokenRefreshRequestDTO tokenRefreshRequestDTO) {
-
-        try {
-            Response serviceResponse = keycloakService.refreshToken(tokenRefreshRequestDTO.getRefreshToken());
-
-            if (serviceResponse.getStatus() != 200)
-                return serviceResponse;
-
-            return Response.ok().entity(new TokenRefreshResponseDTO(serviceResponse)).type(MediaType.APPLICATION_JSON).build();
-
-        } catch (Exception e) {
-            log.error(e.getMessage());
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+    public Uni<Response> refreshToken(TokenRefreshRequestDTO tokenRefreshRequestDTO) {
+
+        return keycloakService.refreshTokenAsync(tokenRefreshRequestDTO.getRefreshToken())
+                .map(serviceResponse -> {
+                    if (serviceResponse.getStatus() != 200)
+                        return serviceResponse;
+
+                    return Response.ok().entity(new TokenRefreshResponseDTO(serviceResponse)).type(MediaType.APPLICATION_JSON).build();
+                })
+                .onFailure().recoverWithItem(e -> {
+                    log.error(e.getMessage());
+                    return Response.status(Response.Status.UNAUTHORIZED).build();
+                });
     }
 
     /**
@@ -84,21 +84,21 @@ public class AuthenticationResource {
     @POST
     @Path("/token/validate")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response validateToken(TokenValidationRequestDTO request) {
-
-        try {
-            Response serviceResponse = keycloakService.validateToken(request.getToken());
-
-            // In most cases a 200 response will be returned, independently of the token's validity
-            if (serviceResponse.getStatus() != 200)
-                return serviceResponse;
-
-            // At the end the token's validity will be returned in the response
-            return Response.ok().entity(new TokenValidationResponseDTO(serviceResponse)).type(MediaType.APPLICATION_JSON).build();
-        } catch (Exception e) {
-            log.error(e.getMessage());
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
+    public Uni<Response> validateToken(TokenValidationRequestDTO request) {
+
+        return keycloakService.validateTokenAsync(request.getToken())
+                .map(serviceResponse -> {
+                    // In most cases a 200 response will be returned, independently of the token's validity
+                    if (serviceResponse.getStatus() != 200)
+                        return serviceResponse;
+
+                    // At the end the token's validity will be returned in the response
+                    return Response.ok().entity(new TokenValidationResponseDTO(serviceResponse)).type(MediaType.APPLICATION_JSON).build();
+                })
+                .onFailure().recoverWithItem(e -> {
+                    log.error(e.getMessage());
+                    return Response.status(Response.Status.UNAUTHORIZED).build();
+                });
     }
 
 
@@ -1,6 +1,7 @@
 package controller.v1.keycloak;
 
 import controller.dto.*;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -53,7 +54,7 @@ public class UserResource {
 
     })
     @Operation(summary = "Sends a request for a user creation to the keycloak service")
-    public Response createUser(UserCreationRequestDTO request) {
+    public Uni<Response> createUser(UserCreationRequestDTO request) {
 
         if (request.getUsername() == null || request.getUsername().isEmpty() ||
                 request.getPassword() == null || request.getPassword().isEmpty() ||
@@ -61,16 +62,14 @@ public class UserResource {
                 request.getFirstName() == null || request.getFirstName().isEmpty() ||
                 request.getLastName() == null || request.getLastName().isEmpty()) {
 
-            return Response.status(Response.Status.BAD_REQUEST).build();
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).build());
         }
 
-        try {
-            return keycloakService.createUser(request);
-
-        } catch (Exception e) {
-            log.error(e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-        }
+        return keycloakService.createUserAsync(request)
+                .onFailure().recoverWithItem(e -> {
+                    log.error(e.getMessage());
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+                });
     }
 
     @PUT
@@ -96,14 +95,12 @@ public class UserResource {
                     responseCode = "204",
                     description = "User info successfully updated")
     })
-    public Response updateUserInfo(UserInfoUpdateRequestDTO request) {
-        try {
-            return keycloakService.updateUserInfo(request);
-
-        } catch (Exception e) {
-            log.error(e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-        }
+    public Uni<Response> updateUserInfo(UserInfoUpdateRequestDTO request) {
+        return keycloakService.updateUserInfoAsync(request)
+                .onFailure().recoverWithItem(e -> {
+                    log.error(e.getMessage());
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+                });
     }
 
     @PUT
@@ -129,14 +126,12 @@ public class UserResource {
                     responseCode = "204",
                     description = "User password successfully updated")
     })
-    public Response updateUserPassword(UserPasswordUpdateRequestDTO request) {
-        try {
-            return keycloakService.updateUserPasswordRequest(request);
-
-        } catch (Exception e) {
-            log.error(e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-        }
+    public Uni<Response> updateUserPassword(UserPasswordUpdateRequestDTO request) {
+        return keycloakService.updateUserPasswordRequestAsync(request)
+                .onFailure().recoverWithItem(e -> {
+                    log.error(e.getMessage());
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+                });
     }
 
     @POST
@@ -1,34 +1,90 @@
 package controller.v1.product;
 
-import controller.dto.TokenValidationResponseDTO;
-import jakarta.ws.rs.core.Context;
-import jakarta.ws.rs.core.HttpHeaders;
-import service.KeycloakService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import controller.dto.NestingRequestDTO;
+import controller.dto.NestingResponseDTO;
+import controller.dto.PricedSlabAvailabilityDTO;
 import controller.dto.SlabDTO;
+import controller.dto.SlabFacetsResponseDTO;
+import controller.dto.SlabFitDTO;
+import controller.dto.SlabSearchResponseDTO;
+import controller.security.Secured;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Link;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.UriInfo;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 import service.SlabService;
+import service.catalog.CatalogResponseCache;
+import service.catalog.CatalogResponseCache.CachedResponse;
+import service.catalog.CatalogResponseCache.CatalogPage;
+import service.catalog.CatalogResponseCache.Encoding;
+import service.catalog.CatalogSnapshot;
+import service.catalog.CatalogSnapshotService;
+import service.catalog.CutNestingService;
+import service.catalog.PageCursorCodec;
+import service.catalog.SlabSearchService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
+import java.util.function.Function;
 
 @Slf4j
+@Secured
 @Path("api/v1/products")
 public class ProductResource {
 
+    // Configuration parameters
+    private final int MAX_PAGE_LIMIT = ConfigProvider.getConfig().getValue("catalog.page.max-limit", Integer.class);
+
+    private static final String CATALOG_VERSION_HEADER = "X-Catalog-Version";
+    private static final String CURSOR_SORT_KEY = "id";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int UNPROCESSABLE_ENTITY = 422;
+    private static final int STREAM_FLUSH_ROWS = 256;
+    private static final String PRODUCT_TYPES_ENDPOINT = "products/type";
+    private static final String AVAILABILITY_ENDPOINT = "products/availability";
+    // Authenticated responses: clients may keep them, but must revalidate them (cheaply, with If-None-Match) before use
+    private static final String CATALOG_CACHE_CONTROL = "private, no-cache";
+
     @Inject
     SlabService slabService;
 
     @Inject
-    KeycloakService keycloakService;
+    PageCursorCodec pageCursorCodec;
+
+    @Inject
+    CatalogSnapshotService catalogSnapshotService;
+
+    @Inject
+    CatalogResponseCache catalogResponseCache;
+
+    @Inject
+    SlabSearchService slabSearchService;
+
+    @Inject
+    CutNestingService cutNestingService;
+
+    @Inject
+    ObjectMapper objectMapper;
 
     @GET
     @Path("/type")
@@ -56,32 +112,63 @@ public class ProductResource {
                             schema = @Schema(type = SchemaType.ARRAY, implementation = SlabDTO.class)))})
     @Operation(summary = "Returns a list of all types of slabs",
             description = "Fetches all types of slabs (note: does not return availability, for that use fetchProductsTypeAndAvailability). " +
+                    "Results are sorted by id and paginated with a cursor: when more results are available the response includes a " +
+                    "\"Link\" header with rel=\"next\", whose \"after\" parameter must be passed as it is to fetch the next page. " +
+                    "The legacy \"offset\" parameter is still accepted, but can't be combined with \"after\". " +
+                    "\"limit\" is capped server side. " +
                     "The customer client must prove it was able to successfully login by validating its token." +
                     "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
     public Response fetchProductsType(
-            @Context HttpHeaders headers,
             @QueryParam("limit") @DefaultValue("20") int limit,
-            @QueryParam("offset") @DefaultValue("0") int offset) {
+            @QueryParam("offset") Integer offset,
+            @QueryParam("after") String after,
+            @Context UriInfo uriInfo,
+            @Context HttpHeaders httpHeaders) {
 
         log.info("Fetching products type from the fetchProductsType");
 
+        if (limit <= 0 || (offset != null && offset < 0) || (offset != null && after != null)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_LIMIT);
+
         try {
-            // Request token validation
-            String authorization = headers.getHeaderString("Authorization");
-            log.info("User authorization: {}", authorization);
+            String afterId = after == null ? null : pageCursorCodec.decode(CURSOR_SORT_KEY, after);
+
+            if (catalogSnapshotService.isEnabled()) {
+                String pageKey = offset != null
+                        ? "offset=" + offset + "&limit=" + pageSize
+                        : "after=" + (afterId == null ? "" : afterId) + "&limit=" + pageSize;
 
-            TokenValidationResponseDTO tokenValidationResponseDTO = keycloakService.validateTokenAndGetResponse(authorization);
-            if (!tokenValidationResponseDTO.isTokenValid()) {
-                return Response.status(Response.Status.UNAUTHORIZED).build();
+                return catalogResponse(PRODUCT_TYPES_ENDPOINT, pageKey, snapshot -> {
+                    // One more element than requested is read to know whether a next page exists
+                    List<SlabDTO> slabs = offset != null
+                            ? snapshot.getProductTypesPaged(pageSize + 1, offset)
+                            : snapshot.getProductTypesAfter(afterId, pageSize + 1);
+
+                    return slabs.size() > pageSize
+                            ? new CatalogPage(slabs.subList(0, pageSize), slabs.get(pageSize - 1).getId())
+                            : new CatalogPage(slabs, null);
+                }, uriInfo, httpHeaders, pageSize);
+            }
+
+            List<SlabDTO> slabs = offset != null
+                    ? slabService.getProductTypesPaged(pageSize + 1, offset)
+                    : slabService.getProductTypesAfter(afterId, pageSize + 1);
+
+            Response.ResponseBuilder responseBuilder = Response.ok().type(MediaType.APPLICATION_JSON);
+
+            if (slabs.size() > pageSize) {
+                slabs = slabs.subList(0, pageSize);
+                responseBuilder.links(nextLink(uriInfo, pageSize, slabs.get(pageSize - 1).getId()));
             }
 
-            List<SlabDTO> slabs = slabService.getProductTypesPaged(limit, offset);
+            return responseBuilder.entity(slabs).build();
 
-            return Response.ok().entity(slabs).type(MediaType.APPLICATION_JSON).build();
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid cursor in fetchProductsType: {}", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).build();
 
-        } catch (WebApplicationException e) {
-            log.error("WebApplicationException in fetchProducts: {}", e.getMessage());
-            return Response.status(Response.Status.UNAUTHORIZED).build();
         } catch (Exception e) {
             log.error("Error in fetchProducts: ", e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
@@ -114,33 +201,554 @@ public class ProductResource {
                             schema = @Schema(type = SchemaType.ARRAY, implementation = SlabDTO.class)))})
     @Operation(summary = "Returns all the available slabs",
             description = "Returns a list containing all available slabs (note: for product types only fetchProductsType will be faster) " +
+                    "With \"stream=true\" the array is written while the products are read, in chunks, instead of being built in memory first. " +
                     "The customer client must prove it was able to successfully login by validating its token." +
                     "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
-    public Response fetchProductsTypeAndAvailability(@Context HttpHeaders headers) {
+    public Response fetchProductsTypeAndAvailability(
+            @QueryParam("stream") @DefaultValue("false") boolean stream,
+            @Context HttpHeaders httpHeaders) {
+
         log.info("Fetching products type from the fetchProductsTypeAndAvailability");
 
         try {
+            if (stream) {
+                return streamProductsTypeAndAvailability(false);
+            }
 
-            // Request token validation
-            String authorization = headers.getHeaderString("Authorization");
-            log.info("User authorization: {}", authorization);
-
-            TokenValidationResponseDTO tokenValidationResponseDTO = keycloakService.validateTokenAndGetResponse(authorization);
-            if (!tokenValidationResponseDTO.isTokenValid()) {
-                return Response.status(Response.Status.UNAUTHORIZED).build();
+            if (catalogSnapshotService.isEnabled()) {
+                return catalogResponse(AVAILABILITY_ENDPOINT, "", snapshot -> new CatalogPage(snapshot.getProductsWithAvailability(), null),
+                        null, httpHeaders, null);
             }
 
             return Response.ok().entity(slabService.getAllProductsWithDetailsAndAvailability()).type(MediaType.APPLICATION_JSON).build();
 
-        } catch (WebApplicationException e) {
-            log.error("WebApplicationException in fetchProducts: {}", e.getMessage());
-            return Response.status(Response.Status.UNAUTHORIZED).build();
         } catch (Exception e) {
             log.error("Error in fetchProducts: ", e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
 
+    @GET
+    @Path("/availability")
+    @Produces(NDJSON)
+    @APIResponses(value = {
+            @APIResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"),
+            @APIResponse(
+                    responseCode = "403",
+                    description = "Forbidden"),
+            @APIResponse(
+                    responseCode = "500",
+                    description = "Internal Server Error"),
+            @APIResponse(
+                    responseCode = "200",
+                    description = "Products successfully streamed, one JSON object per line",
+                    content = @Content(mediaType = NDJSON,
+                            schema = @Schema(implementation = PricedSlabAvailabilityDTO.class)))})
+    @Operation(summary = "Streams all the available slabs as newline delimited JSON",
+            description = "Selected with \"Accept: application/x-ndjson\". Same content as fetchProductsTypeAndAvailability, written one product per line " +
+                    "while the products are read, so that the client can process them as they arrive. " +
+                    "The customer client must prove it was able to successfully login by validating its token." +
+                    "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
+    public Response fetchProductsTypeAndAvailabilityNdjson() {
+        log.info("Fetching products type from the fetchProductsTypeAndAvailabilityNdjson");
+
+        return streamProductsTypeAndAvailability(true);
+    }
+
+    @GET
+    @Path("/reactive/type")
+    @Produces(MediaType.APPLICATION_JSON)
+    @APIResponses(value = {
+            @APIResponse(
+                    responseCode = "400",
+                    description = "Bad Request"),
+            @APIResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"),
+            @APIResponse(
+                    responseCode = "403",
+                    description = "Forbidden"),
+            @APIResponse(
+                    responseCode = "500",
+                    description = "Internal Server Error"),
+            @APIResponse(
+                    responseCode = "200",
+                    description = "List of products successfully returned",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(type = SchemaType.ARRAY, implementation = SlabDTO.class)))})
+    @Operation(summary = "Returns a list of all types of slabs, without blocking a thread",
+            description = "Same parameters, pagination and \"Link\" header as fetchProductsType, served on the event loop: from the " +
+                    "catalog snapshot when it's enabled, otherwise the DB is read with the reactive client, so no thread waits for it. " +
+                    "Responses are not cached server side, and carry no ETag. " +
+                    "The customer client must prove it was able to successfully login by validating its token." +
+                    "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
+    public Uni<Response> fetchProductsTypeReactive(
+            @QueryParam("limit") @DefaultValue("20") int limit,
+            @QueryParam("offset") Integer offset,
+            @QueryParam("after") String after,
+            @Context UriInfo uriInfo) {
+
+        log.info("Fetching products type from the fetchProductsTypeReactive");
+
+        if (limit <= 0 || (offset != null && offset < 0) || (offset != null && after != null)) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).build());
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_LIMIT);
+
+        String afterId;
+        try {
+            afterId = after == null ? null : pageCursorCodec.decode(CURSOR_SORT_KEY, after);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid cursor in fetchProductsTypeReactive: {}", e.getMessage());
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).build());
+        }
 
+        // One more element than requested is read to know whether a next page exists
+        return slabService.getProductTypesPageAsync(afterId, offset, pageSize + 1)
+                .map(slabs -> {
+                    Response.ResponseBuilder responseBuilder = Response.ok().type(MediaType.APPLICATION_JSON);
 
+                    if (slabs.size() > pageSize) {
+                        slabs = slabs.subList(0, pageSize);
+                        responseBuilder.links(nextLink(uriInfo, pageSize, slabs.get(pageSize - 1).getId()));
+                    }
+
+                    return responseBuilder.entity(slabs).build();
+                })
+                .onFailure().recoverWithItem(e -> {
+                    log.error("Error in fetchProductsTypeReactive: ", e);
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+                });
+    }
+
+    @GET
+    @Path("/reactive/availability")
+    @Produces(MediaType.APPLICATION_JSON)
+    @APIResponses(value = {
+            @APIResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"),
+            @APIResponse(
+                    responseCode = "403",
+                    description = "Forbidden"),
+            @APIResponse(
+                    responseCode = "500",
+                    description = "Internal Server Error"),
+            @APIResponse(
+                    responseCode = "200",
+                    description = "List of products successfully returned",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(type = SchemaType.ARRAY, implementation = PricedSlabAvailabilityDTO.class)))})
+    @Operation(summary = "Returns all the available slabs, without blocking a thread",
+            description = "Same content as fetchProductsTypeAndAvailability, written as a JSON array while the rows arrive: from the " +
+                    "catalog snapshot when it's enabled, otherwise read in keyset pages with the reactive client, the next page only " +
+                    "as fast as the client reads. " +
+                    "The customer client must prove it was able to successfully login by validating its token." +
+                    "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
+    public Multi<PricedSlabAvailabilityDTO> fetchProductsTypeAndAvailabilityReactive() {
+        log.info("Fetching products type from the fetchProductsTypeAndAvailabilityReactive");
+
+        return slabService.streamProductsWithDetailsAndAvailabilityAsync()
+                .onFailure().invoke(e -> log.error("Error in fetchProductsTypeAndAvailabilityReactive: ", e));
+    }
+
+    @GET
+    @Path("/reactive/availability")
+    @Produces(NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @APIResponses(value = {
+            @APIResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"),
+            @APIResponse(
+                    responseCode = "403",
+                    description = "Forbidden"),
+            @APIResponse(
+                    responseCode = "500",
+                    description = "Internal Server Error"),
+            @APIResponse(
+                    responseCode = "200",
+                    description = "Products successfully streamed, one JSON object per line",
+                    content = @Content(mediaType = NDJSON,
+                            schema = @Schema(implementation = PricedSlabAvailabilityDTO.class)))})
+    @Operation(summary = "Streams all the available slabs as newline delimited JSON, without blocking a thread",
+            description = "Selected with \"Accept: application/x-ndjson\". Same content as fetchProductsTypeAndAvailabilityReactive, " +
+                    "written one product per line. " +
+                    "The customer client must prove it was able to successfully login by validating its token." +
+                    "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
+    public Multi<PricedSlabAvailabilityDTO> fetchProductsTypeAndAvailabilityReactiveNdjson() {
+        log.info("Fetching products type from the fetchProductsTypeAndAvailabilityReactiveNdjson");
+
+        return slabService.streamProductsWithDetailsAndAvailabilityAsync()
+                .onFailure().invoke(e -> log.error("Error in fetchProductsTypeAndAvailabilityReactiveNdjson: ", e));
+    }
+
+    @GET
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    @APIResponses(value = {
+            @APIResponse(
+                    responseCode = "400",
+                    description = "Bad Request"),
+            @APIResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"),
+            @APIResponse(
+                    responseCode = "403",
+                    description = "Forbidden"),
+            @APIResponse(
+                    responseCode = "500",
+                    description = "Internal Server Error"),
+            @APIResponse(
+                    responseCode = "503",
+                    description = "Search unavailable, the catalog snapshot is disabled"),
+            @APIResponse(
+                    responseCode = "200",
+                    description = "Matching products successfully returned",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SlabSearchResponseDTO.class)))})
+    @Operation(summary = "Searches the available slabs",
+            description = "Returns the available slabs matching all the given filters, sorted by id, with the total number of matches. " +
+                    "collection, color and tone may be repeated to match any of the values and are case insensitive; ranges are inclusive. " +
+                    "The customer client must prove it was able to successfully login by validating its token." +
+                    "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
+    public Response searchProducts(
+            @BeanParam SlabSearchParams searchParams,
+            @QueryParam("limit") @DefaultValue("20") int limit,
+            @QueryParam("offset") @DefaultValue("0") int offset) {
+
+        log.info("Searching products from the searchProducts");
+
+        if (limit <= 0 || offset < 0) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        if (!slabSearchService.isEnabled()) {
+            log.warn("Search requested while the catalog snapshot is disabled");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+
+        try {
+            return Response.ok().entity(slabSearchService.search(searchParams.toQuery(), Math.min(limit, MAX_PAGE_LIMIT), offset))
+                    .type(MediaType.APPLICATION_JSON).build();
+
+        } catch (Exception e) {
+            log.error("Error in searchProducts: ", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GET
+    @Path("/facets")
+    @Produces(MediaType.APPLICATION_JSON)
+    @APIResponses(value = {
+            @APIResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"),
+            @APIResponse(
+                    responseCode = "403",
+                    description = "Forbidden"),
+            @APIResponse(
+                    responseCode = "500",
+                    description = "Internal Server Error"),
+            @APIResponse(
+                    responseCode = "503",
+                    description = "Facets unavailable, the catalog snapshot is disabled"),
+            @APIResponse(
+                    responseCode = "200",
+                    description = "Facet counts successfully returned",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SlabFacetsResponseDTO.class)))})
+    @Operation(summary = "Counts the available slabs per facet",
+            description = "Returns the number of available slabs per collection, color, tone, size band (longer side) and price band, " +
+                    "among the slabs matching the same filters accepted by searchProducts. " +
+                    "The customer client must prove it was able to successfully login by validating its token." +
+                    "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
+    public Response fetchProductFacets(@BeanParam SlabSearchParams searchParams) {
+        log.info("Counting products from the fetchProductFacets");
+
+        if (!slabSearchService.isEnabled()) {
+            log.warn("Facets requested while the catalog snapshot is disabled");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+
+        try {
+            return Response.ok().entity(slabSearchService.facets(searchParams.toQuery())).type(MediaType.APPLICATION_JSON).build();
+
+        } catch (Exception e) {
+            log.error("Error in fetchProductFacets: ", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GET
+    @Path("/fit")
+    @Produces(MediaType.APPLICATION_JSON)
+    @APIResponses(value = {
+            @APIResponse(
+                    responseCode = "400",
+                    description = "Bad Request"),
+            @APIResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"),
+            @APIResponse(
+                    responseCode = "403",
+                    description = "Forbidden"),
+            @APIResponse(
+                    responseCode = "500",
+                    description = "Internal Server Error"),
+            @APIResponse(
+                    responseCode = "503",
+                    description = "Fit queries unavailable, the catalog snapshot is disabled"),
+            @APIResponse(
+                    responseCode = "200",
+                    description = "Fitting slabs successfully returned",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(type = SchemaType.ARRAY, implementation = SlabFitDTO.class)))})
+    @Operation(summary = "Returns the slabs in stock that can contain a piece",
+            description = "Returns the slabs in stock from which a width x height piece can be cut, rotation allowed, " +
+                    "sorted by waste (slab area left over) and then by price. " +
+                    "The customer client must prove it was able to successfully login by validating its token." +
+                    "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
+    public Response fetchFittingProducts(
+            @QueryParam("width") int width,
+            @QueryParam("height") int height,
+            @QueryParam("limit") @DefaultValue("20") int limit) {
+
+        log.info("Fetching fitting products from the fetchFittingProducts");
+
+        if (width <= 0 || height <= 0 || limit <= 0) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        if (!slabSearchService.isEnabled()) {
+            log.warn("Fit query requested while the catalog snapshot is disabled");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+
+        try {
+            return Response.ok().entity(slabSearchService.fits(width, height, Math.min(limit, MAX_PAGE_LIMIT)))
+                    .type(MediaType.APPLICATION_JSON).build();
+
+        } catch (Exception e) {
+            log.error("Error in fetchFittingProducts: ", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GET
+    @Path("/fit/smallest")
+    @Produces(MediaType.APPLICATION_JSON)
+    @APIResponses(value = {
+            @APIResponse(
+                    responseCode = "400",
+                    description = "Bad Request"),
+            @APIResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"),
+            @APIResponse(
+                    responseCode = "403",
+                    description = "Forbidden"),
+            @APIResponse(
+                    responseCode = "404",
+                    description = "No slab in stock can contain the piece"),
+            @APIResponse(
+                    responseCode = "500",
+                    description = "Internal Server Error"),
+            @APIResponse(
+                    responseCode = "503",
+                    description = "Fit queries unavailable, the catalog snapshot is disabled"),
+            @APIResponse(
+                    responseCode = "200",
+                    description = "Smallest fitting slab successfully returned",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SlabFitDTO.class)))})
+    @Operation(summary = "Returns the smallest slab in stock that can contain a piece",
+            description = "Returns the slab in stock with the smallest area from which a width x height piece can be cut, rotation allowed " +
+                    "(the cheapest one among slabs of the same size). " +
+                    "The customer client must prove it was able to successfully login by validating its token." +
+                    "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
+    public Response fetchSmallestFittingProduct(
+            @QueryParam("width") int width,
+            @QueryParam("height") int height) {
+
+        log.info("Fetching smallest fitting product from the fetchSmallestFittingProduct");
+
+        if (width <= 0 || height <= 0) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        if (!slabSearchService.isEnabled()) {
+            log.warn("Fit query requested while the catalog snapshot is disabled");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+
+        try {
+            return slabSearchService.smallestFit(width, height)
+                    .map(fit -> Response.ok().entity(fit).type(MediaType.APPLICATION_JSON).build())
+                    .orElseGet(() -> Response.status(Response.Status.NOT_FOUND).build());
+
+        } catch (Exception e) {
+            log.error("Error in fetchSmallestFittingProduct: ", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @POST
+    @Path("/nesting")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @APIResponses(value = {
+            @APIResponse(
+                    responseCode = "400",
+                    description = "Bad Request"),
+            @APIResponse(
+                    responseCode = "401",
+                    description = "Unauthorized"),
+            @APIResponse(
+                    responseCode = "403",
+                    description = "Forbidden"),
+            @APIResponse(
+                    responseCode = "422",
+                    description = "The pieces can't be cut from the slabs in stock"),
+            @APIResponse(
+                    responseCode = "500",
+                    description = "Internal Server Error"),
+            @APIResponse(
+                    responseCode = "503",
+                    description = "Nesting unavailable, the catalog snapshot is disabled"),
+            @APIResponse(
+                    responseCode = "200",
+                    description = "Slab allocation and layout successfully returned",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = NestingResponseDTO.class)))})
+    @Operation(summary = "Plans the cut of a list of pieces on the slabs in stock",
+            description = "Returns the cheapest set of slabs in stock found within the time budget from which all the pieces can be cut, " +
+                    "with the position of each piece on its slab (guillotine cuts, kerf kept free between pieces). " +
+                    "The customer client must prove it was able to successfully login by validating its token." +
+                    "The header of the request must include a parameter \"Authorization\" with the following value type: \"Bearer JWT_TOKEN\"")
+    public Response nestPieces(NestingRequestDTO nestingRequestDTO) {
+        log.info("Nesting pieces from the nestPieces");
+
+        if (nestingRequestDTO == null) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        if (!cutNestingService.isEnabled()) {
+            log.warn("Nesting requested while the catalog snapshot is disabled");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+
+        try {
+            return cutNestingService.nest(nestingRequestDTO)
+                    .map(nesting -> Response.ok().entity(nesting).type(MediaType.APPLICATION_JSON).build())
+                    .orElseGet(() -> Response.status(UNPROCESSABLE_ENTITY).build());
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid nesting request: {}", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).build();
+
+        } catch (Exception e) {
+            log.error("Error in nestPieces: ", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Writes the products with their availability to the response as they are read.
+     * Writes to the response stream block while the client isn't reading, which in turn stops reading rows: memory
+     * stays flat whatever the number of products. A slow client doesn't hold a DB connection: rows come from the
+     * catalog snapshot, or from keyset pages whose connection is released before they're written
+     * @param ndjson true for newline delimited JSON, false for a JSON array
+     * @return the streaming response
+     */
+    private Response streamProductsTypeAndAvailability(boolean ndjson) {
+        StreamingOutput body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+
+                int[] written = {0};
+                slabService.forEachProductWithDetailsAndAvailability(product -> {
+                    try {
+                        generator.writeObject(product);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                        // Flushing sends the rows written so far to the client as a chunk
+                        if (++written[0] % STREAM_FLUSH_ROWS == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            } catch (UncheckedIOException e) {
+                log.warn("Products stream interrupted: {}", e.getMessage());
+                throw e.getCause();
+            }
+        };
+
+        return Response.ok(body, ndjson ? NDJSON : MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * Serves a catalog response from the pre-serialized bodies of the current snapshot.
+     * If-None-Match is answered with 304 before the cache is even read, the ETag only depends on the snapshot and page
+     * @param endpoint name of the endpoint
+     * @param pageKey canonical form of the parameters selecting the page
+     * @param pageBuilder builds the page from the snapshot, called only when the body isn't cached yet
+     * @param uriInfo the request uri, used for the next page link (null if the endpoint isn't paginated)
+     * @param httpHeaders the request headers
+     * @param pageSize size of the page, used for the next page link (null if the endpoint isn't paginated)
+     * @return the response
+     */
+    private Response catalogResponse(String endpoint, String pageKey, Function<CatalogSnapshot, CatalogPage> pageBuilder,
+                                     UriInfo uriInfo, HttpHeaders httpHeaders, Integer pageSize) {
+
+        CatalogSnapshot snapshot = catalogSnapshotService.current();
+        String etag = catalogResponseCache.etagOf(snapshot, endpoint, pageKey);
+        Encoding encoding = catalogResponseCache.negotiate(httpHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+
+        if (CatalogResponseCache.matches(httpHeaders.getHeaderString(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return Response.notModified()
+                    .header(HttpHeaders.ETAG, encoding.etagOf(etag))
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .header(HttpHeaders.CACHE_CONTROL, CATALOG_CACHE_CONTROL)
+                    .header(CATALOG_VERSION_HEADER, snapshot.getVersion())
+                    .build();
+        }
+
+        CachedResponse cachedResponse = catalogResponseCache.get(snapshot, endpoint, pageKey, pageBuilder);
+
+        Response.ResponseBuilder responseBuilder = Response.ok(cachedResponse.body(encoding), MediaType.APPLICATION_JSON_TYPE)
+                .header(HttpHeaders.CONTENT_ENCODING, encoding.getContentEncoding())
+                .header(HttpHeaders.ETAG, encoding.etagOf(etag))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header(HttpHeaders.CACHE_CONTROL, CATALOG_CACHE_CONTROL)
+                .header(CATALOG_VERSION_HEADER, snapshot.getVersion());
+
+        if (cachedResponse.nextKey() != null) {
+            responseBuilder.links(nextLink(uriInfo, pageSize, cachedResponse.nextKey()));
+        }
+
+        return responseBuilder.build();
+    }
+
+    private Link nextLink(UriInfo uriInfo, int pageSize, String lastId) {
+        URI next = uriInfo.getRequestUriBuilder()
+                .replaceQueryParam("offset")
+                .replaceQueryParam("limit", pageSize)
+                .replaceQueryParam("after", pageCursorCodec.encode(CURSOR_SORT_KEY, lastId))
+                .build();
+        return Link.fromUri(next).rel("next").build();
+    }
+}
@@ -0,0 +1,51 @@
+package controller.v1.product;
+
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.QueryParam;
+import lombok.Data;
+import service.catalog.SlabSearchQuery;
+
+import java.util.Set;
+
+/**
+ * Filters shared by the search and facets endpoints
+ */
+@Data
+public class SlabSearchParams {
+
+    @QueryParam("collection")
+    Set<String> collections;
+
+    @QueryParam("color")
+    Set<String> colors;
+
+    @QueryParam("tone")
+    Set<String> tones;
+
+    @QueryParam("minWidth")
+    Integer minWidth;
+
+    @QueryParam("maxWidth")
+    Integer maxWidth;
+
+    @QueryParam("minHeight")
+    Integer minHeight;
+
+    @QueryParam("maxHeight")
+    Integer maxHeight;
+
+    @QueryParam("minPrice")
+    Double minPrice;
+
+    @QueryParam("maxPrice")
+    Double maxPrice;
+
+    @QueryParam("inStock")
+    @DefaultValue("false")
+    boolean inStock;
+
+    public SlabSearchQuery toQuery() {
+        return new SlabSearchQuery(collections, colors, tones, minWidth, maxWidth,
+                minHeight, maxHeight, minPrice, maxPrice, inStock);
+    }
+}
@@ -1,8 +1,12 @@
 package mapper;
 
+import controller.dto.AvailabilityDTO;
+import controller.dto.PriceListDTO;
 import controller.dto.PricedSlabAvailabilityDTO;
 import controller.dto.SlabDTO;
 import org.mapstruct.*;
+import repository.model.AvailabilityEntity;
+import repository.model.PriceListEntity;
 import repository.model.PricedSlabAvailabilityEntity;
 import repository.model.SlabEntity;
 
@@ -13,6 +17,12 @@ public interface SlabMapper {
 
     SlabEntity toEntity(SlabDTO dto, int id);
 
+    SlabEntity toEntity(SlabDTO dto);
+
+    PriceListEntity toPriceListEntity(PriceListDTO dto);
+
+    AvailabilityEntity toAvailabilityEntity(AvailabilityDTO dto);
+
     @Mappings({
             @Mapping(source = "imagePath", target = "imagePath")
     })
@@ -20,6 +30,8 @@ public interface SlabMapper {
 
     List<SlabDTO> toDtos(List<SlabEntity> entityList);
 
+    PricedSlabAvailabilityDTO toPricedSlabAvailabilityDto(PricedSlabAvailabilityEntity entity);
+
     List<PricedSlabAvailabilityDTO> toPricedSlabAvailabilityDtos(List<PricedSlabAvailabilityEntity> entityList);
 
     @Mappings({
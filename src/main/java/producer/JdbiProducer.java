@@ -1,33 +1,147 @@
 package producer;
 
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.agroal.DataSource;
+import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.context.*;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
 import lombok.extern.slf4j.*;
+import org.eclipse.microprofile.config.ConfigProvider;
 import org.jdbi.v3.core.*;
+import org.jdbi.v3.core.extension.Extensions;
 import org.jdbi.v3.core.statement.*;
 import org.jdbi.v3.sqlobject.*;
+import repository.DataSourceRoute;
+import repository.DataSourceRouter;
+import repository.dao.PasswordRecoveryRequestDAO;
+import repository.dao.SlabDAO;
+import repository.model.PasswordRecoveryRequestEntity;
 
-import javax.sql.*;
 import java.sql.*;
 import java.time.temporal.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Initializes Jdbi by passing a datasource as input
+ * Produces the Jdbi of the primary and of the read replica, and the DAOs of the primary.
+ * Each Jdbi is built and configured once: the SqlObject handlers, parsed statements and bean mappers it caches are
+ * shared by all the calls. The DAOs are on-demand proxies, each call borrows a connection from the pool for its
+ * own duration. The catalog DAOs are routed between primary and replica by the DataSourceRouter.
+ * When the replica is disabled its datasource is inactive and never looked up: the replica Jdbi then fails every
+ * connection request, which the router never makes.
  */
 @Slf4j
 @ApplicationScoped
 public class JdbiProducer {
 
-    public Jdbi getJdbi(DataSource dataSource) {
-        Jdbi jdbi = Jdbi.create(dataSource).installPlugin(new SqlObjectPlugin());
-        configureJdbi(jdbi);
+    // Configuration parameters
+    private final boolean WARM_UP = ConfigProvider.getConfig().getValue("jdbi.warm-up.enabled", Boolean.class);
+    private final boolean REPLICA_ENABLED = ConfigProvider.getConfig().getValue("db.replica.enabled", Boolean.class);
+
+    @Inject
+    AgroalDataSource defaultDataSource;
+
+    @Inject
+    @DataSource("replica")
+    Instance<AgroalDataSource> replicaDataSource;
+
+    @Inject
+    JdbiQueryMetrics queryMetrics;
+
+    @Produces
+    @Singleton
+    Jdbi jdbi() {
+        return createJdbi(queryMetrics.timedConnectionFactory(defaultDataSource, DataSourceRoute.PRIMARY), DataSourceRoute.PRIMARY);
+    }
+
+    @Produces
+    @Singleton
+    @Replica
+    Jdbi replicaJdbi() {
+        if (!REPLICA_ENABLED) {
+            return createJdbi(() -> {
+                throw new SQLException("The read replica is disabled");
+            }, DataSourceRoute.REPLICA);
+        }
+
+        return createJdbi(queryMetrics.timedConnectionFactory(replicaDataSource.get(), DataSourceRoute.REPLICA), DataSourceRoute.REPLICA);
+    }
+
+    @Produces
+    @Singleton
+    PasswordRecoveryRequestDAO passwordRecoveryRequestDAO(Jdbi jdbi) {
+        return jdbi.onDemand(PasswordRecoveryRequestDAO.class);
+    }
+
+    /**
+     * Calls, on the primary and on the replica when enabled, every DAO method that has a form returning no rows, so
+     * that the SqlObject handlers, the parsed statements and the bean mappers are built before the first request, and
+     * the pooled connections get their prepared statements. The methods reading whole tables have no such form and
+     * the writes aren't called, since even a no-row update fires the priced_availability triggers; the batch upserts
+     * are called with no rows, which builds their handler without running a statement
+     */
+    void warmUp(@Observes StartupEvent event, DataSourceRouter dataSourceRouter, PasswordRecoveryRequestDAO passwordRecoveryRequestDAO) {
+        if (!WARM_UP) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int failures = 0;
+
+        for (DataSourceRoute route : REPLICA_ENABLED ? DataSourceRoute.values() : new DataSourceRoute[]{DataSourceRoute.PRIMARY}) {
+            SlabDAO slabDAO = dataSourceRouter.slabDAO(route);
+            failures += warmUp(route, "getProductTypesPaged", () -> slabDAO.getProductTypesPaged(0, 0));
+            failures += warmUp(route, "getProductTypesAfter", () -> slabDAO.getProductTypesAfter("", 0));
+            failures += warmUp(route, "getProductsWithDetailsAndAvailabilityAfter", () -> slabDAO.getProductsWithDetailsAndAvailabilityAfter("", 0));
+        }
+
+        SlabDAO primarySlabDAO = dataSourceRouter.slabDAO(DataSourceRoute.PRIMARY);
+        failures += warmUp(DataSourceRoute.PRIMARY, "upsertPriceLists", () -> primarySlabDAO.upsertPriceLists(List.of()));
+        failures += warmUp(DataSourceRoute.PRIMARY, "upsertSlabs", () -> primarySlabDAO.upsertSlabs(List.of()));
+        failures += warmUp(DataSourceRoute.PRIMARY, "upsertAvailabilities", () -> primarySlabDAO.upsertAvailabilities(List.of()));
+
+        PasswordRecoveryRequestEntity noRequest = new PasswordRecoveryRequestEntity();
+        noRequest.setEmail("");
+        failures += warmUp(DataSourceRoute.PRIMARY, "getPasswordRecoveryRequestByHashedId", () -> passwordRecoveryRequestDAO.getPasswordRecoveryRequestByHashedId(""));
+        failures += warmUp(DataSourceRoute.PRIMARY, "getAllPasswordRecoveryRequestForEmail", () -> passwordRecoveryRequestDAO.getAllPasswordRecoveryRequestForEmail(noRequest));
+
+        log.info("Jdbi warmed up in {} ms ({} failed calls)", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failures);
+    }
+
+    /**
+     * @return 1 if the call failed, 0 otherwise
+     */
+    private static int warmUp(DataSourceRoute route, String method, Runnable call) {
+        try {
+            call.run();
+            return 0;
+        } catch (Exception e) {
+            // Not fatal: the caches are filled by the first requests instead
+            log.warn("Jdbi warm up of {} on the {} failed: {}", method, route, e.getMessage());
+            return 1;
+        }
+    }
+
+    private Jdbi createJdbi(ConnectionFactory connectionFactory, DataSourceRoute route) {
+        Jdbi jdbi = Jdbi.create(connectionFactory).installPlugin(new SqlObjectPlugin());
+        configureJdbi(jdbi, route);
 
         return jdbi;
     }
 
     /**
-     * @param jdbi
+     * Registers the query metrics of the route on the DAO methods and sets the SQL logger, which records the
+     * execution time of every statement, logs the statements at DEBUG level and logs the failed statements
+     * @param jdbi the Jdbi to configure
+     * @param route the route the Jdbi sends its statements to
      */
-    private void configureJdbi(Jdbi jdbi) {
+    private void configureJdbi(Jdbi jdbi, DataSourceRoute route) {
+        jdbi.define(JdbiQueryMetrics.ROUTE_ATTRIBUTE, route);
+        jdbi.configure(Extensions.class, extensions -> extensions.registerHandlerCustomizer(queryMetrics.customizer(route)));
         jdbi.setSqlLogger(new SqlLogger() {
 
             @Override
@@ -40,6 +154,7 @@ public class JdbiProducer {
 
             @Override
             public void logAfterExecution(StatementContext context) {
+                queryMetrics.recordExecution(context);
                 if (log.isDebugEnabled()) {
                     log.debug("Query time: " + context.getElapsedTime(ChronoUnit.MILLIS) + " ms.");
                 }
@@ -0,0 +1,332 @@
+package producer;
+
+import controller.dto.QueryMethodStatsDTO;
+import controller.dto.QueryStatsDTO;
+import controller.dto.RouteStatsDTO;
+import controller.dto.SlowStatementDTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.jdbi.v3.core.ConnectionFactory;
+import org.jdbi.v3.core.extension.ExtensionHandler;
+import org.jdbi.v3.core.extension.ExtensionHandlerCustomizer;
+import org.jdbi.v3.core.extension.ExtensionMethod;
+import org.jdbi.v3.core.statement.ParsedParameters;
+import org.jdbi.v3.core.statement.StatementContext;
+import repository.DataSourceRoute;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query instrumentation of Jdbi.
+ * For every DAO method and route (primary or replica), records the latency of the calls (connection, statement and
+ * mapping included), the execution time of its statements and the rows it returned or updated; records the time
+ * spent acquiring connections from the pool of each route, and keeps a journal of the slowest statements.
+ * The meters of a DAO method are created once, when Jdbi builds the handler of the method: recording a call does not
+ * build any string. The journal entries, with the bound values left out, are only built for statements slower than
+ * the fastest one kept.
+ */
+@Slf4j
+@ApplicationScoped
+public class JdbiQueryMetrics {
+
+    // Configuration parameters
+    private final int SLOW_JOURNAL_SIZE = ConfigProvider.getConfig().getValue("jdbi.metrics.slow-journal-size", Integer.class);
+    private final long SLOW_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            ConfigProvider.getConfig().getValue("jdbi.metrics.slow-threshold-ms", Long.class));
+
+    // Attribute of the statement context holding the route of the Jdbi that runs the statement
+    public static final String ROUTE_ATTRIBUTE = "dataSourceRoute";
+
+    private static final String METRICS_PREFIX = "db.query";
+    private static final String UNKNOWN_METHOD = "unknown";
+    private static final String REDACTED = "?";
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<DataSourceRoute, Timer> connectionAcquireTimers = new EnumMap<>(DataSourceRoute.class);
+    private final Map<DataSourceRoute, Map<Method, MethodMeters>> metersByRoute = new EnumMap<>(DataSourceRoute.class);
+
+    // Min-heap on the elapsed time: the head is the fastest of the slowest statements, evicted first
+    private final PriorityQueue<SlowStatementDTO> slowStatements =
+            new PriorityQueue<>(Comparator.comparingDouble(SlowStatementDTO::getElapsedMs));
+    // Statements not slower than this can't enter the journal, checked without locking
+    private volatile long journalFloorNanos;
+
+    @PostConstruct
+    void init() {
+        journalFloorNanos = SLOW_THRESHOLD_NANOS;
+        for (DataSourceRoute route : DataSourceRoute.values()) {
+            metersByRoute.put(route, new ConcurrentHashMap<>());
+            connectionAcquireTimers.put(route, Timer.builder(METRICS_PREFIX + ".connection.acquire")
+                    .description("Time spent acquiring a DB connection from the pool")
+                    .tag("route", routeTag(route))
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * @param dataSource the pool the connections are borrowed from
+     * @param route the route of the pool
+     * @return a connection factory recording the time spent acquiring each connection
+     */
+    public ConnectionFactory timedConnectionFactory(DataSource dataSource, DataSourceRoute route) {
+        Timer connectionAcquireTimer = connectionAcquireTimers.get(route);
+        return () -> {
+            long start = System.nanoTime();
+            Connection connection = dataSource.getConnection();
+            connectionAcquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return connection;
+        };
+    }
+
+    /**
+     * @param route the route of the Jdbi the customizer is registered on
+     * @return a customizer wrapping the handler of every DAO method into one recording the latency and the rows of
+     * its calls
+     */
+    public ExtensionHandlerCustomizer customizer(DataSourceRoute route) {
+        return (handler, extensionType, method) -> customize(route, handler, extensionType, method);
+    }
+
+    private ExtensionHandler customize(DataSourceRoute route, ExtensionHandler handler, Class<?> extensionType, Method method) {
+        if (method.getDeclaringClass() == Object.class) {
+            return handler;
+        }
+
+        MethodMeters meters = metersByRoute.get(route).computeIfAbsent(method, m -> new MethodMeters(route, extensionType, m));
+
+        return (handleSupplier, target, args) -> {
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = handler.invoke(handleSupplier, target, args);
+            } finally {
+                meters.calls.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+
+            long rows = rowsOf(result);
+            if (rows >= 0) {
+                meters.rows.record(rows);
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Records an executed statement, called by the SqlLogger after every execution
+     * @param context the context of the statement
+     */
+    public void recordExecution(StatementContext context) {
+        long elapsedNanos = context.getElapsedTime(ChronoUnit.NANOS);
+        ExtensionMethod extensionMethod = context.getExtensionMethod();
+        Object route = context.getAttribute(ROUTE_ATTRIBUTE);
+        MethodMeters meters = extensionMethod == null || route == null
+                ? null
+                : metersByRoute.get((DataSourceRoute) route).get(extensionMethod.getMethod());
+
+        if (meters != null) {
+            meters.execution.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        if (elapsedNanos > journalFloorNanos) {
+            journal(context, meters, elapsedNanos);
+        }
+    }
+
+    /**
+     * @return the statistics of every DAO method called so far, the connection acquire time of every route and the
+     * slowest statements
+     */
+    public QueryStatsDTO getStats() {
+        List<RouteStatsDTO> routes = new ArrayList<>(connectionAcquireTimers.size());
+        List<QueryMethodStatsDTO> methods = new ArrayList<>();
+        for (DataSourceRoute route : DataSourceRoute.values()) {
+            HistogramSnapshot acquire = connectionAcquireTimers.get(route).takeSnapshot();
+            routes.add(new RouteStatsDTO(routeTag(route), acquire.count(), acquire.mean(TimeUnit.MILLISECONDS),
+                    acquire.max(TimeUnit.MILLISECONDS), percentile(acquire, 0.99)));
+
+            for (MethodMeters meters : metersByRoute.get(route).values()) {
+                if (meters.calls.count() > 0) {
+                    methods.add(meters.toDto());
+                }
+            }
+        }
+        methods.sort(Comparator.comparingDouble(QueryMethodStatsDTO::getTotalMs).reversed());
+
+        List<SlowStatementDTO> slowest;
+        synchronized (slowStatements) {
+            slowest = new ArrayList<>(slowStatements);
+        }
+        slowest.sort(Comparator.comparingDouble(SlowStatementDTO::getElapsedMs).reversed());
+
+        QueryStatsDTO stats = new QueryStatsDTO();
+        stats.setRoutes(routes);
+        stats.setMethods(methods);
+        stats.setSlowStatements(slowest);
+        return stats;
+    }
+
+    private void journal(StatementContext context, MethodMeters meters, long elapsedNanos) {
+        SlowStatementDTO slowStatement = new SlowStatementDTO(
+                meters == null ? UNKNOWN_METHOD : meters.name,
+                context.getRenderedSql(),
+                redactedParameters(context),
+                elapsedNanos / 1_000_000d,
+                Instant.now().toString());
+
+        synchronized (slowStatements) {
+            if (elapsedNanos <= journalFloorNanos) {
+                return;
+            }
+
+            slowStatements.add(slowStatement);
+            if (slowStatements.size() > SLOW_JOURNAL_SIZE) {
+                slowStatements.poll();
+            }
+            if (slowStatements.size() == SLOW_JOURNAL_SIZE) {
+                journalFloorNanos = Math.max(SLOW_THRESHOLD_NANOS,
+                        (long) (slowStatements.peek().getElapsedMs() * 1_000_000d));
+            }
+        }
+    }
+
+    /**
+     * The parameters of the statement with their values replaced, so that the journal holds no customer data
+     */
+    private static List<String> redactedParameters(StatementContext context) {
+        if (context.getParsedSql() == null) {
+            return List.of();
+        }
+
+        ParsedParameters parameters = context.getParsedSql().getParameters();
+        List<String> redacted = new ArrayList<>(parameters.getParameterCount());
+        if (parameters.isPositional()) {
+            for (int i = 0; i < parameters.getParameterCount(); i++) {
+                redacted.add(i + "=" + REDACTED);
+            }
+        } else {
+            for (String name : parameters.getParameterNames()) {
+                redacted.add(name + "=" + REDACTED);
+            }
+        }
+        return redacted;
+    }
+
+    /**
+     * @return the rows returned or updated by a DAO method, -1 if they can't be told from its result (e.g. streamed
+     * results or no result)
+     */
+    private static long rowsOf(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof int[] updateCounts) {
+            long rows = 0;
+            for (int updateCount : updateCounts) {
+                // Statement.SUCCESS_NO_INFO: the statement succeeded, the count is unknown
+                rows += updateCount < 0 ? 1 : updateCount;
+            }
+            return rows;
+        }
+        if (result instanceof Integer updateCount) {
+            return updateCount;
+        }
+        if (result instanceof Boolean updated) {
+            return updated ? 1 : 0;
+        }
+        if (result instanceof Iterable<?> || result instanceof java.util.stream.Stream<?>) {
+            return -1;
+        }
+        return 1;
+    }
+
+    private static String routeTag(DataSourceRoute route) {
+        return route.name().toLowerCase();
+    }
+
+    private static double percentile(HistogramSnapshot snapshot, double percentile) {
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private final class MethodMeters {
+
+        private final String name;
+        private final String route;
+        private final Timer calls;
+        private final Timer execution;
+        private final DistributionSummary rows;
+
+        private MethodMeters(DataSourceRoute route, Class<?> extensionType, Method method) {
+            String dao = extensionType.getSimpleName();
+            this.name = dao + "." + method.getName();
+            this.route = routeTag(route);
+
+            calls = Timer.builder(METRICS_PREFIX + ".calls")
+                    .description("Latency of the DAO method calls, connection acquire and result mapping included")
+                    .tag("dao", dao)
+                    .tag("method", method.getName())
+                    .tag("route", this.route)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            execution = Timer.builder(METRICS_PREFIX + ".execution")
+                    .description("Execution time of the statements of the DAO method")
+                    .tag("dao", dao)
+                    .tag("method", method.getName())
+                    .tag("route", this.route)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            rows = DistributionSummary.builder(METRICS_PREFIX + ".rows")
+                    .description("Rows returned or updated by a call of the DAO method")
+                    .tag("dao", dao)
+                    .tag("method", method.getName())
+                    .tag("route", this.route)
+                    .register(meterRegistry);
+        }
+
+        private QueryMethodStatsDTO toDto() {
+            HistogramSnapshot snapshot = calls.takeSnapshot();
+            return new QueryMethodStatsDTO(name, route, snapshot.count(), snapshot.total(TimeUnit.MILLISECONDS),
+                    snapshot.mean(TimeUnit.MILLISECONDS), snapshot.max(TimeUnit.MILLISECONDS),
+                    percentile(snapshot, 0.5), percentile(snapshot, 0.95), percentile(snapshot, 0.99),
+                    execution.mean(TimeUnit.MILLISECONDS), rows.mean(), rows.max());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package repository;
+
+/**
+ * Database a statement is sent to
+ */
+public enum DataSourceRoute {
+    // Writes, and the reads that must see them
+    PRIMARY,
+    // Catalog reads, while the replica is within the accepted lag
+    REPLICA
+}
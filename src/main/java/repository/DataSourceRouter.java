@@ -0,0 +1,253 @@
+package repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import io.vertx.pgclient.PgException;
+import io.vertx.sqlclient.ClosedConnectionException;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.jdbi.v3.core.ConnectionException;
+import org.jdbi.v3.core.Jdbi;
+import producer.Replica;
+import repository.dao.ReplicationDAO;
+import repository.dao.SlabDAO;
+
+import java.net.ConnectException;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Routes the catalog reads between the primary and the read replica.
+ * Reads go to the replica while its replay lag, checked every lag-check-interval, is within max-lag-seconds; they
+ * fall back to the primary when the replica lags behind or can't be reached, and for a short window after this
+ * application wrote to the primary, so that the writer reads its own writes. Writes always go to the primary.
+ * A read sent to the replica that fails to reach it marks the replica out of sync, until the next lag check succeeds,
+ * and is retried once on the primary.
+ */
+@Slf4j
+@ApplicationScoped
+public class DataSourceRouter {
+
+    // Configuration parameters
+    private final boolean REPLICA_ENABLED = ConfigProvider.getConfig().getValue("db.replica.enabled", Boolean.class);
+    private final double MAX_LAG_SECONDS = ConfigProvider.getConfig().getValue("db.replica.max-lag-seconds", Double.class);
+    private final long READ_YOUR_WRITES_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            ConfigProvider.getConfig().getValue("db.replica.read-your-writes-window-ms", Long.class));
+
+    private static final String METRICS_PREFIX = "db.route";
+
+    @Inject
+    Jdbi jdbi;
+
+    @Inject
+    @Replica
+    Jdbi replicaJdbi;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<DataSourceRoute, SlabDAO> slabDAOs = new EnumMap<>(DataSourceRoute.class);
+    private final Map<DataSourceRoute, Counter> readCounters = new EnumMap<>(DataSourceRoute.class);
+    private Counter replicaFailoverCounter;
+    ReplicationDAO replicationDAO;
+
+    // The replica is not used until a lag check succeeds
+    private volatile boolean replicaInSync = false;
+    private volatile double replicaLagSeconds = Double.NaN;
+    private volatile long primaryReadsUntilNanos = System.nanoTime();
+
+    @PostConstruct
+    void init() {
+        slabDAOs.put(DataSourceRoute.PRIMARY, jdbi.onDemand(SlabDAO.class));
+        slabDAOs.put(DataSourceRoute.REPLICA, replicaJdbi.onDemand(SlabDAO.class));
+        replicationDAO = replicaJdbi.onDemand(ReplicationDAO.class);
+
+        for (DataSourceRoute route : DataSourceRoute.values()) {
+            readCounters.put(route, Counter.builder(METRICS_PREFIX + ".reads")
+                    .description("Catalog reads sent to the route")
+                    .tag("route", route.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        replicaFailoverCounter = Counter.builder(METRICS_PREFIX + ".replica-failovers")
+                .description("Catalog reads retried on the primary because the replica couldn't be reached")
+                .register(meterRegistry);
+        Gauge.builder("db.replica.lag", this, router -> router.replicaLagSeconds)
+                .description("Replay lag of the read replica, in seconds")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("db.replica.in-sync", this, router -> router.replicaInSync ? 1 : 0)
+                .description("1 when the catalog reads are sent to the replica")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the route of the next catalog read
+     */
+    public DataSourceRoute readRoute() {
+        if (!REPLICA_ENABLED || !replicaInSync || System.nanoTime() - primaryReadsUntilNanos < 0) {
+            return DataSourceRoute.PRIMARY;
+        }
+        return DataSourceRoute.REPLICA;
+    }
+
+    /**
+     * Runs a catalog read on the SlabDAO of its route, retried once on the primary if the replica can't be reached
+     * @param read the read
+     * @return the result of the read
+     * @param <T> type of the result
+     */
+    public <T> T read(Function<SlabDAO, T> read) {
+        return readWithFailover(route -> read.apply(slabDAOs.get(route)));
+    }
+
+    /**
+     * Runs a catalog read spanning a transaction on the Jdbi of its route, retried once on the primary if the replica
+     * can't be reached
+     * @param read the read, which opens its own handle or transaction
+     * @return the result of the read
+     * @param <T> type of the result
+     */
+    public <T> T readWithJdbi(Function<Jdbi, T> read) {
+        return readWithFailover(route -> read.apply(route == DataSourceRoute.REPLICA ? replicaJdbi : jdbi));
+    }
+
+    /**
+     * Non-blocking variant of read: the route is chosen on subscription, and a read of the replica failing to reach
+     * it is retried once on the primary
+     * @param read the read on the client of the given route
+     * @return a Uni emitting the result of the read
+     * @param <T> type of the result
+     */
+    public <T> Uni<T> readAsync(Function<DataSourceRoute, Uni<T>> read) {
+        return Uni.createFrom().deferred(() -> {
+            DataSourceRoute route = readRoute();
+            readCounters.get(route).increment();
+
+            if (route == DataSourceRoute.PRIMARY) {
+                return read.apply(route);
+            }
+            return read.apply(route)
+                    .onFailure(DataSourceRouter::isConnectionFailure).recoverWithUni(e -> {
+                        failOver(e);
+                        return read.apply(DataSourceRoute.PRIMARY);
+                    });
+        });
+    }
+
+    private <T> T readWithFailover(Function<DataSourceRoute, T> read) {
+        DataSourceRoute route = readRoute();
+        readCounters.get(route).increment();
+
+        if (route == DataSourceRoute.PRIMARY) {
+            return read.apply(route);
+        }
+        try {
+            return read.apply(route);
+        } catch (RuntimeException e) {
+            if (!isConnectionFailure(e)) {
+                throw e;
+            }
+            failOver(e);
+            return read.apply(DataSourceRoute.PRIMARY);
+        }
+    }
+
+    /**
+     * Sends the reads to the primary until the next successful lag check, and counts the retried read
+     */
+    private void failOver(Throwable failure) {
+        readCounters.get(DataSourceRoute.PRIMARY).increment();
+        replicaFailoverCounter.increment();
+
+        if (replicaInSync) {
+            replicaInSync = false;
+            replicaLagSeconds = Double.NaN;
+            log.warn("Replica can't be reached, catalog reads sent to the primary: {}", failure.getMessage());
+        }
+    }
+
+    /**
+     * @param failure the failure of a read
+     * @return true if the read failed to reach the DB or lost its connection, as opposed to a failure of the statement
+     */
+    static boolean isConnectionFailure(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectionException || cause instanceof ConnectException || cause instanceof ClosedConnectionException) {
+                return true;
+            }
+            String sqlState = cause instanceof SQLException sqlException ? sqlException.getSQLState()
+                    : cause instanceof PgException pgException ? pgException.getSqlState()
+                    : null;
+            // Class 08 is connection exception, 57P01-57P03 a server shutting down, crashed or starting up
+            if (sqlState != null && (sqlState.startsWith("08") || sqlState.startsWith("57P0"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the Jdbi of the primary, for writes
+     */
+    public Jdbi writeJdbi() {
+        return jdbi;
+    }
+
+    /**
+     * @param route the route
+     * @return the SlabDAO of the route, regardless of the replica state
+     */
+    public SlabDAO slabDAO(DataSourceRoute route) {
+        return slabDAOs.get(route);
+    }
+
+    /**
+     * Sends the reads to the primary for the read-your-writes window, to be called once a write is committed
+     */
+    public void markWritten() {
+        primaryReadsUntilNanos = System.nanoTime() + READ_YOUR_WRITES_NANOS;
+    }
+
+    public double getReplicaLagSeconds() {
+        return replicaLagSeconds;
+    }
+
+    public boolean isReplicaInSync() {
+        return REPLICA_ENABLED && replicaInSync;
+    }
+
+    @Scheduled(every = "${db.replica.lag-check-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void checkReplicaLag() {
+        if (!REPLICA_ENABLED) {
+            return;
+        }
+
+        boolean wasInSync = replicaInSync;
+        try {
+            replicaLagSeconds = replicationDAO.getReplayLagSeconds();
+            replicaInSync = replicaLagSeconds <= MAX_LAG_SECONDS;
+        } catch (Exception e) {
+            replicaLagSeconds = Double.NaN;
+            replicaInSync = false;
+            if (wasInSync) {
+                log.warn("Replica lag check failed, catalog reads sent to the primary: {}", e.getMessage());
+            }
+            return;
+        }
+
+        if (wasInSync && !replicaInSync) {
+            log.warn("Replica lag {}s over {}s, catalog reads sent to the primary", replicaLagSeconds, MAX_LAG_SECONDS);
+        } else if (!wasInSync && replicaInSync) {
+            log.info("Replica lag {}s, catalog reads sent to the replica", replicaLagSeconds);
+        }
+    }
+}
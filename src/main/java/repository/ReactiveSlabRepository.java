@@ -0,0 +1,127 @@
+package repository;
+
+import io.quarkus.reactive.datasource.ReactiveDataSource;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import repository.model.PricedSlabAvailabilityEntity;
+import repository.model.SlabEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Catalog reads on the Vert.x reactive Postgres client: the queries of SlabDAO, returning Uni/Multi instead of
+ * blocking a thread while waiting for the DB. Reads are routed between primary and replica like the JDBI ones, and
+ * retried once on the primary if the replica can't be reached.
+ */
+@Slf4j
+@ApplicationScoped
+public class ReactiveSlabRepository {
+
+    private static final String SELECT_PRODUCT_TYPES_PAGED = "SELECT * FROM slab ORDER BY id COLLATE \"C\" ASC LIMIT $1 OFFSET $2";
+    private static final String SELECT_PRODUCT_TYPES_AFTER = "SELECT * FROM slab WHERE id > $1 COLLATE \"C\" ORDER BY id COLLATE \"C\" ASC LIMIT $2";
+    private static final String SELECT_PRODUCTS_WITH_DETAILS_AND_AVAILABILITY =
+            "SELECT id, collection, color, tone, width, height, price, currency, quantity FROM priced_availability ORDER BY id COLLATE \"C\"";
+    private static final String SELECT_PRODUCTS_WITH_DETAILS_AND_AVAILABILITY_AFTER =
+            "SELECT id, collection, color, tone, width, height, price, currency, quantity FROM priced_availability " +
+            "WHERE id > $1 COLLATE \"C\" ORDER BY id COLLATE \"C\" LIMIT $2";
+
+    @Inject
+    PgPool client;
+
+    // Only looked up when a read is routed to the replica: the pool is inactive when the replica is disabled
+    @Inject
+    @ReactiveDataSource("replica")
+    Instance<PgPool> replicaClient;
+
+    @Inject
+    DataSourceRouter dataSourceRouter;
+
+    public Uni<List<SlabEntity>> getProductTypesPaged(int limit, int offset) {
+        return dataSourceRouter.readAsync(route -> clientOf(route).preparedQuery(SELECT_PRODUCT_TYPES_PAGED).execute(Tuple.of(limit, offset)))
+                .map(rows -> toList(rows, ReactiveSlabRepository::toSlabEntity));
+    }
+
+    public Uni<List<SlabEntity>> getProductTypesAfter(String afterId, int limit) {
+        return dataSourceRouter.readAsync(route -> clientOf(route).preparedQuery(SELECT_PRODUCT_TYPES_AFTER).execute(Tuple.of(afterId, limit)))
+                .map(rows -> toList(rows, ReactiveSlabRepository::toSlabEntity));
+    }
+
+    public Uni<List<PricedSlabAvailabilityEntity>> getAllProductsWithDetailsAndAvailability() {
+        return dataSourceRouter.readAsync(route -> clientOf(route).query(SELECT_PRODUCTS_WITH_DETAILS_AND_AVAILABILITY).execute())
+                .map(rows -> toList(rows, ReactiveSlabRepository::toPricedSlabAvailabilityEntity));
+    }
+
+    /**
+     * Streams the products with their details and availability, in id order, in keyset pages of fetchSize rows: the
+     * next page is only read when the subscriber requests more rows. Like the JDBI stream, each page is a single
+     * query whose connection goes back to the pool right away, so a slow subscriber never pins a connection
+     * @param fetchSize number of rows read from the DB per page
+     * @return the products, completed after the last page
+     */
+    public Multi<PricedSlabAvailabilityEntity> streamAllProductsWithDetailsAndAvailability(int fetchSize) {
+        return Multi.createBy().repeating()
+                .uni(() -> new AtomicReference<>(""), afterId -> dataSourceRouter.readAsync(route -> clientOf(route)
+                                .preparedQuery(SELECT_PRODUCTS_WITH_DETAILS_AND_AVAILABILITY_AFTER)
+                                .execute(Tuple.of(afterId.get(), fetchSize)))
+                        .map(rows -> {
+                            List<PricedSlabAvailabilityEntity> page = toList(rows, ReactiveSlabRepository::toPricedSlabAvailabilityEntity);
+                            if (!page.isEmpty()) {
+                                afterId.set(page.get(page.size() - 1).getId());
+                            }
+                            return page;
+                        }))
+                // The page that isn't full is emitted, then the stream completes
+                .whilst(page -> page.size() == fetchSize)
+                .onItem().<PricedSlabAvailabilityEntity>disjoint();
+    }
+
+    private PgPool clientOf(DataSourceRoute route) {
+        return route == DataSourceRoute.REPLICA ? replicaClient.get() : client;
+    }
+
+    private static <T> List<T> toList(RowSet<Row> rows, Function<Row, T> mapper) {
+        List<T> list = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            list.add(mapper.apply(row));
+        }
+        return list;
+    }
+
+    private static SlabEntity toSlabEntity(Row row) {
+        SlabEntity slab = new SlabEntity();
+        slab.setId(row.getString("id"));
+        slab.setCollection(row.getString("collection"));
+        slab.setColor(row.getString("color"));
+        slab.setTone(row.getString("tone"));
+        slab.setWidth(row.getInteger("width"));
+        slab.setHeight(row.getInteger("height"));
+        slab.setPriceId(row.getInteger("price_id"));
+        slab.setImagePath(row.getString("image_path"));
+        return slab;
+    }
+
+    private static PricedSlabAvailabilityEntity toPricedSlabAvailabilityEntity(Row row) {
+        PricedSlabAvailabilityEntity product = new PricedSlabAvailabilityEntity();
+        product.setId(row.getString("id"));
+        product.setCollection(row.getString("collection"));
+        product.setColor(row.getString("color"));
+        product.setTone(row.getString("tone"));
+        product.setWidth(row.getInteger("width"));
+        product.setHeight(row.getInteger("height"));
+        product.setPrice(row.getDouble("price"));
+        product.setCurrency(row.getString("currency"));
+        product.setQuantity(row.getInteger("quantity"));
+        return product;
+    }
+}
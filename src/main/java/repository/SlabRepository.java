@@ -1,18 +1,21 @@
 package repository;
 
-import io.agroal.api.AgroalDataSource;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.jdbi.v3.core.Jdbi;
-import producer.JdbiProducer;
+import org.jdbi.v3.core.transaction.TransactionIsolationLevel;
 import repository.dao.SlabDAO;
+import repository.model.AvailabilityEntity;
+import repository.model.CatalogBatchResultEntity;
+import repository.model.CatalogEntity;
+import repository.model.PriceListEntity;
 import repository.model.PricedSlabAvailabilityEntity;
 import repository.model.SlabEntity;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Data
@@ -20,28 +23,116 @@ import java.util.*;
 public class SlabRepository {
 
     @Inject
-    AgroalDataSource defaultDataSource;
-
-    @Inject
-    JdbiProducer jdbiProducer;
+    DataSourceRouter dataSourceRouter;
 
     public List<SlabEntity> getAllProductTypes() {
-        Jdbi jdbi = jdbiProducer.getJdbi(defaultDataSource);
-        return jdbi.withExtension(SlabDAO.class, SlabDAO::getAllProductTypes);
+        return dataSourceRouter.read(SlabDAO::getAllProductTypes);
     }
 
     public List<SlabEntity> getProductTypesPaged(int limit, int offset) {
-        Jdbi jdbi = jdbiProducer.getJdbi(defaultDataSource);
-        return jdbi.withExtension(SlabDAO.class, slabDAO -> slabDAO.getProductTypesPaged(limit, offset));
+        return dataSourceRouter.read(slabDAO -> slabDAO.getProductTypesPaged(limit, offset));
+    }
+
+    public List<SlabEntity> getProductTypesAfter(String afterId, int limit) {
+        return dataSourceRouter.read(slabDAO -> slabDAO.getProductTypesAfter(afterId, limit));
     }
 
     public Optional<SlabEntity> getProductTypeById(String id) {
-        Jdbi jdbi = jdbiProducer.getJdbi(defaultDataSource);
-        return jdbi.withExtension(SlabDAO.class, slabDAO -> slabDAO.getProductTypeById(id));
+        return dataSourceRouter.read(slabDAO -> slabDAO.getProductTypeById(id));
     }
 
     public List<PricedSlabAvailabilityEntity> getAllProductsWithDetailsAndAvailability() {
-        Jdbi jdbi = jdbiProducer.getJdbi(defaultDataSource);
-        return jdbi.withExtension(SlabDAO.class, SlabDAO::getAllProductsWithDetailsAndAvailability);
+        return dataSourceRouter.read(SlabDAO::getAllProductsWithDetailsAndAvailability);
+    }
+
+    /**
+     * Streams the products with their details and availability to the consumer, one row at a time: at most
+     * fetchSize rows are held in memory, whatever the size of the result.
+     * Rows are read in keyset pages, each one on its own connection that is returned to the pool before the rows are
+     * handed to the consumer, so a slow consumer (e.g. a client reading a streamed response) never pins a connection.
+     * Pages aren't read in a single transaction: a row updated while streaming is seen in the state of its page
+     * @param fetchSize number of rows read from the DB per page
+     * @param consumer called for each row, in id order, on the calling thread
+     */
+    public void streamAllProductsWithDetailsAndAvailability(int fetchSize, Consumer<PricedSlabAvailabilityEntity> consumer) {
+        String afterId = "";
+        List<PricedSlabAvailabilityEntity> page;
+        do {
+            String pageAfterId = afterId;
+            page = dataSourceRouter.read(slabDAO -> slabDAO.getProductsWithDetailsAndAvailabilityAfter(pageAfterId, fetchSize));
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == fetchSize);
+    }
+
+    public String getCatalogChecksum() {
+        return dataSourceRouter.read(SlabDAO::getCatalogChecksum);
+    }
+
+    /**
+     * Reads the base tables slab, pricelist and availability in a single repeatable read transaction, so that the
+     * three tables and the checksum describe the same state of the catalog. The priced_availability view is not read:
+     * it's refreshed on its own schedule and may lag behind the tables
+     * @return the content of the catalog tables
+     */
+    public CatalogEntity getCatalog() {
+        return dataSourceRouter.readWithJdbi(jdbi -> jdbi.inTransaction(TransactionIsolationLevel.REPEATABLE_READ, handle -> {
+            SlabDAO slabDAO = handle.attach(SlabDAO.class);
+            return new CatalogEntity(
+                    slabDAO.getAllProductTypes(),
+                    slabDAO.getAllPriceLists(),
+                    slabDAO.getAllAvailabilities(),
+                    slabDAO.getCatalogChecksum());
+        }));
+    }
+
+    /**
+     * Upserts price lists, slabs and availabilities, in this order, with batch statements in a single transaction:
+     * either all the rows are written or none
+     * @param priceLists the price lists to insert or update
+     * @param slabs the slabs to insert or update
+     * @param availabilities the availabilities to insert or update
+     * @return the update count of every row
+     */
+    public CatalogBatchResultEntity upsertCatalog(List<PriceListEntity> priceLists, List<SlabEntity> slabs,
+                                                  List<AvailabilityEntity> availabilities) {
+        CatalogBatchResultEntity result = dataSourceRouter.writeJdbi().inTransaction(handle -> {
+            SlabDAO slabDAO = handle.attach(SlabDAO.class);
+            return new CatalogBatchResultEntity(
+                    priceLists.isEmpty() ? new int[0] : slabDAO.upsertPriceLists(priceLists),
+                    slabs.isEmpty() ? new int[0] : slabDAO.upsertSlabs(slabs),
+                    availabilities.isEmpty() ? new int[0] : slabDAO.upsertAvailabilities(availabilities));
+        });
+        // The reload of the catalog that follows must see the batch
+        dataSourceRouter.markWritten();
+        return result;
+    }
+
+    /**
+     * Refreshes the priced_availability view if the catalog tables changed since its last refresh. The view stays
+     * readable during the refresh; if the refresh fails, the change flag is set again so that it's retried
+     * @return true if the view was refreshed
+     */
+    public boolean refreshPricedAvailabilityIfChanged() {
+        SlabDAO primarySlabDAO = dataSourceRouter.slabDAO(DataSourceRoute.PRIMARY);
+        // Cleared before refreshing. Every write statement locks the flag row until its transaction ends, so the clear
+        // waits for the open writers and the refresh sees their changes; later writes set the flag again
+        if (!primarySlabDAO.clearPricedAvailabilityDirty()) {
+            return false;
+        }
+
+        try {
+            primarySlabDAO.refreshPricedAvailability();
+            return true;
+        } catch (Exception e) {
+            try {
+                primarySlabDAO.markPricedAvailabilityDirty();
+            } catch (Exception markFailure) {
+                e.addSuppressed(markFailure);
+            }
+            throw e;
+        }
     }
 }
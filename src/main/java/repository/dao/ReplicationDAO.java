@@ -0,0 +1,12 @@
+package repository.dao;
+
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+
+public interface ReplicationDAO {
+
+    // 0 when the replica has replayed all it received (or is not a standby), otherwise the age of the last replayed
+    // transaction
+    @SqlQuery("SELECT COALESCE(CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+              "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END, 0)")
+    double getReplayLagSeconds();
+}
@@ -3,9 +3,13 @@ package repository.dao;
 import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindBean;
+import org.jdbi.v3.sqlobject.statement.BatchChunkSize;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 import org.jdbi.v3.sqlobject.transaction.Transaction;
+import repository.model.AvailabilityEntity;
+import repository.model.PriceListEntity;
 import repository.model.PricedSlabAvailabilityEntity;
 import repository.model.SlabEntity;
 
@@ -14,35 +18,92 @@ import java.util.Optional;
 
 public interface SlabDAO {
 
+    // Rows sent to the DB per JDBC batch by the upserts
+    int BATCH_CHUNK_SIZE = 1000;
+
     // TODO: check if with * still works
     @SqlQuery("SELECT * FROM slab")
     @RegisterBeanMapper(SlabEntity.class)
     List<SlabEntity> getAllProductTypes();
 
 
-    @SqlQuery("SELECT * FROM slab ORDER BY id ASC LIMIT :limit OFFSET :offset")
+    @SqlQuery("SELECT * FROM slab ORDER BY id COLLATE \"C\" ASC LIMIT :limit OFFSET :offset")
     @RegisterBeanMapper(SlabEntity.class)
     List<SlabEntity> getProductTypesPaged(@Bind("limit") int limit, @Bind("offset") int offset);
 
+    // Keyset pagination: the (primary key) index is used to seek to afterId, no row before it is read.
+    // Ids are compared in byte order, like the catalog snapshot does, whatever the collation of the database
+    @SqlQuery("SELECT * FROM slab WHERE id > :afterId COLLATE \"C\" ORDER BY id COLLATE \"C\" ASC LIMIT :limit")
+    @RegisterBeanMapper(SlabEntity.class)
+    List<SlabEntity> getProductTypesAfter(@Bind("afterId") String afterId, @Bind("limit") int limit);
+
     @SqlQuery("SELECT * FROM slab WHERE id = :id")
     @RegisterBeanMapper(SlabEntity.class)
     Optional<SlabEntity> getProductTypeById(@BindBean String id);
 
-    @SqlQuery("SELECT s.id, s.collection, s.color, s.tone, s.width, s.height, p.price, p.currency, a.quantity " +
-              "FROM slab s " +
-              "JOIN pricelist p on s.price_id = p.id " +
-              "JOIN availability a on s.id = a.id")
+    // priced_availability is the materialized join of slab, pricelist and availability
+    @SqlQuery("SELECT id, collection, color, tone, width, height, price, currency, quantity FROM priced_availability")
     @RegisterBeanMapper(PricedSlabAvailabilityEntity.class)
     List<PricedSlabAvailabilityEntity> getAllProductsWithDetailsAndAvailability();
 
+    // Keyset page of the rows of getAllProductsWithDetailsAndAvailability, used to stream them without holding a
+    // connection between pages ("" sorts before every id)
+    @SqlQuery("SELECT id, collection, color, tone, width, height, price, currency, quantity FROM priced_availability " +
+              "WHERE id > :afterId COLLATE \"C\" ORDER BY id COLLATE \"C\" LIMIT :limit")
+    @RegisterBeanMapper(PricedSlabAvailabilityEntity.class)
+    List<PricedSlabAvailabilityEntity> getProductsWithDetailsAndAvailabilityAfter(@Bind("afterId") String afterId, @Bind("limit") int limit);
+
+    @SqlQuery("SELECT id, price, currency FROM pricelist")
+    @RegisterBeanMapper(PriceListEntity.class)
+    List<PriceListEntity> getAllPriceLists();
+
+    @SqlQuery("SELECT id, quantity FROM availability")
+    @RegisterBeanMapper(AvailabilityEntity.class)
+    List<AvailabilityEntity> getAllAvailabilities();
+
+    // Digest of the rows of slab, pricelist and availability: it changes whenever any of the catalog tables changes
+    @SqlQuery("SELECT md5(" +
+              "coalesce((SELECT string_agg(s::text, ',' ORDER BY s.id) FROM slab s), '') || '|' || " +
+              "coalesce((SELECT string_agg(p::text, ',' ORDER BY p.id) FROM pricelist p), '') || '|' || " +
+              "coalesce((SELECT string_agg(a::text, ',' ORDER BY a.id) FROM availability a), ''))")
+    String getCatalogChecksum();
+
     @Transaction
     @SqlUpdate("UPDATE slab SET " +
-            "collection= :collection, " +
-            "color= :color, " +
-            "tone= :tone " +
-            "width= :width " +
-            "height= :height " +
-            "price_id= :price_id " +
+            "collection = :collection, " +
+            "color = :color, " +
+            "tone = :tone, " +
+            "width = :width, " +
+            "height = :height, " +
+            "price_id = :priceId " +
             "WHERE id = :id")
     void update(@BindBean SlabEntity slab);
+
+    @SqlBatch("INSERT INTO pricelist (id, price, currency) " +
+              "VALUES (CAST(:id AS INTEGER), :price, :currency) " +
+              "ON CONFLICT (id) DO UPDATE SET price = EXCLUDED.price, currency = EXCLUDED.currency")
+    @BatchChunkSize(BATCH_CHUNK_SIZE)
+    int[] upsertPriceLists(@BindBean List<PriceListEntity> priceLists);
+
+    @SqlBatch("INSERT INTO slab (id, collection, color, tone, width, height, price_id, image_path) " +
+              "VALUES (:id, :collection, :color, :tone, :width, :height, :priceId, :imagePath) " +
+              "ON CONFLICT (id) DO UPDATE SET collection = EXCLUDED.collection, color = EXCLUDED.color, tone = EXCLUDED.tone, " +
+              "width = EXCLUDED.width, height = EXCLUDED.height, price_id = EXCLUDED.price_id, image_path = EXCLUDED.image_path")
+    @BatchChunkSize(BATCH_CHUNK_SIZE)
+    int[] upsertSlabs(@BindBean List<SlabEntity> slabs);
+
+    @SqlBatch("INSERT INTO availability (id, quantity) VALUES (:id, :quantity) " +
+              "ON CONFLICT (id) DO UPDATE SET quantity = EXCLUDED.quantity")
+    @BatchChunkSize(BATCH_CHUNK_SIZE)
+    int[] upsertAvailabilities(@BindBean List<AvailabilityEntity> availabilities);
+
+    // Clears the flag set by the triggers of the catalog tables, true if it was set
+    @SqlUpdate("UPDATE priced_availability_state SET dirty = false WHERE dirty")
+    boolean clearPricedAvailabilityDirty();
+
+    @SqlUpdate("UPDATE priced_availability_state SET dirty = true")
+    void markPricedAvailabilityDirty();
+
+    @SqlUpdate("REFRESH MATERIALIZED VIEW CONCURRENTLY priced_availability")
+    void refreshPricedAvailability();
 }
@@ -0,0 +1,9 @@
+package repository.model;
+
+import lombok.Data;
+
+@Data
+public class AvailabilityEntity {
+    private String id;
+    private int quantity;
+}
@@ -0,0 +1,15 @@
+package repository.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Update counts of a catalog batch, one per row written, in the order of the rows
+ */
+@Data
+@AllArgsConstructor
+public class CatalogBatchResultEntity {
+    private int[] priceListCounts;
+    private int[] slabCounts;
+    private int[] availabilityCounts;
+}
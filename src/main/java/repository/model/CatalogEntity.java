@@ -0,0 +1,18 @@
+package repository.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Content of the catalog tables, read in one transaction together with its checksum
+ */
+@Data
+@AllArgsConstructor
+public class CatalogEntity {
+    private List<SlabEntity> slabs;
+    private List<PriceListEntity> priceLists;
+    private List<AvailabilityEntity> availabilities;
+    private String checksum;
+}
@@ -1,10 +1,13 @@
 package repository.model;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -66,4 +69,57 @@ public class UserEntity {
             }
         }
     }
+
+    /**
+     * Reads the user representation the parser is positioned on (START_OBJECT), leaving the parser on its END_OBJECT
+     * @param parser streaming parser over a Keycloak user representation
+     * @throws IOException if the representation cannot be read
+     */
+    public UserEntity(JsonParser parser) throws IOException {
+        this.disableableCredentialTypes = new ArrayList<>();
+        this.requiredActions = new ArrayList<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+
+            if (valueToken == JsonToken.VALUE_NULL) {
+                continue;
+            }
+
+            switch (fieldName) {
+                case "id" -> this.id = parser.getText();
+                case "username" -> this.username = parser.getText();
+                case "email" -> this.email = parser.getText();
+                case "firstName" -> this.firstName = parser.getText();
+                case "lastName" -> this.lastName = parser.getText();
+                case "enabled" -> this.enabled = parser.getValueAsBoolean();
+                case "emailVerified" -> this.emailVerified = parser.getValueAsBoolean();
+                case "totp" -> this.totp = parser.getValueAsBoolean();
+                case "notBefore" -> this.notBefore = parser.getValueAsInt();
+                case "createdTimestamp" -> this.createdTimestamp = Instant.ofEpochMilli(parser.getValueAsLong());
+                case "access" -> {
+                    this.access = new HashMap<>();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String key = parser.currentName();
+                        parser.nextToken();
+                        this.access.put(key, parser.getValueAsBoolean());
+                    }
+                }
+                case "disableableCredentialTypes" -> readScalarArray(parser, this.disableableCredentialTypes);
+                case "requiredActions" -> readScalarArray(parser, this.requiredActions);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readScalarArray(JsonParser parser, ArrayList<Object> target) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken().isStructStart()) {
+                parser.skipChildren();
+            } else {
+                target.add(parser.getText());
+            }
+        }
+    }
 }
@@ -0,0 +1,204 @@
+package service;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.Form;
+import jakarta.ws.rs.core.HttpHeaders;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.jboss.resteasy.reactive.client.impl.UniInvoker;
+import service.KeycloakHttpClient.Operation;
+import utils.JsonFieldExtractor;
+import utils.JsonFieldExtractor.JsonFields;
+import utils.SingleFlight;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the high level permission token used for the admin operations on Keycloak.
+ * Token and expiry are kept in one immutable snapshot swapped atomically, so readers never see a token paired with
+ * the expiry of another one. The token is refreshed in the background once the configured fraction of its lifetime
+ * has elapsed; concurrent refreshes share a single token request, and callers only wait for it when no valid
+ * token is available at all.
+ * !!! Under no circumstances, the token must be handed out to rest endpoints !!!
+ */
+@Slf4j
+@ApplicationScoped
+public class AdminTokenManager {
+
+    // Configuration parameters
+    private final String HIGH_LEVEL_PERMISSION_USERNAME = ConfigProvider.getConfig().getValue("keycloak.high-level-permission-username", String.class);
+    private final String HIGH_LEVEL_PERMISSION_PASSWORD = ConfigProvider.getConfig().getValue("keycloak.high-level-permission-password", String.class);
+    private final int HIGH_LEVEL_PERMISSION_TOKEN_DURATION_IN_SECONDS = ConfigProvider.getConfig().getValue("keycloak.high-level-permission-token-validity-seconds", Integer.class);
+    private final double HIGH_LEVEL_PERMISSION_TOKEN_REFRESH_FRACTION = ConfigProvider.getConfig().getValue("keycloak.high-level-permission-token-refresh-fraction", Double.class);
+    private final String TOKEN_REST_CLIENT_ID = ConfigProvider.getConfig().getValue("keycloak.token-rest-client.resource", String.class);
+
+    private static final String REFRESH_KEY = "admin-token";
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    @Inject
+    KeycloakHttpClient keycloakHttpClient;
+
+    private final AtomicReference<TokenSnapshot> snapshot = new AtomicReference<>();
+    private final SingleFlight<String, TokenSnapshot> refreshFlight = new SingleFlight<>();
+    private final AtomicReference<ScheduledFuture<?>> scheduledRefresh = new AtomicReference<>();
+
+    /**
+     * Immutable view of the current token
+     * @param token the access token
+     * @param issuedAt when the token was obtained
+     * @param refreshAt when the token should be replaced
+     * @param expiresAt when the token stops being accepted by Keycloak
+     */
+    private record TokenSnapshot(String token, Instant issuedAt, Instant refreshAt, Instant expiresAt) {
+
+        boolean isValid(Instant now) {
+            return now.isBefore(expiresAt);
+        }
+
+        boolean isStale(Instant now) {
+            return !now.isBefore(refreshAt);
+        }
+    }
+
+    /**
+     * Returns the current token, waiting for a token request only if no valid token is available.
+     * @return a token with high level permissions
+     * @throws RuntimeException if a new token is needed and the token request fails
+     */
+    public String getToken() throws RuntimeException {
+        TokenSnapshot current = currentSnapshot();
+        if (current != null) {
+            return current.token();
+        }
+
+        try {
+            return refresh().await().indefinitely().token();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to obtain token: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Non-blocking variant of getToken
+     * @return a Uni emitting a token with high level permissions
+     */
+    public Uni<String> getTokenAsync() {
+        TokenSnapshot current = currentSnapshot();
+        if (current != null) {
+            return Uni.createFrom().item(current.token());
+        }
+
+        return refresh()
+                .map(TokenSnapshot::token)
+                .onFailure().transform(e -> new RuntimeException("Failed to obtain token: " + e.getMessage()));
+    }
+
+    @PreDestroy
+    void close() {
+        ScheduledFuture<?> pending = scheduledRefresh.getAndSet(null);
+        if (pending != null) {
+            pending.cancel(false);
+        }
+    }
+
+    /**
+     * @return the current snapshot if it is still valid, null otherwise. A stale but valid snapshot is returned
+     * as is, and a background refresh is started for it
+     */
+    private TokenSnapshot currentSnapshot() {
+        TokenSnapshot current = snapshot.get();
+        Instant now = Instant.now();
+
+        if (current == null || !current.isValid(now)) {
+            return null;
+        }
+
+        if (current.isStale(now)) {
+            refreshInBackground();
+        }
+
+        return current;
+    }
+
+    /**
+     * Requests a new token, sharing the outstanding request with the concurrent callers
+     * @return a Uni emitting the new snapshot
+     */
+    private Uni<TokenSnapshot> refresh() {
+        return Uni.createFrom().completionStage(() -> refreshFlight.execute(REFRESH_KEY, () -> requestToken()
+                .invoke(newSnapshot -> {
+                    snapshot.set(newSnapshot);
+                    scheduleRefresh(Duration.between(Instant.now(), newSnapshot.refreshAt()));
+                    log.debug("High level permission token refreshed, valid until {}", newSnapshot.expiresAt());
+                })
+                .subscribeAsCompletionStage()));
+    }
+
+    private void refreshInBackground() {
+        refresh().subscribe().with(
+                newSnapshot -> { },
+                e -> {
+                    log.warn("Background refresh of the high level permission token failed: {}", e.getMessage());
+                    scheduleRefresh(RETRY_DELAY);
+                });
+    }
+
+    private void scheduleRefresh(Duration delay) {
+        ScheduledFuture<?> next = Infrastructure.getDefaultWorkerPool()
+                .schedule(this::refreshInBackground, Math.max(delay.toMillis(), 0), TimeUnit.MILLISECONDS);
+
+        ScheduledFuture<?> previous = scheduledRefresh.getAndSet(next);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Performs the password grant for the high level permission user
+     * @return a Uni emitting the snapshot of the obtained token
+     */
+    private Uni<TokenSnapshot> requestToken() {
+        Form requestBody = new Form()
+                .param("grant_type", "password")
+                .param("client_id", TOKEN_REST_CLIENT_ID)
+                .param("username", HIGH_LEVEL_PERMISSION_USERNAME)
+                .param("password", HIGH_LEVEL_PERMISSION_PASSWORD);
+
+        return keycloakHttpClient.callAsync(() -> keycloakHttpClient.request(keycloakHttpClient.getTokenRequestTarget(), Operation.TOKEN)
+                        .header(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+                        .accept("application/json")
+                        .rx(UniInvoker.class)
+                        .post(Entity.form(requestBody)))
+                .map(response -> {
+                    try (response) {
+                        if (response.getStatus() != 200) {
+                            throw new RuntimeException("Status code: " + response.getStatus());
+                        }
+                        return toSnapshot(JsonFieldExtractor.extract(response, "access_token", "expires_in"));
+                    }
+                });
+    }
+
+    private TokenSnapshot toSnapshot(JsonFields jsonResponse) {
+        Instant issuedAt = Instant.now();
+
+        // expires_in is authoritative; the configured validity is only a fallback
+        long lifetimeSeconds = jsonResponse.has("expires_in") ? jsonResponse.optLong("expires_in") : HIGH_LEVEL_PERMISSION_TOKEN_DURATION_IN_SECONDS;
+        long refreshAfterMillis = (long) (lifetimeSeconds * 1000 * HIGH_LEVEL_PERMISSION_TOKEN_REFRESH_FRACTION);
+
+        return new TokenSnapshot(
+                jsonResponse.getString("access_token"),
+                issuedAt,
+                issuedAt.plusMillis(refreshAfterMillis),
+                issuedAt.plusSeconds(lifetimeSeconds));
+    }
+}
@@ -0,0 +1,345 @@
+package service;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import service.KeycloakHttpClient.Operation;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Verifies Keycloak access tokens offline: the JWS signature is checked against the realm JWKS,
+ * which is fetched once and kept in memory, then exp/nbf/iss/aud are checked on the claims.
+ * The JWKS is fetched again only when a token carries a key id that is not known yet (key rotation).
+ */
+@Slf4j
+@ApplicationScoped
+public class JwtVerificationService {
+
+    // Configuration parameters
+    private final String AUTH_SERVER_URL = ConfigProvider.getConfig().getValue("keycloak.auth-server-url", String.class);
+    private final String REALM = ConfigProvider.getConfig().getValue("keycloak.realm", String.class);
+    private final String TOKEN_ISSUER = ConfigProvider.getConfig().getOptionalValue("keycloak.token-issuer", String.class).orElse(AUTH_SERVER_URL + REALM);
+    private final Optional<String> TOKEN_AUDIENCE = ConfigProvider.getConfig().getOptionalValue("keycloak.token-audience", String.class);
+    private final int CLOCK_SKEW_SECONDS = ConfigProvider.getConfig().getValue("keycloak.token-clock-skew-seconds", Integer.class);
+    private final int JWKS_MIN_REFRESH_INTERVAL_SECONDS = ConfigProvider.getConfig().getValue("keycloak.jwks-min-refresh-interval-seconds", Integer.class);
+
+    private static final Base64.Decoder BASE64_URL_DECODER = Base64.getUrlDecoder();
+
+    @Inject
+    KeycloakHttpClient keycloakHttpClient;
+
+    private volatile Map<String, PublicKey> publicKeysById = Map.of();
+    private volatile Instant lastJwksFetch = Instant.EPOCH;
+    private final Object jwksRefreshLock = new Object();
+
+    /**
+     * Checks if the token has the compact JWS shape (header.payload.signature).
+     * Tokens without this shape are opaque and can only be validated through introspection.
+     * @param token the bearer token
+     * @return true if the token looks like a JWT
+     */
+    public static boolean isJwt(String token) {
+        if (token == null) {
+            return false;
+        }
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        return firstDot > 0 && secondDot > firstDot + 1 && secondDot < token.length() - 1 && token.indexOf('.', secondDot + 1) < 0;
+    }
+
+    /**
+     * Verifies the signature and the standard claims of a JWT access token.
+     * @param token the bearer token
+     * @return the token claims if the token is valid, an empty Optional otherwise
+     * @throws RuntimeException if the realm JWKS cannot be retrieved
+     */
+    public Optional<JSONObject> verify(String token) throws RuntimeException {
+        if (!isJwt(token)) {
+            return Optional.empty();
+        }
+
+        int firstDot = token.indexOf('.');
+        int secondDot = token.indexOf('.', firstDot + 1);
+
+        JSONObject header;
+        JSONObject claims;
+        byte[] signature;
+        try {
+            header = new JSONObject(new String(BASE64_URL_DECODER.decode(token.substring(0, firstDot)), StandardCharsets.UTF_8));
+            claims = new JSONObject(new String(BASE64_URL_DECODER.decode(token.substring(firstDot + 1, secondDot)), StandardCharsets.UTF_8));
+            signature = BASE64_URL_DECODER.decode(token.substring(secondDot + 1));
+        } catch (Exception e) {
+            log.warn("Malformed JWT: {}", e.getMessage());
+            return Optional.empty();
+        }
+
+        String algorithm = header.optString("alg", null);
+        String keyId = header.optString("kid", null);
+        String signatureAlgorithm = toJcaSignatureAlgorithm(algorithm);
+
+        if (signatureAlgorithm == null || keyId == null) {
+            log.warn("Unsupported JWT algorithm {} or missing key id", algorithm);
+            return Optional.empty();
+        }
+
+        PublicKey publicKey = getPublicKey(keyId);
+        if (publicKey == null) {
+            log.warn("No realm key found for key id {}", keyId);
+            return Optional.empty();
+        }
+
+        if (!isSignatureValid(token.substring(0, secondDot), signature, signatureAlgorithm, publicKey)) {
+            log.warn("Invalid JWT signature for key id {}", keyId);
+            return Optional.empty();
+        }
+
+        if (!areClaimsValid(claims)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(claims);
+    }
+
+    /**
+     * Non-blocking variant of verify. The verification runs on the calling thread when the signing key is already
+     * known, and is moved to a worker thread only when the realm JWKS has to be fetched.
+     * @param token the bearer token
+     * @return a Uni emitting the token claims if the token is valid, an empty Optional otherwise
+     */
+    public Uni<Optional<JSONObject>> verifyAsync(String token) {
+        String keyId = peekKeyId(token);
+
+        if (keyId == null || publicKeysById.containsKey(keyId)) {
+            return Uni.createFrom().item(() -> verify(token));
+        }
+
+        return Uni.createFrom().item(() -> verify(token))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    /**
+     * Reads the key id from the JWT header without verifying anything
+     * @param token the bearer token
+     * @return the key id, or null if the token is not a JWT or has no key id
+     */
+    private String peekKeyId(String token) {
+        if (!isJwt(token)) {
+            return null;
+        }
+
+        try {
+            JSONObject header = new JSONObject(new String(BASE64_URL_DECODER.decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8));
+            return header.optString("kid", null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks exp, nbf, iss, aud and typ on the token claims
+     * @param claims the token claims
+     * @return true if the claims are acceptable
+     */
+    private boolean areClaimsValid(JSONObject claims) {
+        long now = Instant.now().getEpochSecond();
+
+        if (!claims.has("exp") || now > claims.optLong("exp") + CLOCK_SKEW_SECONDS) {
+            log.debug("Token expired or without expiration");
+            return false;
+        }
+
+        if (claims.has("nbf") && now < claims.optLong("nbf") - CLOCK_SKEW_SECONDS) {
+            log.debug("Token not valid yet");
+            return false;
+        }
+
+        if (!TOKEN_ISSUER.equals(claims.optString("iss", null))) {
+            log.warn("Unexpected token issuer {}", claims.optString("iss", null));
+            return false;
+        }
+
+        // Keycloak marks access tokens as "Bearer"; ID and refresh tokens must not be accepted here
+        if (claims.has("typ") && !"Bearer".equalsIgnoreCase(claims.optString("typ"))) {
+            log.warn("Unexpected token type {}", claims.optString("typ"));
+            return false;
+        }
+
+        if (TOKEN_AUDIENCE.isPresent() && !hasAudience(claims, TOKEN_AUDIENCE.get())) {
+            log.warn("Token is not issued for audience {}", TOKEN_AUDIENCE.get());
+            return false;
+        }
+
+        return true;
+    }
+
+    private boolean hasAudience(JSONObject claims, String audience) {
+        Object aud = claims.opt("aud");
+
+        if (aud instanceof JSONArray audiences) {
+            for (int i = 0; i < audiences.length(); ++i) {
+                if (audience.equals(audiences.optString(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        return aud != null && audience.equals(aud.toString());
+    }
+
+    private boolean isSignatureValid(String signingInput, byte[] signature, String signatureAlgorithm, PublicKey publicKey) {
+        try {
+            Signature verifier = Signature.getInstance(signatureAlgorithm);
+            verifier.initVerify(publicKey);
+            verifier.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return verifier.verify(signature);
+        } catch (GeneralSecurityException e) {
+            log.warn("Could not verify JWT signature: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the realm public key for the given key id. If the key id is unknown the JWKS is fetched again,
+     * at most once every keycloak.jwks-min-refresh-interval-seconds so that forged key ids cannot hammer Keycloak.
+     * @param keyId the key id from the JWT header
+     * @return the public key, or null if the realm does not publish such key
+     */
+    private PublicKey getPublicKey(String keyId) {
+        PublicKey publicKey = publicKeysById.get(keyId);
+        if (publicKey != null) {
+            return publicKey;
+        }
+
+        synchronized (jwksRefreshLock) {
+            publicKey = publicKeysById.get(keyId);
+            if (publicKey != null) {
+                return publicKey;
+            }
+
+            if (Duration.between(lastJwksFetch, Instant.now()).getSeconds() < JWKS_MIN_REFRESH_INTERVAL_SECONDS) {
+                return null;
+            }
+
+            lastJwksFetch = Instant.now();
+            publicKeysById = fetchPublicKeys();
+            return publicKeysById.get(keyId);
+        }
+    }
+
+    /**
+     * Fetches the realm JWKS from Keycloak
+     * @return the signature keys of the realm indexed by key id
+     * @throws RuntimeException if an error occurs during the request
+     */
+    private Map<String, PublicKey> fetchPublicKeys() throws RuntimeException {
+        try (Response response = keycloakHttpClient.call(() -> keycloakHttpClient.request(keycloakHttpClient.getJwksTarget(), Operation.JWKS)
+                .accept("application/json")
+                .get())) {
+
+            if (response.getStatus() != 200) {
+                throw new RuntimeException("Status code: " + response.getStatus());
+            }
+
+            JSONArray keys = new JSONObject(response.readEntity(String.class)).getJSONArray("keys");
+            Map<String, PublicKey> publicKeys = new HashMap<>();
+
+            for (int i = 0; i < keys.length(); ++i) {
+                JSONObject jwk = keys.getJSONObject(i);
+
+                if (!jwk.has("kid") || "enc".equals(jwk.optString("use"))) {
+                    continue;
+                }
+
+                try {
+                    PublicKey publicKey = toPublicKey(jwk);
+                    if (publicKey != null) {
+                        publicKeys.put(jwk.getString("kid"), publicKey);
+                    }
+                } catch (GeneralSecurityException e) {
+                    log.warn("Skipping realm key {}: {}", jwk.getString("kid"), e.getMessage());
+                }
+            }
+
+            log.info("Loaded {} realm signature keys", publicKeys.size());
+            return Map.copyOf(publicKeys);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to obtain realm keys: " + e.getMessage());
+        }
+    }
+
+    private PublicKey toPublicKey(JSONObject jwk) throws GeneralSecurityException {
+        switch (jwk.optString("kty")) {
+            case "RSA": {
+                BigInteger modulus = new BigInteger(1, BASE64_URL_DECODER.decode(jwk.getString("n")));
+                BigInteger exponent = new BigInteger(1, BASE64_URL_DECODER.decode(jwk.getString("e")));
+                return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(modulus, exponent));
+            }
+            case "EC": {
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                parameters.init(new ECGenParameterSpec(toCurveName(jwk.getString("crv"))));
+                ECPoint point = new ECPoint(
+                        new BigInteger(1, BASE64_URL_DECODER.decode(jwk.getString("x"))),
+                        new BigInteger(1, BASE64_URL_DECODER.decode(jwk.getString("y"))));
+                return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+            }
+            default:
+                return null;
+        }
+    }
+
+    private static String toCurveName(String crv) throws GeneralSecurityException {
+        return switch (crv) {
+            case "P-256" -> "secp256r1";
+            case "P-384" -> "secp384r1";
+            case "P-521" -> "secp521r1";
+            default -> throw new GeneralSecurityException("Unsupported curve " + crv);
+        };
+    }
+
+    /**
+     * Maps the JWS algorithm to the JCA one. Symmetric algorithms and "none" are not accepted.
+     * @param algorithm the alg header of the JWT
+     * @return the JCA signature algorithm, or null if unsupported
+     */
+    private static String toJcaSignatureAlgorithm(String algorithm) {
+        if (algorithm == null) {
+            return null;
+        }
+
+        return switch (algorithm) {
+            case "RS256" -> "SHA256withRSA";
+            case "RS384" -> "SHA384withRSA";
+            case "RS512" -> "SHA512withRSA";
+            case "ES256" -> "SHA256withECDSAinP1363Format";
+            case "ES384" -> "SHA384withECDSAinP1363Format";
+            case "ES512" -> "SHA512withECDSAinP1363Format";
+            default -> null;
+        };
+    }
+}
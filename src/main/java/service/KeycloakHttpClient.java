@@ -0,0 +1,273 @@
+package service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.http.RequestOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.client.WebTarget;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.jboss.resteasy.reactive.client.api.QuarkusRestClientProperties;
+import utils.AsyncSemaphore;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * HTTP clients of all the outbound Keycloak traffic.
+ * Two clients are needed. The JAX-RS client serves the calls that read a whole entity: the targets of the fixed
+ * endpoints are resolved once and its pool keeps keep-alive connections (HTTP/2 when the server supports it). The
+ * token proxy streams the Keycloak response to its own client with backpressure, which needs a ReadStream of the
+ * body: the JAX-RS client only hands out read entities or a blocking InputStream, so the proxy has a Vert.x client
+ * sized and configured the same way.
+ * Every call of both clients is gated by the same permits, sized like one connection pool: at most
+ * connection-pool-size Keycloak calls are in flight across both clients, though each one may keep idle connections.
+ * The keycloak.http.requests meters count these permits, i.e. the Keycloak requests in flight and queued. The
+ * connections of the Vert.x client are published by the Micrometer Vert.x binder, as the http.client meters tagged
+ * clientName=keycloak-token-proxy (open connections, requests queued for a connection and their wait, bytes).
+ * The Vert.x options of the JAX-RS client can't be given a metrics name, so its connections aren't published; a
+ * permit is returned as soon as a blocking call returns, while that pool may still be draining or keeping the
+ * connection.
+ */
+@Slf4j
+@ApplicationScoped
+public class KeycloakHttpClient {
+
+    /**
+     * Kind of Keycloak operation, each one with its own read timeout
+     */
+    public enum Operation {
+        TOKEN,
+        INTROSPECTION,
+        ADMIN,
+        JWKS
+    }
+
+    // Configuration parameters
+    private final String AUTH_SERVER_URL = ConfigProvider.getConfig().getValue("keycloak.auth-server-url", String.class);
+    private final String REALM = ConfigProvider.getConfig().getValue("keycloak.realm", String.class);
+
+    private final String TOKEN_REQUEST_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.token-request-endpoint", String.class);
+    private final String TOKEN_REFRESH_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.token-refresh-endpoint", String.class);
+    private final String TOKEN_VALIDATION_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.token-introspection-endpoint", String.class);
+    private final String JWKS_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.jwks-endpoint", String.class);
+    private final String USER_CREATION_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.user-creation-endpoint", String.class);
+    private final String USER_INFO_UPDATE_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.user-info-update-endpoint", String.class);
+    private final String USER_PASSWORD_UPDATE_ENDPOINT_FIRST = ConfigProvider.getConfig().getValue("keycloak.user-password-update-endpoint-first", String.class);
+    private final String USER_INFO_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.user-info-endpoint", String.class);
+
+    private final int CONNECTION_POOL_SIZE = ConfigProvider.getConfig().getValue("keycloak.http-client.connection-pool-size", Integer.class);
+    private final boolean KEEP_ALIVE = ConfigProvider.getConfig().getValue("keycloak.http-client.keep-alive", Boolean.class);
+    private final boolean HTTP2 = ConfigProvider.getConfig().getValue("keycloak.http-client.http2", Boolean.class);
+    private final long CONNECT_TIMEOUT_MS = ConfigProvider.getConfig().getValue("keycloak.http-client.connect-timeout-ms", Long.class);
+    private final long TOKEN_READ_TIMEOUT_MS = ConfigProvider.getConfig().getValue("keycloak.http-client.token-read-timeout-ms", Long.class);
+    private final long INTROSPECTION_READ_TIMEOUT_MS = ConfigProvider.getConfig().getValue("keycloak.http-client.introspection-read-timeout-ms", Long.class);
+    private final long ADMIN_READ_TIMEOUT_MS = ConfigProvider.getConfig().getValue("keycloak.http-client.admin-read-timeout-ms", Long.class);
+    private final long JWKS_READ_TIMEOUT_MS = ConfigProvider.getConfig().getValue("keycloak.http-client.jwks-read-timeout-ms", Long.class);
+
+    private static final String METRICS_PREFIX = "keycloak.http.requests";
+    // Client name of the http.client meters of the Micrometer Vert.x binder, which takes it after the "|"
+    private static final String STREAMING_CLIENT_METRICS_NAME = "http-client|keycloak-token-proxy";
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    Vertx vertx;
+
+    private Client client;
+    private HttpClient streamingClient;
+    private AsyncSemaphore connectionPermits;
+    private Timer permitWaitTimer;
+
+    @Getter
+    private WebTarget tokenRequestTarget;
+    @Getter
+    private WebTarget tokenRefreshTarget;
+    @Getter
+    private WebTarget tokenIntrospectionTarget;
+    @Getter
+    private WebTarget jwksTarget;
+    @Getter
+    private WebTarget userCreationTarget;
+    @Getter
+    private WebTarget userInfoUpdateTarget;
+    @Getter
+    private WebTarget userPasswordUpdateTarget;
+    @Getter
+    private WebTarget userInfoTarget;
+
+    @PostConstruct
+    void init() {
+        client = ClientBuilder.newBuilder()
+                .connectTimeout(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .property(QuarkusRestClientProperties.CONNECTION_POOL_SIZE, CONNECTION_POOL_SIZE)
+                .property(QuarkusRestClientProperties.KEEP_ALIVE_ENABLED, KEEP_ALIVE)
+                .property(QuarkusRestClientProperties.HTTP2, HTTP2)
+                .property(QuarkusRestClientProperties.ALPN, HTTP2)
+                .build();
+
+        tokenRequestTarget = client.target(AUTH_SERVER_URL + REALM + TOKEN_REQUEST_ENDPOINT);
+        tokenRefreshTarget = client.target(AUTH_SERVER_URL + REALM + TOKEN_REFRESH_ENDPOINT);
+        tokenIntrospectionTarget = client.target(AUTH_SERVER_URL + REALM + TOKEN_VALIDATION_ENDPOINT);
+        jwksTarget = client.target(AUTH_SERVER_URL + REALM + JWKS_ENDPOINT);
+        userCreationTarget = client.target(AUTH_SERVER_URL + USER_CREATION_ENDPOINT);
+        userInfoUpdateTarget = client.target(AUTH_SERVER_URL + USER_INFO_UPDATE_ENDPOINT);
+        userPasswordUpdateTarget = client.target(AUTH_SERVER_URL + USER_PASSWORD_UPDATE_ENDPOINT_FIRST);
+        userInfoTarget = client.target(AUTH_SERVER_URL + USER_INFO_ENDPOINT);
+
+        HttpClientOptions streamingClientOptions = new HttpClientOptions()
+                .setKeepAlive(KEEP_ALIVE)
+                .setConnectTimeout((int) CONNECT_TIMEOUT_MS)
+                .setMetricsName(STREAMING_CLIENT_METRICS_NAME);
+        if (HTTP2) {
+            streamingClientOptions
+                    .setProtocolVersion(HttpVersion.HTTP_2)
+                    .setUseAlpn(true)
+                    .setAlpnVersions(List.of(HttpVersion.HTTP_2, HttpVersion.HTTP_1_1))
+                    .setHttp2ClearTextUpgrade(true);
+        }
+        streamingClient = vertx.createHttpClient(streamingClientOptions, new PoolOptions()
+                .setHttp1MaxSize(CONNECTION_POOL_SIZE)
+                .setHttp2MaxSize(CONNECTION_POOL_SIZE));
+
+        connectionPermits = new AsyncSemaphore(CONNECTION_POOL_SIZE);
+
+        Gauge.builder(METRICS_PREFIX + ".in-flight", connectionPermits, AsyncSemaphore::leased)
+                .description("Keycloak requests currently in flight")
+                .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".available", connectionPermits, AsyncSemaphore::idle)
+                .description("Keycloak requests that can start without waiting")
+                .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".queued", connectionPermits, AsyncSemaphore::pending)
+                .description("Keycloak requests waiting for an in-flight one to complete")
+                .register(meterRegistry);
+        permitWaitTimer = Timer.builder(METRICS_PREFIX + ".queue-wait")
+                .description("Time Keycloak requests spent waiting to start")
+                .register(meterRegistry);
+
+        log.info("Keycloak HTTP client initialized: pool size {}, keep-alive {}, http2 {}", CONNECTION_POOL_SIZE, KEEP_ALIVE, HTTP2);
+    }
+
+    @PreDestroy
+    void close() {
+        client.close();
+        streamingClient.close();
+    }
+
+    /**
+     * Starts building a request on the target with the read timeout of the operation
+     * @param target one of the pre-resolved targets, or a target derived from them
+     * @param operation kind of operation
+     * @return the invocation builder
+     */
+    public Invocation.Builder request(WebTarget target, Operation operation) {
+        return target.request().property(QuarkusRestClientProperties.READ_TIMEOUT, readTimeoutMillis(operation));
+    }
+
+    /**
+     * Runs a blocking call once a connection permit has been granted
+     * @param call the blocking call
+     * @return the result of the call
+     * @param <T> type of the result
+     */
+    public <T> T call(Supplier<T> call) {
+        long waitStart = System.nanoTime();
+
+        try {
+            connectionPermits.acquire().join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to obtain a Keycloak request permit: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        permitWaitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+
+        try {
+            return call.get();
+        } finally {
+            connectionPermits.release();
+        }
+    }
+
+    /**
+     * Non-blocking variant of call: the call is subscribed once a connection permit has been granted,
+     * without holding a thread while waiting for the permit or for the response
+     * @param call supplier of the asynchronous call
+     * @return a Uni emitting the result of the call
+     * @param <T> type of the result
+     */
+    public <T> Uni<T> callAsync(Supplier<Uni<T>> call) {
+        return Uni.createFrom().deferred(() -> {
+            long waitStart = System.nanoTime();
+            CompletableFuture<Void> permit = connectionPermits.acquire();
+            AtomicBoolean released = new AtomicBoolean();
+
+            return Uni.createFrom().completionStage(permit)
+                    .onItem().transformToUni(ignored -> {
+                        permitWaitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+                        return call.get();
+                    })
+                    .onTermination().invoke(() -> {
+                        // If the permit was still pending the request is withdrawn, otherwise the permit is returned
+                        if (!permit.cancel(false) && released.compareAndSet(false, true)) {
+                            connectionPermits.release();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Sends a request whose response body is read as a stream, once a connection permit has been granted.
+     * The permit is held until the response body has been fully read, or the exchange failed
+     * @param requestOptions method, absolute URI and headers of the request
+     * @param operation kind of operation, which sets the read timeout
+     * @param body the request body
+     * @return a future completed with the response, whose body has not been read yet
+     */
+    public Future<HttpClientResponse> stream(RequestOptions requestOptions, Operation operation, Buffer body) {
+        long waitStart = System.nanoTime();
+        Context context = vertx.getOrCreateContext();
+
+        return Future.fromCompletionStage(connectionPermits.acquire(), context)
+                .compose(ignored -> {
+                    permitWaitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+                    requestOptions.setIdleTimeout(readTimeoutMillis(operation));
+
+                    return streamingClient.request(requestOptions)
+                            .compose(request -> request.send(body))
+                            .onSuccess(response -> response.end().onComplete(ignoredEnd -> connectionPermits.release()))
+                            .onFailure(e -> connectionPermits.release());
+                });
+    }
+
+    private long readTimeoutMillis(Operation operation) {
+        return switch (operation) {
+            case TOKEN -> TOKEN_READ_TIMEOUT_MS;
+            case INTROSPECTION -> INTROSPECTION_READ_TIMEOUT_MS;
+            case ADMIN -> ADMIN_READ_TIMEOUT_MS;
+            case JWKS -> JWKS_READ_TIMEOUT_MS;
+        };
+    }
+}
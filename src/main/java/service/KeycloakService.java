@@ -1,11 +1,11 @@
 package service;
 
 import controller.dto.*;
+import io.smallrye.mutiny.Uni;
 import io.vertx.ext.auth.User;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.WebApplicationException;
-import jakarta.ws.rs.client.Client;
-import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.Form;
 import jakarta.ws.rs.core.HttpHeaders;
@@ -14,11 +14,13 @@ import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.camel.util.Pair;
 import org.eclipse.microprofile.config.ConfigProvider;
-import org.json.JSONArray;
+import org.jboss.resteasy.reactive.client.impl.UniInvoker;
 import org.json.JSONObject;
 import repository.model.UserEntity;
+import service.KeycloakHttpClient.Operation;
+import utils.HashUtil;
+import utils.SingleFlight;
 
-import java.time.Instant;
 import java.util.ArrayList;
 
 
@@ -31,29 +33,35 @@ import java.util.ArrayList;
 public class KeycloakService {
 
     // Configuration parameters
-    private final String HIGH_LEVEL_PERMISSION_USERNAME = ConfigProvider.getConfig().getValue("keycloak.high-level-permission-username", String.class);
-    private final String HIGH_LEVEL_PERMISSION_PASSWORD = ConfigProvider.getConfig().getValue("keycloak.high-level-permission-password", String.class);
-    private final int HIGH_LEVEL_PERMISSION_TOKEN_DURATION_IN_SECONDS = ConfigProvider.getConfig().getValue("keycloak.high-level-permission-token-validity-seconds", Integer.class);
-
-    private final String AUTH_SERVER_URL = ConfigProvider.getConfig().getValue("keycloak.auth-server-url", String.class);
-    private final String REALM = ConfigProvider.getConfig().getValue("keycloak.realm", String.class);
 
     private final String GENERIC_REST_CLIENT_ID = ConfigProvider.getConfig().getValue("keycloak.generic-rest-client.resource", String.class);
     private final String GENERIC_REST_CLIENT_SECRET = ConfigProvider.getConfig().getValue("keycloak.generic-rest-client.credentials.secret", String.class);
 
     private final String TOKEN_REST_CLIENT_ID = ConfigProvider.getConfig().getValue("keycloak.token-rest-client.resource", String.class);
 
-    private final String TOKEN_REQUEST_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.token-request-endpoint", String.class);
-    private final String TOKEN_REFRESH_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.token-refresh-endpoint", String.class);
-    private final String TOKEN_VALIDATION_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.token-introspection-endpoint", String.class);
-    private final String USER_CREATION_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.user-creation-endpoint", String.class);
-    private final String USER_INFO_UPDATE_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.user-info-update-endpoint", String.class);
-    private final String USER_PASSWORD_UPDATE_ENDPOINT_FIRST = ConfigProvider.getConfig().getValue("keycloak.user-password-update-endpoint-first", String.class);
     private final String USER_PASSWORD_UPDATE_ENDPOINT_SECOND = ConfigProvider.getConfig().getValue("keycloak.user-password-update-endpoint-second", String.class);
-    private final String USER_INFO_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.user-info-endpoint", String.class);
 
-    private String cachedHighLevelPermissionToken;
-    private Instant highLevelPermissionTokenExpiry;
+    private final String TOKEN_VERIFICATION_MODE = ConfigProvider.getConfig().getValue("keycloak.token-verification-mode", String.class);
+    private final boolean TOKEN_INTROSPECTION_FALLBACK = ConfigProvider.getConfig().getValue("keycloak.token-introspection-fallback", Boolean.class);
+
+    @Inject
+    KeycloakHttpClient keycloakHttpClient;
+
+    @Inject
+    JwtVerificationService jwtVerificationService;
+
+    @Inject
+    TokenIntrospectionCache tokenIntrospectionCache;
+
+    @Inject
+    AdminTokenManager adminTokenManager;
+
+    @Inject
+    KeycloakUserDirectory keycloakUserDirectory;
+
+    // Concurrent identical calls share one outstanding Keycloak request
+    private final SingleFlight<String, TokenValidationResponseDTO> introspectionFlights = new SingleFlight<>();
+
 
     /**
      * Requests a token from Keycloak
@@ -62,20 +70,13 @@ public class KeycloakService {
      * @throws RuntimeException if an error occurs during the request
      */
     public Response requestToken(AuthenticationRequestDTO authenticationRequestDTO) throws RuntimeException {
-        Form requestBody = new Form()
-                .param("grant_type", "password")
-                .param("client_id", TOKEN_REST_CLIENT_ID)
-                .param("username", authenticationRequestDTO.getUsername())
-                .param("password", authenticationRequestDTO.getPassword());
-
-        Client client = ClientBuilder.newClient();
+        Form requestBody = tokenRequestForm(authenticationRequestDTO.getUsername(), authenticationRequestDTO.getPassword());
 
         try {
-            return client.target(AUTH_SERVER_URL + REALM + TOKEN_REQUEST_ENDPOINT)
-                    .request()
+            return keycloakHttpClient.call(() -> keycloakHttpClient.request(keycloakHttpClient.getTokenRequestTarget(), Operation.TOKEN)
                     .header(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
                     .accept("application/json")
-                    .post(Entity.form(requestBody));
+                    .post(Entity.form(requestBody)));
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to obtain token: " + e.getMessage());
@@ -90,19 +91,13 @@ public class KeycloakService {
      */
     public Response refreshToken(String refreshToken) throws RuntimeException {
 
-        Client client = ClientBuilder.newClient();
-
-        Form requestBody = new Form()
-                .param("grant_type", "refresh_token")
-                .param("client_id", TOKEN_REST_CLIENT_ID)
-                .param("refresh_token", refreshToken);
+        Form requestBody = tokenRefreshForm(refreshToken);
 
         try {
-            return client.target(AUTH_SERVER_URL + REALM + TOKEN_REQUEST_ENDPOINT)
-                    .request()
+            return keycloakHttpClient.call(() -> keycloakHttpClient.request(keycloakHttpClient.getTokenRefreshTarget(), Operation.TOKEN)
                     .header(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
                     .accept("application/json")
-                    .post(Entity.form(requestBody));
+                    .post(Entity.form(requestBody)));
         } catch (Exception e) {
             throw new RuntimeException("Failed to refresh token: " + e.getMessage());
         }
@@ -116,19 +111,13 @@ public class KeycloakService {
      */
     public Response validateToken(String token) throws RuntimeException{
 
-        Client client = ClientBuilder.newClient();
-
-        Form requestBody = new Form()
-                .param("token", token)
-                .param("client_id", GENERIC_REST_CLIENT_ID)
-                .param("client_secret", GENERIC_REST_CLIENT_SECRET);
+        Form requestBody = introspectionForm(token);
 
         try {
-            return client.target(AUTH_SERVER_URL + REALM + TOKEN_VALIDATION_ENDPOINT)
-                    .request()
+            return keycloakHttpClient.call(() -> keycloakHttpClient.request(keycloakHttpClient.getTokenIntrospectionTarget(), Operation.INTROSPECTION)
                     .header(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
                     .accept("application/json")
-                    .post(Entity.form(requestBody));
+                    .post(Entity.form(requestBody)));
         }
         catch (Exception e) {
             throw new RuntimeException("Failed to validate token: " + e.getMessage());
@@ -143,41 +132,18 @@ public class KeycloakService {
      */
     public Response createUser(UserCreationRequestDTO userCreationRequestDTO) throws RuntimeException {
 
-        JSONObject requestBody = new JSONObject()
-                .put("username", userCreationRequestDTO.getUsername())
-                .put("enabled", true)
-                .put("email", userCreationRequestDTO.getEmail())
-                .put("firstName", userCreationRequestDTO.getFirstName())
-                .put("lastName", userCreationRequestDTO.getLastName())
-                .put("credentials", new ArrayList<>() {{
-                    add(new JSONObject()
-                            .put("type", "password")
-                            .put("value", userCreationRequestDTO.getPassword())
-                            .put("temporary", false));
-                }});
-
-        Client client = ClientBuilder.newClient();
+        JSONObject requestBody = userCreationBody(userCreationRequestDTO);
 
         try {
-            try (Response response = client.target(AUTH_SERVER_URL + USER_CREATION_ENDPOINT)
-                    .request()
+            String highLevelPermissionToken = getHighLevelPermissionToken();
+
+            try (Response response = keycloakHttpClient.call(() -> keycloakHttpClient.request(keycloakHttpClient.getUserCreationTarget(), Operation.ADMIN)
                     .header(HttpHeaders.CONTENT_TYPE, "application/json")
-                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + getHighLevelPermissionToken())
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + highLevelPermissionToken)
                     .accept("application/json")
-                    .post(Entity.json(requestBody))) {
-
-
-                if (response.getStatus() == 201) {
-                    return Response.status(response.getStatus()).entity(response.getEntity()).build();
-                } else if (response.getStatus() == 409) {
-                    log.warn("User {} already exists", userCreationRequestDTO.getUsername());
-                    return Response.status(Response.Status.CONFLICT)
-                            .entity("User with the given username or email already exists.")
-                            .build();
-                } else {
-                    log.error("{} {}", response.getStatus(), response.readEntity(String.class));
-                    throw new RuntimeException("Failed to create user. Status code: " + response.getStatus());
-                }
+                    .post(Entity.json(requestBody.toString())))) {
+
+                return toUserCreationResponse(response, userCreationRequestDTO);
             }
         } catch (Exception e) {
             throw new RuntimeException("Failed to create user: " + e.getMessage());
@@ -192,37 +158,16 @@ public class KeycloakService {
      */
     public Response updateUserInfo(UserInfoUpdateRequestDTO userInfoUpdateRequestDTO) throws RuntimeException {
 
-        JSONObject requestBody = new JSONObject();
-
-        if (userInfoUpdateRequestDTO.getUserId() == null || userInfoUpdateRequestDTO.getToken() == null) {
-            throw new IllegalArgumentException("User ID and Token must not be null");
-        }
-
-        if (userInfoUpdateRequestDTO.getEmail() != null)
-            requestBody.put("email", userInfoUpdateRequestDTO.getEmail());
-
-        if (userInfoUpdateRequestDTO.getFirstName() != null)
-            requestBody.put("firstName", userInfoUpdateRequestDTO.getFirstName());
-
-        if (userInfoUpdateRequestDTO.getLastName() != null)
-            requestBody.put("lastName", userInfoUpdateRequestDTO.getLastName());
-
-        Client client = ClientBuilder.newClient();
+        JSONObject requestBody = userInfoUpdateBody(userInfoUpdateRequestDTO);
 
         try {
-            try (Response response = client.target(AUTH_SERVER_URL + USER_INFO_UPDATE_ENDPOINT + "/" + userInfoUpdateRequestDTO.getUserId())
-                    .request()
+            try (Response response = keycloakHttpClient.call(() -> keycloakHttpClient.request(keycloakHttpClient.getUserInfoUpdateTarget().path(userInfoUpdateRequestDTO.getUserId()), Operation.ADMIN)
                     .header(HttpHeaders.CONTENT_TYPE, "application/json")
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + userInfoUpdateRequestDTO.getToken())
                     .accept("application/json")
-                    .put(Entity.json(requestBody))) {
-
-                if (response.getStatus() == Response.Status.NO_CONTENT.getStatusCode()) {
-                    return Response.status(response.getStatus()).entity(response.getEntity()).build();
-                } else {
-                    log.error("{} {}", response.getStatus(), response.readEntity(String.class));
-                    throw new RuntimeException("Failed to update the user. Status code: " + response.getStatus());
-                }
+                    .put(Entity.json(requestBody.toString())))) {
+
+                return toUserInfoUpdateResponse(response, userInfoUpdateRequestDTO);
             }
         } catch (Exception e) {
             throw new RuntimeException("Failed to update the user: " + e.getMessage());
@@ -249,26 +194,16 @@ public class KeycloakService {
      * @throws RuntimeException if an error occurs during the update
      */
     public Response updateUserPassword(final String username, final String newPassword, final String userId) throws RuntimeException {
-        JSONObject requestBody = new JSONObject()
-                .put("type", "password")
-                .put("value", newPassword)
-                .put("temporary", false);
-
-        Client client = ClientBuilder.newClient();
+        JSONObject requestBody = passwordCredentialBody(newPassword);
 
         try {
-            return client.target(String.format(
-                    "%s%s/%s%s",
-                    AUTH_SERVER_URL,
-                    USER_PASSWORD_UPDATE_ENDPOINT_FIRST,
-                    userId,
-                    USER_PASSWORD_UPDATE_ENDPOINT_SECOND)
-            )
-                    .request()
+            String highLevelPermissionToken = getHighLevelPermissionToken();
+
+            return keycloakHttpClient.call(() -> keycloakHttpClient.request(keycloakHttpClient.getUserPasswordUpdateTarget().path(userId).path(USER_PASSWORD_UPDATE_ENDPOINT_SECOND), Operation.ADMIN)
                     .header(HttpHeaders.CONTENT_TYPE, "application/json")
-                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + getHighLevelPermissionToken())
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + highLevelPermissionToken)
                     .accept("application/json")
-                    .put(Entity.json(requestBody));
+                    .put(Entity.json(requestBody.toString())));
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to update the user password: " + e.getMessage());
@@ -313,177 +248,386 @@ public class KeycloakService {
      * @return a token with high level permissions
      * @throws RuntimeException if an error occurs during the token request
      */
-    private String getHighLevelPermissionToken() {
+    private String getHighLevelPermissionToken() throws RuntimeException {
+        return adminTokenManager.getToken();
+    }
+
+    /**
+     * Get the user data from Keycloak using a specified query param. The value must match exactly.
+     * This method uses a high level permission token. It mustn't be called directly in any publicly exposed rest endpoints!
+     * @param queryParam key value pair (e.g.: "username": "<username of the user>")
+     * @return the user. If no user is found, it returns an empty UserEntity
+     * @throws RuntimeException if an error occurs during the request
+     */
+    public UserEntity getUserByValue(Pair<String> queryParam) throws RuntimeException {
+        return keycloakUserDirectory.find(queryParam).orElseGet(UserEntity::new);
+    }
+
+    /**
+     * Validates the authorization token and returns the token validation response DTO
+     * @param authorizationHeader Authorization header with Bearer JWT_TOKEN
+     * @return TokenValidationResponseDTO containing the result of token validation
+     * @throws WebApplicationException if the authorization header is missing or invalid, or if token validation fails
+     */
+    public TokenValidationResponseDTO validateTokenAndGetResponse(String authorizationHeader) {
+        log.debug("Authorization header: {}", authorizationHeader);
 
-        if (cachedHighLevelPermissionToken != null &&
-                highLevelPermissionTokenExpiry == null &&
-                Instant.now().isAfter(highLevelPermissionTokenExpiry.minusSeconds(HIGH_LEVEL_PERMISSION_TOKEN_DURATION_IN_SECONDS))) {
-            return cachedHighLevelPermissionToken;
+        if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
+            log.warn("Missing or invalid Authorization header");
+            throw new WebApplicationException("Unauthorized", Response.Status.UNAUTHORIZED);
         }
 
-        Form requestBody = new Form()
-                .param("grant_type", "password")
-                .param("client_id", TOKEN_REST_CLIENT_ID)
-                .param("username", HIGH_LEVEL_PERMISSION_USERNAME)
-                .param("password", HIGH_LEVEL_PERMISSION_PASSWORD);
+        String token = authorizationHeader.substring("Bearer ".length()).trim();
 
-        Client client = ClientBuilder.newClient();
+        TokenValidationResponseDTO tokenValidationResponseDTO = isLocallyVerifiable(token)
+                ? jwtVerificationService.verify(token).map(TokenValidationResponseDTO::new).orElseGet(() -> new TokenValidationResponseDTO(false))
+                : tokenIntrospectionCache.get(token, this::introspectTokenCoalesced);
+        log.debug("Token validation result: {}", tokenValidationResponseDTO.isTokenValid());
 
-        try {
-            try (Response response = client.target(AUTH_SERVER_URL + REALM + TOKEN_REQUEST_ENDPOINT)
-                    .request()
-                    .header(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
-                    .accept("application/json")
-                    .post(Entity.form(requestBody))) {
-
-                if (response.getStatus() == 200) {
-                    JSONObject jsonResponse = new JSONObject(response.readEntity(String.class));
-                    return jsonResponse.get("access_token").toString();
-                } else {
-                    throw new RuntimeException("Failed to obtain token: Status code: " + response.getStatus());
-                }
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to obtain token: " + e.getMessage());
+        if (!tokenValidationResponseDTO.isTokenValid()) {
+            log.warn("Token validation failed or token is invalid");
+            throw new WebApplicationException("Unauthorized", Response.Status.UNAUTHORIZED);
         }
+
+        return tokenValidationResponseDTO;
     }
 
     /**
-     * Get user information from Keycloak. It might return more than one user since it checks if the parameter
-     * passed as argument is contained in all the usernames.
-     * Beware this method uses a high level permission token. It mustn't be called from rest endpoints.
-     * @param queryParam key value pair (e.g.: "username": "<username of the user>")
-     * @return a Response containing the user information. The body of the response is a JSON array
-     * @throws RuntimeException if an error occurs during the request
+     * Checks if the token must be verified offline against the realm JWKS instead of being introspected.
+     * In "local" mode opaque tokens are still introspected, unless keycloak.token-introspection-fallback is disabled.
+     * @param token the bearer token
+     * @return true if the token has to be verified locally
      */
-    private Response getUserInfo(Pair<String> queryParam) throws RuntimeException {
-        Client client = ClientBuilder.newClient();
-
-        try {
-            return client.target(String.format("%s%s?%s=%s", AUTH_SERVER_URL, USER_INFO_ENDPOINT, queryParam.getLeft(), queryParam.getRight()))
-                    .request()
-                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + getHighLevelPermissionToken())
-                    .accept("application/json")
-                    .get();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to obtain user info: " + e.getMessage());
+    private boolean isLocallyVerifiable(String token) {
+        if (!"local".equalsIgnoreCase(TOKEN_VERIFICATION_MODE)) {
+            return false;
         }
+
+        return JwtVerificationService.isJwt(token) || !TOKEN_INTROSPECTION_FALLBACK;
     }
 
     /**
-     * Get the user id from Keycloak.
-     * This method uses a high level permission token. It mustn't be called directly in any publicly exposed rest endpoints!
-     * @param queryParam key value pair (e.g.: "username": "<username of the user>")
-     * @return the user id. If no user is found, it returns null
-     * @throws RuntimeException if an error occurs during the request
+     * Introspects the token, sharing the outstanding introspection request with concurrent callers for the same token
+     * @param token the token to validate
+     * @return TokenValidationResponseDTO containing the result of the introspection
+     * @throws RuntimeException if an error occurs during the validation
      */
-    private String getUserId(Pair<String> queryParam) throws RuntimeException {
-        try {
-            Response response = getUserInfo(queryParam);
-            JSONArray jsonArrayResponse = new JSONArray(response.readEntity(String.class));
-
-            for (int i = 0; i < jsonArrayResponse.length(); ++i) {
-                JSONObject jsonObject = jsonArrayResponse.getJSONObject(i);
-                if (jsonObject.getString(queryParam.getLeft()).equals(queryParam.getRight())) {
-                    return jsonObject.getString("id");
-                }
+    private TokenValidationResponseDTO introspectTokenCoalesced(String token) throws RuntimeException {
+        return introspectionFlights.executeBlocking(HashUtil.sha256UrlFriendly(token), () -> introspectToken(token));
+    }
+
+    /**
+     * Validates a token through the Keycloak introspection endpoint
+     * @param token the token to validate
+     * @return TokenValidationResponseDTO containing the result of the introspection
+     * @throws RuntimeException if an error occurs during the validation, or if Keycloak does not answer with 200
+     */
+    private TokenValidationResponseDTO introspectToken(String token) throws RuntimeException {
+        try (Response validateTokenResponse = validateToken(token)) {
+
+            if (validateTokenResponse.getStatus() != 200) {
+                throw new RuntimeException("Failed to validate token: Status code: " + validateTokenResponse.getStatus());
             }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to obtain user id: " + e.getMessage());
+            return new TokenValidationResponseDTO(validateTokenResponse);
         }
-
-        return null;
     }
 
     /**
-     * Get the user data from Keycloak using a specified query param.
-     * This method uses a high level permission token. It mustn't be called directly in any publicly exposed rest endpoints!
-     * @param queryParam key value pair (e.g.: "username": "<username of the user>")
-     * @return the user id. If no user is found, it returns null
+     * Gets the keycloak uuid of a user. Be aware this method uses high level permission for this query.
+     * @param userEmail email of the user
+     * @return id of the user in String form
      * @throws RuntimeException if an error occurs during the request
      */
-    public UserEntity getUserByValue(Pair<String> queryParam) throws RuntimeException {
-        try {
-            Response response = getUserInfo(queryParam);
-            JSONArray jsonArrayResponse = new JSONArray(response.readEntity(String.class));
-
-            for (int i = 0; i < jsonArrayResponse.length(); ++i) {
-                JSONObject jsonObject = jsonArrayResponse.getJSONObject(i);
-                if (jsonObject.getString(queryParam.getLeft()).equals(queryParam.getRight())) {
-                    return new UserEntity(jsonObject);
-                }
-            }
+    public String getUserIdFromEmail(final String userEmail) throws RuntimeException {
+        return keycloakUserDirectory.findByEmail(userEmail).map(UserEntity::getId).orElse(null);
+    }
 
-            return new UserEntity();
+    // Non-blocking variants: the calling thread is not held while waiting for Keycloak
 
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to obtain user id: " + e.getMessage());
-        }
+    /**
+     * Non-blocking variant of requestToken
+     * @param authenticationRequestDTO the authentication request
+     * @return a Uni emitting the Response containing the token
+     */
+    public Uni<Response> requestTokenAsync(AuthenticationRequestDTO authenticationRequestDTO) {
+        Form requestBody = tokenRequestForm(authenticationRequestDTO.getUsername(), authenticationRequestDTO.getPassword());
+
+        return keycloakHttpClient.callAsync(() -> keycloakHttpClient.request(keycloakHttpClient.getTokenRequestTarget(), Operation.TOKEN)
+                        .header(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+                        .accept("application/json")
+                        .rx(UniInvoker.class)
+                        .post(Entity.form(requestBody)))
+                .onFailure().transform(e -> new RuntimeException("Failed to obtain token: " + e.getMessage()));
     }
 
+    /**
+     * Non-blocking variant of refreshToken
+     * @param refreshToken the refresh token
+     * @return a Uni emitting the Response containing the new token
+     */
+    public Uni<Response> refreshTokenAsync(String refreshToken) {
+        Form requestBody = tokenRefreshForm(refreshToken);
+
+        return keycloakHttpClient.callAsync(() -> keycloakHttpClient.request(keycloakHttpClient.getTokenRefreshTarget(), Operation.TOKEN)
+                        .header(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+                        .accept("application/json")
+                        .rx(UniInvoker.class)
+                        .post(Entity.form(requestBody)))
+                .onFailure().transform(e -> new RuntimeException("Failed to refresh token: " + e.getMessage()));
+    }
 
+    /**
+     * Non-blocking variant of validateToken
+     * @param token the token to validate
+     * @return a Uni emitting the Response containing the result of the validation
+     */
+    public Uni<Response> validateTokenAsync(String token) {
+        Form requestBody = introspectionForm(token);
+
+        return keycloakHttpClient.callAsync(() -> keycloakHttpClient.request(keycloakHttpClient.getTokenIntrospectionTarget(), Operation.INTROSPECTION)
+                        .header(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+                        .accept("application/json")
+                        .rx(UniInvoker.class)
+                        .post(Entity.form(requestBody)))
+                .onFailure().transform(e -> new RuntimeException("Failed to validate token: " + e.getMessage()));
+    }
 
     /**
-     * Validates the authorization token and returns the token validation response DTO
-     * @param authorizationHeader Authorization header with Bearer JWT_TOKEN
-     * @return TokenValidationResponseDTO containing the result of token validation
-     * @throws WebApplicationException if the authorization header is missing or invalid, or if token validation fails
+     * Non-blocking variant of createUser
+     * @param userCreationRequestDTO the user creation request
+     * @return a Uni emitting the Response containing the result of the user creation
      */
-    public TokenValidationResponseDTO validateTokenAndGetResponse(String authorizationHeader) {
-        log.debug("Authorization header: {}", authorizationHeader);
+    public Uni<Response> createUserAsync(UserCreationRequestDTO userCreationRequestDTO) {
+        JSONObject requestBody = userCreationBody(userCreationRequestDTO);
+
+        return getHighLevelPermissionTokenAsync()
+                .onItem().transformToUni(highLevelPermissionToken -> keycloakHttpClient.callAsync(() -> keycloakHttpClient.request(keycloakHttpClient.getUserCreationTarget(), Operation.ADMIN)
+                        .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + highLevelPermissionToken)
+                        .accept("application/json")
+                        .rx(UniInvoker.class)
+                        .post(Entity.json(requestBody.toString()))))
+                .map(response -> {
+                    try (response) {
+                        return toUserCreationResponse(response, userCreationRequestDTO);
+                    }
+                })
+                .onFailure().transform(e -> new RuntimeException("Failed to create user: " + e.getMessage()));
+    }
 
+    /**
+     * Non-blocking variant of updateUserInfo
+     * @param userInfoUpdateRequestDTO the user information update request
+     * @return a Uni emitting the Response containing the result of the user information update
+     */
+    public Uni<Response> updateUserInfoAsync(UserInfoUpdateRequestDTO userInfoUpdateRequestDTO) {
+        return Uni.createFrom().item(() -> userInfoUpdateBody(userInfoUpdateRequestDTO))
+                .onItem().transformToUni(requestBody -> keycloakHttpClient.callAsync(() -> keycloakHttpClient.request(keycloakHttpClient.getUserInfoUpdateTarget().path(userInfoUpdateRequestDTO.getUserId()), Operation.ADMIN)
+                        .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + userInfoUpdateRequestDTO.getToken())
+                        .accept("application/json")
+                        .rx(UniInvoker.class)
+                        .put(Entity.json(requestBody.toString()))))
+                .map(response -> {
+                    try (response) {
+                        return toUserInfoUpdateResponse(response, userInfoUpdateRequestDTO);
+                    }
+                })
+                .onFailure().transform(e -> new RuntimeException("Failed to update the user: " + e.getMessage()));
+    }
+
+    /**
+     * Non-blocking variant of updateUserPassword. Only an admin token owner may perform this operation
+     * @param newPassword new password to set for the user
+     * @param userId keycloak Id of the user
+     * @return a Uni emitting the Response containing the result of the user password update
+     */
+    public Uni<Response> updateUserPasswordAsync(final String newPassword, final String userId) {
+        JSONObject requestBody = passwordCredentialBody(newPassword);
+
+        return getHighLevelPermissionTokenAsync()
+                .onItem().transformToUni(highLevelPermissionToken -> keycloakHttpClient.callAsync(() -> keycloakHttpClient.request(keycloakHttpClient.getUserPasswordUpdateTarget().path(userId).path(USER_PASSWORD_UPDATE_ENDPOINT_SECOND), Operation.ADMIN)
+                        .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + highLevelPermissionToken)
+                        .accept("application/json")
+                        .rx(UniInvoker.class)
+                        .put(Entity.json(requestBody.toString()))))
+                .onFailure().transform(e -> new RuntimeException("Failed to update the user password: " + e.getMessage()));
+    }
+
+    /**
+     * Non-blocking variant of updateUserPasswordRequest
+     * @param userPasswordUpdateRequestDTO the user password update request
+     * @return a Uni emitting the Response containing the result of the user password update
+     */
+    public Uni<Response> updateUserPasswordRequestAsync(UserPasswordUpdateRequestDTO userPasswordUpdateRequestDTO) {
+        AuthenticationRequestDTO authenticationRequestDTO = new AuthenticationRequestDTO();
+        authenticationRequestDTO.setUsername(userPasswordUpdateRequestDTO.getUsername());
+        authenticationRequestDTO.setPassword(userPasswordUpdateRequestDTO.getOldPassword());
+
+        return requestTokenAsync(authenticationRequestDTO)
+                .onItem().transformToUni(tokenValidationResponse -> {
+                    if (tokenValidationResponse.getStatus() != 200)
+                        return Uni.createFrom().item(tokenValidationResponse);
+
+                    return updateUserPasswordAsync(userPasswordUpdateRequestDTO.getNewPassword(), userPasswordUpdateRequestDTO.getUserId());
+                });
+    }
+
+    /**
+     * Non-blocking variant of validateTokenAndGetResponse
+     * @param authorizationHeader Authorization header with Bearer JWT_TOKEN
+     * @return a Uni emitting the TokenValidationResponseDTO, or failing with WebApplicationException if the
+     * authorization header is missing or invalid, or if token validation fails
+     */
+    public Uni<TokenValidationResponseDTO> validateTokenAndGetResponseAsync(String authorizationHeader) {
         if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
             log.warn("Missing or invalid Authorization header");
-            throw new WebApplicationException("Unauthorized", Response.Status.UNAUTHORIZED);
+            return Uni.createFrom().failure(new WebApplicationException("Unauthorized", Response.Status.UNAUTHORIZED));
         }
 
-        Response validateTokenResponse = validateToken(authorizationHeader.substring("Bearer ".length()).trim());
+        String token = authorizationHeader.substring("Bearer ".length()).trim();
 
-        TokenValidationResponseDTO tokenValidationResponseDTO = new TokenValidationResponseDTO(validateTokenResponse);
-        log.debug("Token validation result: {}", tokenValidationResponseDTO.isTokenValid());
+        Uni<TokenValidationResponseDTO> tokenValidation = isLocallyVerifiable(token)
+                ? jwtVerificationService.verifyAsync(token).map(claims -> claims.map(TokenValidationResponseDTO::new).orElseGet(() -> new TokenValidationResponseDTO(false)))
+                : introspectTokenCachedAsync(token);
 
-        if (validateTokenResponse.getStatus() != 200 || !tokenValidationResponseDTO.isTokenValid()) {
-            log.warn("Token validation failed or token is invalid");
-            throw new WebApplicationException("Unauthorized", Response.Status.UNAUTHORIZED);
+        return tokenValidation.onItem().transform(tokenValidationResponseDTO -> {
+            log.debug("Token validation result: {}", tokenValidationResponseDTO.isTokenValid());
+
+            if (!tokenValidationResponseDTO.isTokenValid()) {
+                log.warn("Token validation failed or token is invalid");
+                throw new WebApplicationException("Unauthorized", Response.Status.UNAUTHORIZED);
+            }
+
+            return tokenValidationResponseDTO;
+        });
+    }
+
+    /**
+     * Non-blocking introspection going through the introspection cache and sharing the outstanding request
+     * with concurrent callers (blocking or not) for the same token
+     * @param token the token to validate
+     * @return a Uni emitting the result of the introspection, or failing if Keycloak does not answer with 200.
+     * Failures are not cached
+     */
+    private Uni<TokenValidationResponseDTO> introspectTokenCachedAsync(String token) {
+        TokenValidationResponseDTO cached = tokenIntrospectionCache.getIfPresent(token);
+        if (cached != null) {
+            return Uni.createFrom().item(cached);
         }
 
-        return tokenValidationResponseDTO;
+        return Uni.createFrom().completionStage(() -> introspectionFlights.execute(HashUtil.sha256UrlFriendly(token),
+                        () -> validateTokenAsync(token)
+                                .map(validateTokenResponse -> {
+                                    try (validateTokenResponse) {
+                                        if (validateTokenResponse.getStatus() != 200) {
+                                            throw new RuntimeException("Failed to validate token: Status code: " + validateTokenResponse.getStatus());
+                                        }
+                                        return new TokenValidationResponseDTO(validateTokenResponse);
+                                    }
+                                })
+                                .subscribeAsCompletionStage()))
+                .invoke(tokenValidationResponseDTO -> tokenIntrospectionCache.put(token, tokenValidationResponseDTO));
     }
 
     /**
-     * Gets the keycloak uuid of a user. Be aware this method uses high level permission for this query.
-     * @param userEmail email of the user
-     * @return id of the user in String form
-     * @throws RuntimeException if an error occurs during the request
+     * Non-blocking variant of getHighLevelPermissionToken.
+     * !!! Under no circumstances, this method must not be callable directly from rest endpoints !!!
+     * @return a Uni emitting a token with high level permissions
      */
-    public String getUserIdFromEmail(final String userEmail) throws RuntimeException {
+    private Uni<String> getHighLevelPermissionTokenAsync() {
+        return adminTokenManager.getTokenAsync();
+    }
 
-        // TODO: use getUserInfo instead of creating a client
+    // Request bodies and response mappings shared by the blocking and the non-blocking variants
 
-        Client client = ClientBuilder.newClient();
+    private Form tokenRequestForm(String username, String password) {
+        return new Form()
+                .param("grant_type", "password")
+                .param("client_id", TOKEN_REST_CLIENT_ID)
+                .param("username", username)
+                .param("password", password);
+    }
 
-        try {
-            Response response = client.target(String.format("%s%s?%s=%s", AUTH_SERVER_URL, USER_INFO_ENDPOINT, "email", userEmail))
-                    .request()
-                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + getHighLevelPermissionToken())
-                    .accept("application/json")
-                    .get();
+    private Form tokenRefreshForm(String refreshToken) {
+        return new Form()
+                .param("grant_type", "refresh_token")
+                .param("client_id", TOKEN_REST_CLIENT_ID)
+                .param("refresh_token", refreshToken);
+    }
 
-            JSONArray jsonResponse = null;
-            if (response.getStatus() == 200 || response.getStatus() == 204) {
-                jsonResponse = new JSONArray(response.readEntity(String.class));
-            }
+    private Form introspectionForm(String token) {
+        return new Form()
+                .param("token", token)
+                .param("client_id", GENERIC_REST_CLIENT_ID)
+                .param("client_secret", GENERIC_REST_CLIENT_SECRET);
+    }
 
-            if (jsonResponse != null) {
-                return jsonResponse.getJSONObject(0).getString("id");
-            }
+    private JSONObject userCreationBody(UserCreationRequestDTO userCreationRequestDTO) {
+        return new JSONObject()
+                .put("username", userCreationRequestDTO.getUsername())
+                .put("enabled", true)
+                .put("email", userCreationRequestDTO.getEmail())
+                .put("firstName", userCreationRequestDTO.getFirstName())
+                .put("lastName", userCreationRequestDTO.getLastName())
+                .put("credentials", new ArrayList<>() {{
+                    add(passwordCredentialBody(userCreationRequestDTO.getPassword()));
+                }});
+    }
 
-            return null;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to obtain user info: " + e.getMessage());
+    private JSONObject userInfoUpdateBody(UserInfoUpdateRequestDTO userInfoUpdateRequestDTO) throws IllegalArgumentException {
+        JSONObject requestBody = new JSONObject();
+
+        if (userInfoUpdateRequestDTO.getUserId() == null || userInfoUpdateRequestDTO.getToken() == null) {
+            throw new IllegalArgumentException("User ID and Token must not be null");
         }
+
+        if (userInfoUpdateRequestDTO.getEmail() != null)
+            requestBody.put("email", userInfoUpdateRequestDTO.getEmail());
+
+        if (userInfoUpdateRequestDTO.getFirstName() != null)
+            requestBody.put("firstName", userInfoUpdateRequestDTO.getFirstName());
+
+        if (userInfoUpdateRequestDTO.getLastName() != null)
+            requestBody.put("lastName", userInfoUpdateRequestDTO.getLastName());
+
+        return requestBody;
     }
 
+    private JSONObject passwordCredentialBody(String password) {
+        return new JSONObject()
+                .put("type", "password")
+                .put("value", password)
+                .put("temporary", false);
+    }
+
+    private Response toUserCreationResponse(Response response, UserCreationRequestDTO userCreationRequestDTO) throws RuntimeException {
+        if (response.getStatus() == 201) {
+            // Unknown email/username lookups may have been cached before the creation
+            keycloakUserDirectory.invalidateLookup("email", userCreationRequestDTO.getEmail());
+            keycloakUserDirectory.invalidateLookup("username", userCreationRequestDTO.getUsername());
+            return Response.status(response.getStatus()).entity(response.getEntity()).build();
+        } else if (response.getStatus() == 409) {
+            log.warn("User {} already exists", userCreationRequestDTO.getUsername());
+            return Response.status(Response.Status.CONFLICT)
+                    .entity("User with the given username or email already exists.")
+                    .build();
+        } else {
+            log.error("{} {}", response.getStatus(), response.readEntity(String.class));
+            throw new RuntimeException("Failed to create user. Status code: " + response.getStatus());
+        }
+    }
 
-}
\ No newline at end of file
+    private Response toUserInfoUpdateResponse(Response response, UserInfoUpdateRequestDTO userInfoUpdateRequestDTO) throws RuntimeException {
+        if (response.getStatus() == Response.Status.NO_CONTENT.getStatusCode()) {
+            keycloakUserDirectory.invalidateUser(userInfoUpdateRequestDTO.getUserId());
+            keycloakUserDirectory.invalidateLookup("email", userInfoUpdateRequestDTO.getEmail());
+            return Response.status(response.getStatus()).entity(response.getEntity()).build();
+        } else {
+            log.error("{} {}", response.getStatus(), response.readEntity(String.class));
+            throw new RuntimeException("Failed to update the user. Status code: " + response.getStatus());
+        }
+    }
+}
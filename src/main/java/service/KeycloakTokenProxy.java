@@ -0,0 +1,85 @@
+package service;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Forwards the token request and refresh grants to Keycloak without materializing the response: the caller gets the
+ * Keycloak response as a stream of buffers, to be piped (or transformed chunk by chunk) to the client.
+ * The form body is encoded straight into a buffer, without intermediate Form/Entity objects. The requests go through
+ * the streaming client of KeycloakHttpClient, with the permits, timeouts and metrics of all the Keycloak calls.
+ */
+@Slf4j
+@ApplicationScoped
+public class KeycloakTokenProxy {
+
+    // Configuration parameters
+    private final String AUTH_SERVER_URL = ConfigProvider.getConfig().getValue("keycloak.auth-server-url", String.class);
+    private final String REALM = ConfigProvider.getConfig().getValue("keycloak.realm", String.class);
+    private final String TOKEN_REQUEST_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.token-request-endpoint", String.class);
+    private final String TOKEN_REFRESH_ENDPOINT = ConfigProvider.getConfig().getValue("keycloak.token-refresh-endpoint", String.class);
+    private final String TOKEN_REST_CLIENT_ID = ConfigProvider.getConfig().getValue("keycloak.token-rest-client.resource", String.class);
+
+    @Inject
+    KeycloakHttpClient keycloakHttpClient;
+
+    /**
+     * Performs the password grant
+     * @param username the username of the user
+     * @param password the password of the user
+     * @return a future completed with the Keycloak response, whose body has not been read yet
+     */
+    public Future<HttpClientResponse> requestToken(String username, String password) {
+        Buffer requestBody = Buffer.buffer(256);
+        appendFormParam(requestBody, "grant_type", "password");
+        appendFormParam(requestBody, "client_id", TOKEN_REST_CLIENT_ID);
+        appendFormParam(requestBody, "username", username);
+        appendFormParam(requestBody, "password", password);
+
+        return post(AUTH_SERVER_URL + REALM + TOKEN_REQUEST_ENDPOINT, requestBody);
+    }
+
+    /**
+     * Performs the refresh token grant
+     * @param refreshToken the refresh token
+     * @return a future completed with the Keycloak response, whose body has not been read yet
+     */
+    public Future<HttpClientResponse> refreshToken(String refreshToken) {
+        Buffer requestBody = Buffer.buffer(refreshToken == null ? 64 : refreshToken.length() + 64);
+        appendFormParam(requestBody, "grant_type", "refresh_token");
+        appendFormParam(requestBody, "client_id", TOKEN_REST_CLIENT_ID);
+        appendFormParam(requestBody, "refresh_token", refreshToken);
+
+        return post(AUTH_SERVER_URL + REALM + TOKEN_REFRESH_ENDPOINT, requestBody);
+    }
+
+    private Future<HttpClientResponse> post(String absoluteUri, Buffer requestBody) {
+        RequestOptions requestOptions = new RequestOptions()
+                .setMethod(HttpMethod.POST)
+                .setAbsoluteURI(absoluteUri)
+                .putHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+                .putHeader(HttpHeaders.ACCEPT, "application/json");
+
+        return keycloakHttpClient.stream(requestOptions, KeycloakHttpClient.Operation.TOKEN, requestBody);
+    }
+
+    private static void appendFormParam(Buffer buffer, String name, String value) {
+        if (buffer.length() > 0) {
+            buffer.appendByte((byte) '&');
+        }
+        buffer.appendString(name)
+                .appendByte((byte) '=')
+                .appendString(value == null ? "" : URLEncoder.encode(value, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,331 @@
+package service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.util.Pair;
+import org.eclipse.microprofile.config.ConfigProvider;
+import repository.model.UserEntity;
+import service.KeycloakHttpClient.Operation;
+import utils.SingleFlight;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Read-through directory of the Keycloak users.
+ * Users are looked up with exact-match queries on the admin users endpoint and kept for a short ttl, indexed by id
+ * and by the looked up attribute (email, username, ...). Lookups that find no user are cached too, for their own
+ * ttl, so that repeated requests for unknown emails do not reach Keycloak. Concurrent misses for the same lookup
+ * share one request.
+ * Each invalidation stamps the lookup key or user id with a clock value: a lookup only caches its result if neither
+ * its key nor the id it found was invalidated since it started, so a lookup racing a user creation or update can't
+ * cache the outdated user or absence of user.
+ * This class uses a high level permission token. It mustn't be called directly in any publicly exposed rest endpoints!
+ */
+@Slf4j
+@ApplicationScoped
+public class KeycloakUserDirectory {
+
+    // Configuration parameters
+    private final boolean ENABLED = ConfigProvider.getConfig().getValue("keycloak.user-directory.enabled", Boolean.class);
+    private final long MAX_SIZE = ConfigProvider.getConfig().getValue("keycloak.user-directory.max-size", Long.class);
+    private final long TTL_SECONDS = ConfigProvider.getConfig().getValue("keycloak.user-directory.ttl-seconds", Long.class);
+    private final long NEGATIVE_TTL_SECONDS = ConfigProvider.getConfig().getValue("keycloak.user-directory.negative-ttl-seconds", Long.class);
+
+    private static final String USERS_CACHE_NAME = "keycloak-users";
+    private static final String LOOKUPS_CACHE_NAME = "keycloak-user-lookups";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // Keys sharing a stripe share their invalidation stamp: a collision only leaves a lookup result uncached
+    private static final int INVALIDATION_STRIPES = 1024;
+
+    @Inject
+    KeycloakHttpClient keycloakHttpClient;
+
+    @Inject
+    AdminTokenManager adminTokenManager;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private Cache<String, UserEntity> usersById;
+    // Lookup key ("attribute=value") -> user id, empty if no user matches
+    private Cache<String, Optional<String>> userIdsByLookup;
+    // User id -> lookup keys cached for it, so that the lookups of a user are dropped without scanning the cache
+    private final ConcurrentHashMap<String, Set<String>> lookupKeysByUserId = new ConcurrentHashMap<>();
+    private final SingleFlight<String, Optional<UserEntity>> lookupFlights = new SingleFlight<>();
+    private final AtomicLong invalidationClock = new AtomicLong();
+    // Clock value of the last invalidation of the lookup keys and user ids of each stripe
+    private final AtomicLongArray invalidatedAt = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    @PostConstruct
+    void init() {
+        usersById = Caffeine.newBuilder()
+                .maximumSize(MAX_SIZE)
+                .expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+
+        userIdsByLookup = Caffeine.newBuilder()
+                .maximumSize(MAX_SIZE)
+                .expireAfter(new LookupExpiry())
+                .removalListener(this::unindexLookup)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, USERS_CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, userIdsByLookup, LOOKUPS_CACHE_NAME);
+    }
+
+    /**
+     * Finds the user whose email is exactly the given one
+     * @param email the email of the user
+     * @return the user, or an empty Optional if no user has such email
+     * @throws RuntimeException if an error occurs during the request
+     */
+    public Optional<UserEntity> findByEmail(String email) throws RuntimeException {
+        return find(new Pair<>("email", email));
+    }
+
+    /**
+     * Finds the user whose username is exactly the given one
+     * @param username the username of the user
+     * @return the user, or an empty Optional if no user has such username
+     * @throws RuntimeException if an error occurs during the request
+     */
+    public Optional<UserEntity> findByUsername(String username) throws RuntimeException {
+        return find(new Pair<>("username", username));
+    }
+
+    /**
+     * Finds the user whose attribute is exactly the given value
+     * @param queryParam key value pair (e.g.: "username": "<username of the user>")
+     * @return the user, or an empty Optional if no user matches
+     * @throws RuntimeException if an error occurs during the request
+     */
+    public Optional<UserEntity> find(Pair<String> queryParam) throws RuntimeException {
+        if (queryParam.getRight() == null) {
+            return Optional.empty();
+        }
+
+        String lookupKey = toLookupKey(queryParam.getLeft(), queryParam.getRight());
+
+        if (ENABLED) {
+            Optional<String> userId = userIdsByLookup.getIfPresent(lookupKey);
+
+            if (userId != null) {
+                if (userId.isEmpty()) {
+                    return Optional.empty();
+                }
+
+                UserEntity user = usersById.getIfPresent(userId.get());
+                if (user != null) {
+                    return Optional.of(user);
+                }
+            }
+        }
+
+        long startedAt = invalidationClock.get();
+
+        // A lookup started after an invalidation doesn't join a flight started before it
+        return lookupFlights.executeBlocking(lookupKey + "@" + invalidatedAt.get(stripeOf(lookupKey)), () -> {
+            Optional<UserEntity> user = fetchUser(queryParam);
+
+            if (ENABLED) {
+                cacheLookup(lookupKey, user, startedAt);
+            }
+
+            return user;
+        });
+    }
+
+    /**
+     * Caches the result of a lookup, unless its key or the found user was invalidated since the lookup started.
+     * The check runs within the cache writes, and an invalidation stamps the key before dropping its entry: an
+     * invalidation either makes the write skip or drops what was written
+     * @param lookupKey the key of the lookup
+     * @param user the found user, empty if no user matches
+     * @param startedAt clock value when the lookup started
+     */
+    private void cacheLookup(String lookupKey, Optional<UserEntity> user, long startedAt) {
+        if (user.isPresent()) {
+            String userId = user.get().getId();
+            usersById.asMap().compute(userId, (id, cached) -> invalidatedSince(startedAt, id) ? cached : user.get());
+        }
+
+        userIdsByLookup.asMap().compute(lookupKey, (key, cached) -> {
+            if (invalidatedSince(startedAt, key) || user.filter(found -> invalidatedSince(startedAt, found.getId())).isPresent()) {
+                return cached;
+            }
+
+            user.ifPresent(found -> lookupKeysByUserId.computeIfAbsent(found.getId(), id -> ConcurrentHashMap.newKeySet()).add(key));
+            return user.map(UserEntity::getId);
+        });
+    }
+
+    /**
+     * Drops the cached entries of a user whose data changed, including the lookups resolving to it
+     * @param userId keycloak Id of the user
+     */
+    public void invalidateUser(String userId) {
+        if (userId == null) {
+            return;
+        }
+
+        stampInvalidation(userId);
+        usersById.invalidate(userId);
+
+        Set<String> lookupKeys = lookupKeysByUserId.remove(userId);
+        if (lookupKeys != null) {
+            Optional<String> cachedUserId = Optional.of(userId);
+            lookupKeys.forEach(lookupKey -> userIdsByLookup.asMap().remove(lookupKey, cachedUserId));
+        }
+    }
+
+    /**
+     * Drops the cached lookup for the given attribute value, e.g. a negative entry for an email that now exists
+     * @param attribute the looked up attribute (e.g.: "email")
+     * @param value the looked up value
+     */
+    public void invalidateLookup(String attribute, String value) {
+        if (value != null) {
+            String lookupKey = toLookupKey(attribute, value);
+            stampInvalidation(lookupKey);
+            userIdsByLookup.invalidate(lookupKey);
+        }
+    }
+
+    private void stampInvalidation(String key) {
+        invalidatedAt.accumulateAndGet(stripeOf(key), invalidationClock.incrementAndGet(), Math::max);
+    }
+
+    private boolean invalidatedSince(long startedAt, String key) {
+        return invalidatedAt.get(stripeOf(key)) > startedAt;
+    }
+
+    private static int stripeOf(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % INVALIDATION_STRIPES;
+    }
+
+    /**
+     * Removes a lookup dropped from the cache from the index of its user, unless it was cached again for that user
+     */
+    private void unindexLookup(String lookupKey, Optional<String> userId, RemovalCause cause) {
+        if (lookupKey == null || userId == null || userId.isEmpty()) {
+            return;
+        }
+
+        lookupKeysByUserId.computeIfPresent(userId.get(), (id, lookupKeys) -> {
+            if (!userId.equals(userIdsByLookup.asMap().get(lookupKey))) {
+                lookupKeys.remove(lookupKey);
+            }
+            return lookupKeys.isEmpty() ? null : lookupKeys;
+        });
+    }
+
+    /**
+     * Queries Keycloak for the user with the exact attribute value
+     * @param queryParam key value pair (e.g.: "username": "<username of the user>")
+     * @return the user, or an empty Optional if no user matches
+     * @throws RuntimeException if an error occurs during the request
+     */
+    Optional<UserEntity> fetchUser(Pair<String> queryParam) throws RuntimeException {
+        try {
+            String highLevelPermissionToken = adminTokenManager.getToken();
+
+            try (Response response = keycloakHttpClient.call(() -> keycloakHttpClient.request(keycloakHttpClient.getUserInfoTarget()
+                            .queryParam(queryParam.getLeft(), queryParam.getRight())
+                            .queryParam("exact", true), Operation.ADMIN)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + highLevelPermissionToken)
+                    .accept("application/json")
+                    .get())) {
+
+                if (response.getStatus() != 200) {
+                    throw new RuntimeException("Status code: " + response.getStatus());
+                }
+
+                return readMatchingUser(response.readEntity(InputStream.class), queryParam);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to obtain user: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the array of user representations, stopping at the first user matching the query
+     * @param inputStream stream of the JSON array returned by the users endpoint
+     * @param queryParam key value pair the user must match
+     * @return the matching user, or an empty Optional if no user matches
+     * @throws IOException if the stream cannot be read or is not a JSON array
+     */
+    private static Optional<UserEntity> readMatchingUser(InputStream inputStream, Pair<String> queryParam) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array");
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                UserEntity user = new UserEntity(parser);
+
+                // Keycloak compares emails and usernames case-insensitively, so the check is repeated the same way
+                if (queryParam.getRight().equalsIgnoreCase(attributeOf(user, queryParam.getLeft()))) {
+                    return Optional.of(user);
+                }
+            }
+
+            return Optional.empty();
+        }
+    }
+
+    private static String attributeOf(UserEntity user, String attribute) {
+        return switch (attribute) {
+            case "id" -> user.getId();
+            case "username" -> user.getUsername();
+            case "email" -> user.getEmail();
+            case "firstName" -> user.getFirstName();
+            case "lastName" -> user.getLastName();
+            default -> null;
+        };
+    }
+
+    private static String toLookupKey(String attribute, String value) {
+        return attribute + "=" + value.toLowerCase(Locale.ROOT);
+    }
+
+    private class LookupExpiry implements Expiry<String, Optional<String>> {
+
+        @Override
+        public long expireAfterCreate(String key, Optional<String> value, long currentTime) {
+            return TimeUnit.SECONDS.toNanos(value.isPresent() ? TTL_SECONDS : NEGATIVE_TTL_SECONDS);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<String> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<String> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
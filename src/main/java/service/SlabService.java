@@ -2,18 +2,24 @@ package service;
 
 import controller.dto.PricedSlabAvailabilityDTO;
 import controller.dto.SlabDTO;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import mapper.SlabMapper;
 import org.eclipse.microprofile.config.ConfigProvider;
+import repository.ReactiveSlabRepository;
 import repository.SlabRepository;
 import repository.model.PricedSlabAvailabilityEntity;
 import repository.model.SlabEntity;
+import service.catalog.CatalogSnapshotService;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Data
@@ -26,9 +32,23 @@ public class SlabService {
     @Inject
     SlabMapper slabMapper;
 
+    @Inject
+    ReactiveSlabRepository reactiveSlabRepository;
+
+    @Inject
+    CatalogSnapshotService catalogSnapshotService;
+
+    final boolean REACTIVE_REPOSITORY = ConfigProvider.getConfig().getValue("catalog.reactive-repository.enabled", Boolean.class);
+
+    final int STREAM_FETCH_SIZE = ConfigProvider.getConfig().getValue("catalog.stream.fetch-size", Integer.class);
+
     final String IMAGE_BASE_URL = ConfigProvider.getConfig().getValue("image.base.url", String.class);
 
     public List<SlabDTO> getAllProductTypes() {
+        if (catalogSnapshotService.isEnabled()) {
+            return catalogSnapshotService.current().getProductTypes();
+        }
+
         List<SlabEntity> all = slabRepository.getAllProductTypes();
         List<SlabDTO> dtos = slabMapper.toDtos(all);
 
@@ -37,6 +57,10 @@ public class SlabService {
     }
 
     public List<SlabDTO> getProductTypesPaged(int limit, int offset) {
+        if (catalogSnapshotService.isEnabled()) {
+            return catalogSnapshotService.current().getProductTypesPaged(limit, offset);
+        }
+
         List<SlabEntity> all = slabRepository.getProductTypesPaged(limit, offset);
         List<SlabDTO> dtos = slabMapper.toDtos(all);
 
@@ -44,13 +68,116 @@ public class SlabService {
         return dtos;
     }
 
+    /**
+     * Keyset paginated product types
+     * @param afterId id of the last product type of the previous page, null for the first page
+     * @param limit maximum number of product types to return
+     * @return the product types following afterId, in id order
+     */
+    public List<SlabDTO> getProductTypesAfter(String afterId, int limit) {
+        if (catalogSnapshotService.isEnabled()) {
+            return catalogSnapshotService.current().getProductTypesAfter(afterId, limit);
+        }
+
+        List<SlabEntity> all = afterId == null
+                ? slabRepository.getProductTypesPaged(limit, 0)
+                : slabRepository.getProductTypesAfter(afterId, limit);
+        List<SlabDTO> dtos = slabMapper.toDtos(all);
+
+        dtos.forEach(dto -> dto.setImagePath(IMAGE_BASE_URL + dto.getImagePath()));
+        return dtos;
+    }
+
     public SlabDTO getProductTypeById(String id) {
+        if (catalogSnapshotService.isEnabled()) {
+            return catalogSnapshotService.current().getProductTypeById(id).orElse(null);
+        }
+
         Optional<SlabEntity> byId = slabRepository.getProductTypeById(id);
         return byId.map(slabMapper::toDto).orElse(null);
     }
 
     public List<PricedSlabAvailabilityDTO> getAllProductsWithDetailsAndAvailability() {
+        if (catalogSnapshotService.isEnabled()) {
+            return catalogSnapshotService.current().getProductsWithAvailability();
+        }
+
         List<PricedSlabAvailabilityEntity> all = slabRepository.getAllProductsWithDetailsAndAvailability();
         return slabMapper.toPricedSlabAvailabilityDtos(all);
     }
+
+    /**
+     * Hands the products with their details and availability to the consumer one at a time, in id order, without
+     * building the whole list: from the catalog snapshot when enabled, otherwise from keyset pages of the DB
+     * @param consumer called for each product, on the calling thread
+     */
+    public void forEachProductWithDetailsAndAvailability(Consumer<PricedSlabAvailabilityDTO> consumer) {
+        if (catalogSnapshotService.isEnabled()) {
+            catalogSnapshotService.current().getProductsWithAvailability().forEach(consumer);
+            return;
+        }
+
+        slabRepository.streamAllProductsWithDetailsAndAvailability(STREAM_FETCH_SIZE,
+                entity -> consumer.accept(slabMapper.toPricedSlabAvailabilityDto(entity)));
+    }
+
+    /**
+     * Non blocking variant of getProductTypesPaged/getProductTypesAfter: from the catalog snapshot when enabled, in
+     * which case the reactive repository is never used, otherwise from the reactive repository, or from the JDBI one
+     * on a worker thread when the reactive one is disabled
+     * @param afterId id of the last product type of the previous page, null for the first page; ignored if offset
+     * is set
+     * @param offset number of product types to skip, null for keyset pagination
+     * @param limit maximum number of product types to return
+     * @return the product types of the page, in id order
+     */
+    public Uni<List<SlabDTO>> getProductTypesPageAsync(String afterId, Integer offset, int limit) {
+        if (catalogSnapshotService.isEnabled()) {
+            return Uni.createFrom().item(() -> offset != null
+                    ? catalogSnapshotService.current().getProductTypesPaged(limit, offset)
+                    : catalogSnapshotService.current().getProductTypesAfter(afterId, limit));
+        }
+
+        Uni<List<SlabEntity>> page;
+        if (REACTIVE_REPOSITORY) {
+            page = offset != null
+                    ? reactiveSlabRepository.getProductTypesPaged(limit, offset)
+                    : afterId == null
+                            ? reactiveSlabRepository.getProductTypesPaged(limit, 0)
+                            : reactiveSlabRepository.getProductTypesAfter(afterId, limit);
+        } else {
+            page = Uni.createFrom().item(() -> offset != null || afterId == null
+                            ? slabRepository.getProductTypesPaged(limit, offset == null ? 0 : offset)
+                            : slabRepository.getProductTypesAfter(afterId, limit))
+                    .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+        }
+
+        return page.map(all -> {
+            List<SlabDTO> dtos = slabMapper.toDtos(all);
+            dtos.forEach(dto -> dto.setImagePath(IMAGE_BASE_URL + dto.getImagePath()));
+            return dtos;
+        });
+    }
+
+    /**
+     * Non blocking variant of forEachProductWithDetailsAndAvailability: from the catalog snapshot when enabled, like
+     * getProductTypesPageAsync; otherwise the products are emitted as they are read from the DB in keyset pages, in id
+     * order, and the next page is only read as fast as the subscriber consumes them
+     * @return the products with their details and availability
+     */
+    public Multi<PricedSlabAvailabilityDTO> streamProductsWithDetailsAndAvailabilityAsync() {
+        if (catalogSnapshotService.isEnabled()) {
+            return Multi.createFrom().iterable(catalogSnapshotService.current().getProductsWithAvailability());
+        }
+
+        if (REACTIVE_REPOSITORY) {
+            return reactiveSlabRepository.streamAllProductsWithDetailsAndAvailability(STREAM_FETCH_SIZE)
+                    .map(slabMapper::toPricedSlabAvailabilityDto);
+        }
+
+        return Uni.createFrom().item(slabRepository::getAllProductsWithDetailsAndAvailability)
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .onItem().transformToMulti(all -> Multi.createFrom().iterable(all))
+                .map(slabMapper::toPricedSlabAvailabilityDto);
+    }
 }
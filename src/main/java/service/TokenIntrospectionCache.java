@@ -0,0 +1,132 @@
+package service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import controller.dto.TokenValidationResponseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+import utils.HashUtil;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of the Keycloak introspection outcomes.
+ * Entries are keyed by the SHA-256 digest of the token, so that raw tokens are never retained.
+ * Active tokens are cached until min(token exp, max ttl), inactive ones for a short negative ttl.
+ * Hit, miss and eviction counters are published as cache metrics named "keycloak-introspection".
+ */
+@Slf4j
+@ApplicationScoped
+public class TokenIntrospectionCache {
+
+    // Configuration parameters
+    private final boolean ENABLED = ConfigProvider.getConfig().getValue("keycloak.introspection-cache.enabled", Boolean.class);
+    private final long MAX_SIZE = ConfigProvider.getConfig().getValue("keycloak.introspection-cache.max-size", Long.class);
+    private final long MAX_TTL_SECONDS = ConfigProvider.getConfig().getValue("keycloak.introspection-cache.max-ttl-seconds", Long.class);
+    private final long NEGATIVE_TTL_SECONDS = ConfigProvider.getConfig().getValue("keycloak.introspection-cache.negative-ttl-seconds", Long.class);
+
+    private static final String CACHE_NAME = "keycloak-introspection";
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private Cache<String, TokenValidationResponseDTO> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(MAX_SIZE)
+                .expireAfter(new IntrospectionExpiry())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached introspection outcome of the token, introspecting it on a miss.
+     * The introspection runs outside of the cache, so that a slow Keycloak does not hold the cache entry locked;
+     * the concurrent misses for the same token are expected to share the request through the introspection function.
+     * @param token the bearer token
+     * @param introspection the function performing the actual introspection
+     * @return the introspection outcome
+     * @throws RuntimeException if the introspection fails. Failures are not cached
+     */
+    public TokenValidationResponseDTO get(String token, Function<String, TokenValidationResponseDTO> introspection) throws RuntimeException {
+        TokenValidationResponseDTO cached = getIfPresent(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        TokenValidationResponseDTO tokenValidationResponseDTO = introspection.apply(token);
+        put(token, tokenValidationResponseDTO);
+        return tokenValidationResponseDTO;
+    }
+
+    /**
+     * Returns the cached introspection outcome of the token without introspecting it
+     * @param token the bearer token
+     * @return the introspection outcome, or null on a miss or if the cache is disabled
+     */
+    public TokenValidationResponseDTO getIfPresent(String token) {
+        if (!ENABLED) {
+            return null;
+        }
+
+        return cache.getIfPresent(HashUtil.sha256UrlFriendly(token));
+    }
+
+    /**
+     * Stores the introspection outcome of the token, for callers introspecting it outside of get
+     * @param token the bearer token
+     * @param tokenValidationResponseDTO the introspection outcome
+     */
+    public void put(String token, TokenValidationResponseDTO tokenValidationResponseDTO) {
+        if (ENABLED) {
+            cache.put(HashUtil.sha256UrlFriendly(token), tokenValidationResponseDTO);
+        }
+    }
+
+    /**
+     * @return a snapshot of the hit, miss and eviction counters
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private class IntrospectionExpiry implements Expiry<String, TokenValidationResponseDTO> {
+
+        @Override
+        public long expireAfterCreate(String key, TokenValidationResponseDTO value, long currentTime) {
+            if (!value.isTokenValid()) {
+                return TimeUnit.SECONDS.toNanos(NEGATIVE_TTL_SECONDS);
+            }
+
+            long ttlSeconds = MAX_TTL_SECONDS;
+            if (value.getExpiresAt() != null) {
+                ttlSeconds = Math.min(ttlSeconds, value.getExpiresAt() - Instant.now().getEpochSecond());
+            }
+
+            return TimeUnit.SECONDS.toNanos(Math.max(ttlSeconds, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TokenValidationResponseDTO value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, TokenValidationResponseDTO value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
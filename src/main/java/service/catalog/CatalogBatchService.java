@@ -0,0 +1,269 @@
+package service.catalog;
+
+import controller.dto.AvailabilityDTO;
+import controller.dto.CatalogBatchRequestDTO;
+import controller.dto.CatalogBatchResponseDTO;
+import controller.dto.CatalogRowOutcomeDTO;
+import controller.dto.PriceListDTO;
+import controller.dto.SlabDTO;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import mapper.SlabMapper;
+import org.eclipse.microprofile.config.ConfigProvider;
+import repository.SlabRepository;
+import repository.model.AvailabilityEntity;
+import repository.model.CatalogBatchResultEntity;
+import repository.model.PriceListEntity;
+import repository.model.SlabEntity;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies bulk catalog updates.
+ * Every row is validated first; the valid rows of the three lists are then upserted with batch statements in a
+ * single transaction, and the priced_availability view and the catalog snapshot are refreshed once for the whole
+ * batch instead of once per row.
+ * Invalid rows are reported as REJECTED and do not prevent the valid ones from being written; if the transaction
+ * fails, nothing is written and the valid rows are reported as FAILED.
+ */
+@Slf4j
+@ApplicationScoped
+public class CatalogBatchService {
+
+    public static final String APPLIED = "APPLIED";
+    public static final String REJECTED = "REJECTED";
+    public static final String FAILED = "FAILED";
+
+    // Configuration parameters
+    private final int MAX_ROWS = ConfigProvider.getConfig().getValue("catalog.batch.max-rows", Integer.class);
+
+    @Inject
+    SlabRepository slabRepository;
+
+    @Inject
+    SlabMapper slabMapper;
+
+    @Inject
+    CatalogSnapshotService catalogSnapshotService;
+
+    @Inject
+    PricedAvailabilityViewService pricedAvailabilityViewService;
+
+    public int getMaxRows() {
+        return MAX_ROWS;
+    }
+
+    /**
+     * Validates and applies a catalog batch
+     * @param request the price lists, slabs and availabilities to insert or update
+     * @return the outcome of every row, in the order of the request
+     * @throws IllegalArgumentException if the batch has more than the maximum number of rows
+     */
+    public CatalogBatchResponseDTO apply(CatalogBatchRequestDTO request) throws IllegalArgumentException {
+        List<PriceListDTO> priceLists = request.getPriceLists() == null ? List.of() : request.getPriceLists();
+        List<SlabDTO> slabs = request.getSlabs() == null ? List.of() : request.getSlabs();
+        List<AvailabilityDTO> availabilities = request.getAvailabilities() == null ? List.of() : request.getAvailabilities();
+
+        int rows = priceLists.size() + slabs.size() + availabilities.size();
+        if (rows > MAX_ROWS) {
+            throw new IllegalArgumentException("The batch has " + rows + " rows, the maximum is " + MAX_ROWS);
+        }
+
+        // References are checked against the current catalog plus the rows of the batch; without the snapshot
+        // they are left to the DB constraints
+        CatalogSnapshot snapshot = catalogSnapshotService.isEnabled() ? catalogSnapshotService.current() : null;
+        Set<String> knownPriceListIds = snapshot == null ? null : new HashSet<>(snapshot.getPriceListsById().keySet());
+        Set<String> knownSlabIds = snapshot == null ? null : new HashSet<>(snapshot.getProductTypesById().keySet());
+
+        List<CatalogRowOutcomeDTO> priceListOutcomes = new ArrayList<>(priceLists.size());
+        List<PriceListEntity> priceListEntities = new ArrayList<>(priceLists.size());
+        Set<String> batchIds = new HashSet<>();
+        for (int i = 0; i < priceLists.size(); i++) {
+            PriceListDTO priceList = priceLists.get(i);
+            String reason = validatePriceList(priceList, batchIds);
+            priceListOutcomes.add(outcome(i, priceList == null ? null : priceList.getId(), reason));
+
+            if (reason == null) {
+                priceListEntities.add(slabMapper.toPriceListEntity(priceList));
+                if (knownPriceListIds != null) {
+                    knownPriceListIds.add(priceList.getId());
+                }
+            }
+        }
+
+        List<CatalogRowOutcomeDTO> slabOutcomes = new ArrayList<>(slabs.size());
+        List<SlabEntity> slabEntities = new ArrayList<>(slabs.size());
+        batchIds.clear();
+        for (int i = 0; i < slabs.size(); i++) {
+            SlabDTO slab = slabs.get(i);
+            String reason = validateSlab(slab, batchIds, knownPriceListIds);
+            slabOutcomes.add(outcome(i, slab == null ? null : slab.getId(), reason));
+
+            if (reason == null) {
+                slabEntities.add(slabMapper.toEntity(slab));
+                if (knownSlabIds != null) {
+                    knownSlabIds.add(slab.getId());
+                }
+            }
+        }
+
+        List<CatalogRowOutcomeDTO> availabilityOutcomes = new ArrayList<>(availabilities.size());
+        List<AvailabilityEntity> availabilityEntities = new ArrayList<>(availabilities.size());
+        batchIds.clear();
+        for (int i = 0; i < availabilities.size(); i++) {
+            AvailabilityDTO availability = availabilities.get(i);
+            String reason = validateAvailability(availability, batchIds, knownSlabIds);
+            availabilityOutcomes.add(outcome(i, availability == null ? null : availability.getId(), reason));
+
+            if (reason == null) {
+                availabilityEntities.add(slabMapper.toAvailabilityEntity(availability));
+            }
+        }
+
+        int valid = priceListEntities.size() + slabEntities.size() + availabilityEntities.size();
+        int rejected = rows - valid;
+        if (valid == 0) {
+            return new CatalogBatchResponseDTO(snapshot == null ? null : snapshot.getVersion(), 0, rejected, 0,
+                    priceListOutcomes, slabOutcomes, availabilityOutcomes);
+        }
+
+        try {
+            CatalogBatchResultEntity result = slabRepository.upsertCatalog(priceListEntities, slabEntities, availabilityEntities);
+            log.info("Catalog batch applied: {} price lists, {} slabs, {} availabilities, {} rows rejected",
+                    result.getPriceListCounts().length, result.getSlabCounts().length,
+                    result.getAvailabilityCounts().length, rejected);
+        } catch (Exception e) {
+            log.error("Catalog batch of {} rows rolled back: {}", valid, e.getMessage());
+            // The driver message may hold SQL and row values: the client only gets the kind of failure
+            String reason = "Batch rolled back: " + failureReason(e);
+            markFailed(priceListOutcomes, reason);
+            markFailed(slabOutcomes, reason);
+            markFailed(availabilityOutcomes, reason);
+            return new CatalogBatchResponseDTO(null, 0, rejected, valid, priceListOutcomes, slabOutcomes, availabilityOutcomes);
+        }
+
+        try {
+            pricedAvailabilityViewService.refreshIfChanged();
+        } catch (Exception e) {
+            // The batch is committed, the view poll will retry
+            log.warn("{} after the batch", e.getMessage());
+        }
+
+        Long catalogVersion = null;
+        if (catalogSnapshotService.isEnabled()) {
+            try {
+                catalogVersion = catalogSnapshotService.refresh().getVersion();
+            } catch (Exception e) {
+                // The batch is committed, the snapshot poll will pick it up
+                log.warn("Catalog snapshot not reloaded after the batch: {}", e.getMessage());
+            }
+        }
+
+        return new CatalogBatchResponseDTO(catalogVersion, valid, rejected, 0,
+                priceListOutcomes, slabOutcomes, availabilityOutcomes);
+    }
+
+    private static String validatePriceList(PriceListDTO priceList, Set<String> batchIds) {
+        if (priceList == null || isBlank(priceList.getId())) {
+            return "Missing id";
+        }
+        try {
+            Integer.parseInt(priceList.getId());
+        } catch (NumberFormatException e) {
+            return "The id must be an integer";
+        }
+        if (priceList.getPrice() == null || priceList.getPrice() < 0) {
+            return "Missing or negative price";
+        }
+        if (isBlank(priceList.getCurrency())) {
+            return "Missing currency";
+        }
+        if (!batchIds.add(priceList.getId())) {
+            return "Duplicate id in the batch";
+        }
+        return null;
+    }
+
+    private static String validateSlab(SlabDTO slab, Set<String> batchIds, Set<String> knownPriceListIds) {
+        if (slab == null || isBlank(slab.getId())) {
+            return "Missing id";
+        }
+        if (isBlank(slab.getCollection())) {
+            return "Missing collection";
+        }
+        if (slab.getWidth() <= 0 || slab.getHeight() <= 0) {
+            return "Width and height must be positive";
+        }
+        if (knownPriceListIds != null && !knownPriceListIds.contains(String.valueOf(slab.getPriceId()))) {
+            return "Unknown price list " + slab.getPriceId();
+        }
+        if (!batchIds.add(slab.getId())) {
+            return "Duplicate id in the batch";
+        }
+        return null;
+    }
+
+    private static String validateAvailability(AvailabilityDTO availability, Set<String> batchIds, Set<String> knownSlabIds) {
+        if (availability == null || isBlank(availability.getId())) {
+            return "Missing id";
+        }
+        if (availability.getQuantity() < 0) {
+            return "Negative quantity";
+        }
+        if (knownSlabIds != null && !knownSlabIds.contains(availability.getId())) {
+            return "Unknown slab " + availability.getId();
+        }
+        if (!batchIds.add(availability.getId())) {
+            return "Duplicate id in the batch";
+        }
+        return null;
+    }
+
+    private static CatalogRowOutcomeDTO outcome(int index, String id, String reason) {
+        return new CatalogRowOutcomeDTO(index, id, reason == null ? APPLIED : REJECTED, reason);
+    }
+
+    private static void markFailed(List<CatalogRowOutcomeDTO> outcomes, String reason) {
+        for (CatalogRowOutcomeDTO outcome : outcomes) {
+            if (APPLIED.equals(outcome.getStatus())) {
+                outcome.setStatus(FAILED);
+                outcome.setReason(reason);
+            }
+        }
+    }
+
+    /**
+     * @return a description of the failure from its SQLState, without the text of the driver
+     */
+    private static String failureReason(Exception e) {
+        String sqlState = null;
+        for (Throwable cause = e; cause != null && sqlState == null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                SQLException next = sqlException.getNextException();
+                sqlState = next != null && next.getSQLState() != null ? next.getSQLState() : sqlException.getSQLState();
+            }
+        }
+
+        if (sqlState == null) {
+            return "database error";
+        }
+        return switch (sqlState) {
+            case "23505" -> "duplicate key";
+            case "23503" -> "reference to a missing row";
+            case "23502" -> "missing required value";
+            case "23514" -> "value out of the allowed range";
+            case "22001", "22003" -> "value too long or out of range";
+            case "40001", "40P01" -> "conflict with a concurrent update, retry the batch";
+            default -> "database error";
+        };
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
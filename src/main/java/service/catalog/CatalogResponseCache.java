@@ -0,0 +1,257 @@
+package service.catalog;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+import utils.HashUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of the serialized (and compressed) bodies of the catalog endpoints.
+ * Between two catalog changes every client receives the same bytes for the same endpoint and page, so the body is
+ * serialized and compressed once per catalog version and then served as it is.
+ * The ETag of a response only depends on the catalog checksum, the endpoint and the page: it can be computed, and an
+ * If-None-Match answered, without reading the cache nor serializing anything.
+ */
+@Slf4j
+@ApplicationScoped
+public class CatalogResponseCache {
+
+    // Configuration parameters
+    private final long MAX_SIZE = ConfigProvider.getConfig().getValue("catalog.response-cache.max-size", Long.class);
+    private final boolean BROTLI = ConfigProvider.getConfig().getValue("catalog.response-cache.brotli", Boolean.class);
+
+    private static final String CACHE_NAME = "catalog-responses";
+    private static final int BROTLI_QUALITY = 9;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private Cache<String, CachedResponse> responses;
+    private boolean brotliAvailable;
+    // Highest snapshot version seen, it never moves backwards
+    private final AtomicLong cachedVersion = new AtomicLong(Long.MIN_VALUE);
+
+    @PostConstruct
+    void init() {
+        responses = Caffeine.newBuilder()
+                .maximumSize(MAX_SIZE)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, CACHE_NAME);
+
+        brotliAvailable = BROTLI && Brotli4jLoader.isAvailable();
+        if (BROTLI && !brotliAvailable) {
+            log.warn("Brotli is not available, catalog responses are compressed with gzip only: {}",
+                    Brotli4jLoader.getUnavailabilityCause().getMessage());
+        }
+    }
+
+    /**
+     * Computes the ETag of the identity representation of a catalog response
+     * @param snapshot the snapshot the response is built from
+     * @param endpoint name of the endpoint
+     * @param pageKey canonical form of the parameters selecting the page (e.g.: "after=X&limit=20")
+     * @return the strong ETag, quoted
+     */
+    public String etagOf(CatalogSnapshot snapshot, String endpoint, String pageKey) {
+        return "\"" + HashUtil.sha256UrlFriendly(snapshot.getChecksum() + "|" + endpoint + "|" + pageKey).substring(0, 27) + "\"";
+    }
+
+    /**
+     * Returns the serialized response for the given endpoint and page, serializing it on the first request
+     * @param snapshot the snapshot the response is built from
+     * @param endpoint name of the endpoint
+     * @param pageKey canonical form of the parameters selecting the page
+     * @param pageBuilder builds the page from the snapshot
+     * @return the serialized response
+     * @throws RuntimeException if the page cannot be serialized
+     */
+    public CachedResponse get(CatalogSnapshot snapshot, String endpoint, String pageKey,
+                              Function<CatalogSnapshot, CatalogPage> pageBuilder) throws RuntimeException {
+
+        long version = snapshot.getVersion();
+        long previousVersion = cachedVersion.getAndAccumulate(version, Math::max);
+
+        if (version < previousVersion) {
+            // A request still holding an older snapshot is served without caching a body nobody will ask for again
+            return serialize(pageBuilder.apply(snapshot), etagOf(snapshot, endpoint, pageKey));
+        }
+
+        String versionPrefix = version + "|";
+        if (version > previousVersion) {
+            // Only the request moving the version forward evicts the entries of the previous versions, which can't be
+            // requested anymore; entries of this version already cached by concurrent requests are kept
+            responses.asMap().keySet().removeIf(key -> !key.startsWith(versionPrefix));
+        }
+
+        return responses.get(versionPrefix + endpoint + "|" + pageKey, key -> {
+            CatalogPage page = pageBuilder.apply(snapshot);
+            return serialize(page, etagOf(snapshot, endpoint, pageKey));
+        });
+    }
+
+    /**
+     * Picks the representation to send according to the Accept-Encoding header: brotli, then gzip, then identity
+     * @param acceptEncoding value of the Accept-Encoding header, may be null
+     * @return the selected encoding
+     */
+    public Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return Encoding.IDENTITY;
+        }
+
+        boolean gzip = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+
+            if (isRefused(parameters)) {
+                continue;
+            }
+            if (name.equals("br") && brotliAvailable) {
+                return Encoding.BROTLI;
+            }
+            gzip |= name.equals("gzip") || name.equals("*");
+        }
+
+        return gzip ? Encoding.GZIP : Encoding.IDENTITY;
+    }
+
+    /**
+     * Checks an If-None-Match header against the ETag of a response, with the weak comparison required for
+     * If-None-Match: the tag of any representation of the same response matches
+     * @param ifNoneMatch value of the If-None-Match header, may be null
+     * @param etag ETag of the identity representation, as returned by etagOf
+     * @return true if the client already has the response
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        String opaqueTag = etag.substring(1, etag.length() - 1);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                tag = tag.substring(1, tag.length() - 1);
+            }
+            if (tag.equals(opaqueTag) || tag.startsWith(opaqueTag + "-")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isRefused(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private CachedResponse serialize(CatalogPage page, String etag) throws RuntimeException {
+        try {
+            byte[] identity = objectMapper.writeValueAsBytes(page.body());
+            byte[] brotli = brotliAvailable
+                    ? Encoder.compress(identity, new Encoder.Parameters().setQuality(BROTLI_QUALITY))
+                    : null;
+
+            return new CachedResponse(identity, gzip(identity), brotli, etag, page.nextKey());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize catalog response: " + e.getMessage());
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(bytes);
+        }
+        return outputStream.toByteArray();
+    }
+
+    public enum Encoding {
+        IDENTITY(null, ""),
+        GZIP("gzip", "-gz"),
+        BROTLI("br", "-br");
+
+        private final String contentEncoding;
+        private final String etagSuffix;
+
+        Encoding(String contentEncoding, String etagSuffix) {
+            this.contentEncoding = contentEncoding;
+            this.etagSuffix = etagSuffix;
+        }
+
+        /**
+         * @return the value of the Content-Encoding header, null for identity
+         */
+        public String getContentEncoding() {
+            return contentEncoding;
+        }
+
+        /**
+         * @param etag ETag of the identity representation
+         * @return the ETag of this representation: each representation has its own strong ETag
+         */
+        public String etagOf(String etag) {
+            return etagSuffix.isEmpty() ? etag : etag.substring(0, etag.length() - 1) + etagSuffix + "\"";
+        }
+    }
+
+    /**
+     * Content of a catalog response, before serialization
+     * @param body the object serialized as response body
+     * @param nextKey sort key of the last element, when a next page exists; null otherwise
+     */
+    public record CatalogPage(Object body, String nextKey) {
+    }
+
+    /**
+     * Serialized catalog response, in all its representations
+     */
+    public record CachedResponse(byte[] identity, byte[] gzip, byte[] brotli, String etag, String nextKey) {
+
+        public byte[] body(Encoding encoding) {
+            return switch (encoding) {
+                case IDENTITY -> identity;
+                case GZIP -> gzip;
+                case BROTLI -> brotli;
+            };
+        }
+    }
+}
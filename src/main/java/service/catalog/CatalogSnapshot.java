@@ -0,0 +1,121 @@
+package service.catalog;
+
+import controller.dto.PricedSlabAvailabilityDTO;
+import controller.dto.SlabDTO;
+import lombok.Getter;
+import repository.model.PriceListEntity;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable, indexed copy of the catalog (slab, pricelist and availability) at a given version.
+ * Lists are sorted by slab id, in code point order like the "C" collation the queries sort by, and unmodifiable; the
+ * DTO instances are shared by all the readers of the snapshot and must not be modified. The priced availability rows
+ * are also kept in columnar form, row i of the columns being the i-th element of the list.
+ */
+@Getter
+public final class CatalogSnapshot {
+
+    /**
+     * Order of the slab ids: by code point, which is the byte order of their UTF-8 encoding (collation "C")
+     */
+    public static final Comparator<String> ID_ORDER = CatalogSnapshot::compareIds;
+
+    private final long version;
+    private final String checksum;
+    private final Instant loadedAt;
+
+    private final List<SlabDTO> productTypes;
+    private final Map<String, SlabDTO> productTypesById;
+    private final List<PricedSlabAvailabilityDTO> productsWithAvailability;
+    private final PricedAvailabilityColumns productsWithAvailabilityColumns;
+    private final Map<String, PriceListEntity> priceListsById;
+
+    CatalogSnapshot(long version, String checksum, List<SlabDTO> productTypes,
+                    List<PricedSlabAvailabilityDTO> productsWithAvailability, List<PriceListEntity> priceLists) {
+
+        this.version = version;
+        this.checksum = checksum;
+        this.loadedAt = Instant.now();
+
+        productTypes.sort(Comparator.comparing(SlabDTO::getId, ID_ORDER));
+        this.productTypes = Collections.unmodifiableList(productTypes);
+
+        Map<String, SlabDTO> byId = new HashMap<>(productTypes.size() * 2);
+        productTypes.forEach(productType -> byId.put(productType.getId(), productType));
+        this.productTypesById = Collections.unmodifiableMap(byId);
+
+        productsWithAvailability.sort(Comparator.comparing(PricedSlabAvailabilityDTO::getId, ID_ORDER));
+        this.productsWithAvailability = Collections.unmodifiableList(productsWithAvailability);
+        this.productsWithAvailabilityColumns = PricedAvailabilityColumns.of(this.productsWithAvailability);
+
+        Map<String, PriceListEntity> pricesById = new HashMap<>(priceLists.size() * 2);
+        priceLists.forEach(priceList -> pricesById.put(priceList.getId(), priceList));
+        this.priceListsById = Collections.unmodifiableMap(pricesById);
+    }
+
+    /**
+     * @param limit maximum number of product types to return
+     * @param offset number of product types to skip, in id order
+     * @return a page of product types, in id order
+     */
+    public List<SlabDTO> getProductTypesPaged(int limit, int offset) {
+        if (limit <= 0 || offset < 0 || offset >= productTypes.size()) {
+            return List.of();
+        }
+
+        return productTypes.subList(offset, (int) Math.min((long) offset + limit, productTypes.size()));
+    }
+
+    /**
+     * @param afterId id of the last product type of the previous page, null for the first page
+     * @param limit maximum number of product types to return
+     * @return the product types following afterId, in id order
+     */
+    public List<SlabDTO> getProductTypesAfter(String afterId, int limit) {
+        int from = 0;
+
+        if (afterId != null) {
+            int low = 0;
+            int high = productTypes.size();
+            // First index whose id is greater than afterId
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareIds(productTypes.get(middle).getId(), afterId) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            from = low;
+        }
+
+        return getProductTypesPaged(limit, from);
+    }
+
+    public Optional<SlabDTO> getProductTypeById(String id) {
+        return Optional.ofNullable(productTypesById.get(id));
+    }
+
+    // String.compareTo compares UTF-16 chars, which differs from the code point order for supplementary characters
+    private static int compareIds(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            int firstCodePoint = first.codePointAt(i);
+            int secondCodePoint = second.codePointAt(j);
+            if (firstCodePoint != secondCodePoint) {
+                return Integer.compare(firstCodePoint, secondCodePoint);
+            }
+            i += Character.charCount(firstCodePoint);
+            j += Character.charCount(secondCodePoint);
+        }
+        return Integer.compare(first.length() - i, second.length() - j);
+    }
+}
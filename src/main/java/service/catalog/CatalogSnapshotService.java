@@ -0,0 +1,171 @@
+package service.catalog;
+
+import controller.dto.PricedSlabAvailabilityDTO;
+import controller.dto.SlabDTO;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import mapper.SlabMapper;
+import org.eclipse.microprofile.config.ConfigProvider;
+import repository.SlabRepository;
+import repository.model.AvailabilityEntity;
+import repository.model.CatalogEntity;
+import repository.model.PriceListEntity;
+import repository.model.PricedSlabAvailabilityEntity;
+import repository.model.SlabEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the catalog in memory as an immutable CatalogSnapshot, so that the product endpoints are served without
+ * a DB round trip. The catalog checksum is polled periodically and, when it changes, a new snapshot is built and
+ * swapped atomically: readers always see either the old or the new snapshot as a whole.
+ * Every new snapshot is also fired as an asynchronous CDI event.
+ */
+@Slf4j
+@ApplicationScoped
+public class CatalogSnapshotService {
+
+    // Configuration parameters
+    private final boolean ENABLED = ConfigProvider.getConfig().getValue("catalog.snapshot.enabled", Boolean.class);
+    private final String IMAGE_BASE_URL = ConfigProvider.getConfig().getValue("image.base.url", String.class);
+
+    @Inject
+    SlabRepository slabRepository;
+
+    @Inject
+    SlabMapper slabMapper;
+
+    @Inject
+    Event<CatalogSnapshot> snapshotLoadedEvent;
+
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final Object reloadLock = new Object();
+
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Returns the current snapshot, loading it on first use
+     * @return the current snapshot
+     * @throws RuntimeException if the catalog cannot be loaded
+     */
+    public CatalogSnapshot current() throws RuntimeException {
+        CatalogSnapshot current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (reloadLock) {
+            current = snapshot.get();
+            return current != null ? current : reload();
+        }
+    }
+
+    /**
+     * Reloads the catalog unconditionally, e.g. after the catalog tables were written by this application
+     * @return the new snapshot
+     * @throws RuntimeException if the catalog cannot be loaded
+     */
+    public CatalogSnapshot refresh() throws RuntimeException {
+        synchronized (reloadLock) {
+            return reload();
+        }
+    }
+
+    /**
+     * Compares the catalog checksum with the one of the current snapshot and reloads the catalog when they differ
+     */
+    @Scheduled(every = "${catalog.snapshot.poll-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void poll() {
+        if (!ENABLED) {
+            return;
+        }
+
+        try {
+            CatalogSnapshot current = snapshot.get();
+
+            if (current == null || !slabRepository.getCatalogChecksum().equals(current.getChecksum())) {
+                refresh();
+            }
+        } catch (Exception e) {
+            log.warn("Catalog snapshot poll failed, still serving version {}: {}",
+                    snapshot.get() == null ? "none" : snapshot.get().getVersion(), e.getMessage());
+        }
+    }
+
+    private CatalogSnapshot reload() throws RuntimeException {
+        CatalogEntity catalog;
+        try {
+            catalog = slabRepository.getCatalog();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load the catalog: " + e.getMessage());
+        }
+
+        List<SlabDTO> productTypes = new ArrayList<>(slabMapper.toDtos(catalog.getSlabs()));
+        productTypes.forEach(dto -> dto.setImagePath(IMAGE_BASE_URL + dto.getImagePath()));
+
+        List<PricedSlabAvailabilityDTO> productsWithAvailability =
+                new ArrayList<>(slabMapper.toPricedSlabAvailabilityDtos(joinAvailability(catalog)));
+
+        CatalogSnapshot newSnapshot = new CatalogSnapshot(versions.incrementAndGet(), catalog.getChecksum(),
+                productTypes, productsWithAvailability, catalog.getPriceLists());
+
+        snapshot.set(newSnapshot);
+        // Lets the derived structures (e.g. the search index) be rebuilt off the request path
+        snapshotLoadedEvent.fireAsync(newSnapshot);
+        log.info("Catalog snapshot version {} loaded: {} product types, {} available products",
+                newSnapshot.getVersion(), productTypes.size(), productsWithAvailability.size());
+
+        return newSnapshot;
+    }
+
+    /**
+     * Joins slab, pricelist and availability in memory, with the same inner join semantics of
+     * SlabDAO.getAllProductsWithDetailsAndAvailability
+     */
+    private static List<PricedSlabAvailabilityEntity> joinAvailability(CatalogEntity catalog) {
+        Map<String, PriceListEntity> priceListsById = new HashMap<>();
+        catalog.getPriceLists().forEach(priceList -> priceListsById.put(priceList.getId(), priceList));
+
+        Map<String, List<AvailabilityEntity>> availabilitiesById = new HashMap<>();
+        catalog.getAvailabilities().forEach(availability ->
+                availabilitiesById.computeIfAbsent(availability.getId(), id -> new ArrayList<>()).add(availability));
+
+        List<PricedSlabAvailabilityEntity> joined = new ArrayList<>();
+
+        for (SlabEntity slab : catalog.getSlabs()) {
+            PriceListEntity priceList = priceListsById.get(String.valueOf(slab.getPriceId()));
+            List<AvailabilityEntity> availabilities = availabilitiesById.get(slab.getId());
+
+            if (priceList == null || availabilities == null) {
+                continue;
+            }
+
+            for (AvailabilityEntity availability : availabilities) {
+                PricedSlabAvailabilityEntity entity = new PricedSlabAvailabilityEntity();
+                entity.setId(slab.getId());
+                entity.setCollection(slab.getCollection());
+                entity.setColor(slab.getColor());
+                entity.setTone(slab.getTone());
+                entity.setWidth(slab.getWidth());
+                entity.setHeight(slab.getHeight());
+                entity.setPrice(priceList.getPrice());
+                entity.setCurrency(priceList.getCurrency());
+                entity.setQuantity(availability.getQuantity());
+                joined.add(entity);
+            }
+        }
+
+        return joined;
+    }
+}
@@ -0,0 +1,321 @@
+package service.catalog;
+
+import controller.dto.NestedSlabDTO;
+import controller.dto.PlacedPieceDTO;
+import controller.dto.PricedSlabAvailabilityDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Packs rectangular pieces onto the slabs in stock, looking for the cheapest set of slabs.
+ * One attempt is a greedy guillotine packing: pieces are taken in a given order and each one goes to the free
+ * rectangle, among the slabs already opened, that it fills best; when it fits none, a new slab is opened, chosen by
+ * the strategy of the attempt. Every attempt ends by replacing each opened slab with the cheapest stock slab the
+ * layout still fits in. Attempts differ by piece order, strategy and random perturbations, and are independent:
+ * the caller runs many of them in parallel and keeps the cheapest.
+ * Instances are immutable and can be shared by concurrent attempts.
+ */
+public final class CutNestingEngine {
+
+    private final List<PricedSlabAvailabilityDTO> stock;
+    private final int[] widths;
+    private final int[] heights;
+    private final double[] prices;
+    private final int[] available;
+
+    private final int[] pieceWidths;
+    private final int[] pieceHeights;
+    // Index, in the request, of the piece each unit comes from
+    private final int[] pieceIndexes;
+    private final int kerf;
+    private final boolean allowRotation;
+
+    /**
+     * @param stock slabs in stock, with their price and quantity
+     * @param pieceWidths width of each piece unit
+     * @param pieceHeights height of each piece unit
+     * @param pieceIndexes index in the request of each piece unit
+     * @param kerf width of the blade cut
+     * @param allowRotation true if pieces may be rotated by 90 degrees
+     */
+    public CutNestingEngine(List<PricedSlabAvailabilityDTO> stock, int[] pieceWidths, int[] pieceHeights,
+                            int[] pieceIndexes, int kerf, boolean allowRotation) {
+
+        this.stock = stock;
+        this.widths = stock.stream().mapToInt(PricedSlabAvailabilityDTO::getWidth).toArray();
+        this.heights = stock.stream().mapToInt(PricedSlabAvailabilityDTO::getHeight).toArray();
+        this.prices = stock.stream().mapToDouble(slab -> slab.getPrice() == null ? Double.MAX_VALUE : slab.getPrice()).toArray();
+        this.available = stock.stream().mapToInt(PricedSlabAvailabilityDTO::getQuantity).toArray();
+
+        this.pieceWidths = pieceWidths;
+        this.pieceHeights = pieceHeights;
+        this.pieceIndexes = pieceIndexes;
+        this.kerf = kerf;
+        this.allowRotation = allowRotation;
+    }
+
+    /**
+     * @return true if every piece fits, alone, at least one slab in stock
+     */
+    public boolean everyPieceFitsSomeSlab() {
+        for (int piece = 0; piece < pieceWidths.length; piece++) {
+            boolean fits = false;
+            for (int slab = 0; slab < widths.length && !fits; slab++) {
+                fits = available[slab] > 0 && orientation(pieceWidths[piece], pieceHeights[piece], widths[slab], heights[slab]) != null;
+            }
+            if (!fits) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs one attempt. Attempt 0 to 2 are deterministic (largest pieces first, with each slab strategy); later
+     * attempts perturb the piece order and the slab choice with the attempt number as seed
+     * @param attempt number of the attempt
+     * @return the packing found, or null if the stock ran out before every piece was placed
+     */
+    public Packing attempt(int attempt) {
+        Random random = new Random(attempt);
+        SlabStrategy strategy = SlabStrategy.values()[attempt % SlabStrategy.values().length];
+
+        Integer[] order = new Integer[pieceWidths.length];
+        Arrays.setAll(order, piece -> piece);
+        Arrays.sort(order, Comparator.comparingLong((Integer piece) -> (long) pieceWidths[piece] * pieceHeights[piece]).reversed());
+        if (attempt >= SlabStrategy.values().length) {
+            perturb(order, random, 1 + attempt % 7);
+        }
+
+        int[] remaining = available.clone();
+        List<OpenSlab> opened = new ArrayList<>();
+
+        for (int piece : order) {
+            if (!placeInOpenSlabs(opened, piece)) {
+                int slab = chooseSlab(piece, remaining, strategy, attempt >= SlabStrategy.values().length ? random : null);
+                if (slab < 0) {
+                    return null;
+                }
+                remaining[slab]--;
+
+                OpenSlab openSlab = new OpenSlab(slab, widths[slab], heights[slab]);
+                opened.add(openSlab);
+                openSlab.place(piece, openSlab.freeRectangles.get(0),
+                        orientation(pieceWidths[piece], pieceHeights[piece], widths[slab], heights[slab]));
+            }
+        }
+
+        downsize(opened, remaining);
+        return new Packing(opened);
+    }
+
+    /**
+     * Places the piece in the free rectangle, among all the opened slabs, that leaves the shortest leftover side
+     * @return false if the piece fits no free rectangle
+     */
+    private boolean placeInOpenSlabs(List<OpenSlab> opened, int piece) {
+        OpenSlab bestSlab = null;
+        int[] bestRectangle = null;
+        Boolean bestRotated = null;
+        long bestScore = Long.MAX_VALUE;
+
+        for (OpenSlab openSlab : opened) {
+            for (int[] rectangle : openSlab.freeRectangles) {
+                Boolean rotated = orientation(pieceWidths[piece], pieceHeights[piece], rectangle[2], rectangle[3]);
+                if (rotated == null) {
+                    continue;
+                }
+
+                int placedWidth = rotated ? pieceHeights[piece] : pieceWidths[piece];
+                int placedHeight = rotated ? pieceWidths[piece] : pieceHeights[piece];
+                long score = Math.min(rectangle[2] - placedWidth, rectangle[3] - placedHeight);
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestSlab = openSlab;
+                    bestRectangle = rectangle;
+                    bestRotated = rotated;
+                }
+            }
+        }
+
+        if (bestSlab == null) {
+            return false;
+        }
+
+        bestSlab.place(piece, bestRectangle, bestRotated);
+        return true;
+    }
+
+    private int chooseSlab(int piece, int[] remaining, SlabStrategy strategy, Random random) {
+        int best = -1;
+        double bestScore = Double.MAX_VALUE;
+
+        for (int slab = 0; slab < widths.length; slab++) {
+            if (remaining[slab] <= 0 || orientation(pieceWidths[piece], pieceHeights[piece], widths[slab], heights[slab]) == null) {
+                continue;
+            }
+
+            double area = (double) widths[slab] * heights[slab];
+            double score = switch (strategy) {
+                case CHEAPEST_PER_AREA -> prices[slab] / area;
+                case CHEAPEST -> prices[slab];
+                case SMALLEST -> area;
+            };
+            if (random != null) {
+                // Randomized attempts explore slabs up to 30% worse than the best one by the strategy
+                score *= 1 + random.nextDouble() * 0.3;
+            }
+
+            if (score < bestScore) {
+                bestScore = score;
+                best = slab;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Replaces every opened slab with the cheapest slab still in stock that contains its layout
+     */
+    private void downsize(List<OpenSlab> opened, int[] remaining) {
+        for (OpenSlab openSlab : opened) {
+            int usedWidth = openSlab.usedWidth();
+            int usedHeight = openSlab.usedHeight();
+
+            int cheapest = openSlab.slab;
+            for (int slab = 0; slab < widths.length; slab++) {
+                if (remaining[slab] > 0 && prices[slab] < prices[cheapest]
+                        && widths[slab] >= usedWidth && heights[slab] >= usedHeight) {
+                    cheapest = slab;
+                }
+            }
+
+            if (cheapest != openSlab.slab) {
+                remaining[openSlab.slab]++;
+                remaining[cheapest]--;
+                openSlab.slab = cheapest;
+            }
+        }
+    }
+
+    /**
+     * @return null if the piece doesn't fit the rectangle, otherwise whether it must be rotated to fit
+     */
+    private Boolean orientation(int pieceWidth, int pieceHeight, int width, int height) {
+        if (pieceWidth <= width && pieceHeight <= height) {
+            return false;
+        }
+        if (allowRotation && pieceHeight <= width && pieceWidth <= height) {
+            return true;
+        }
+        return null;
+    }
+
+    private static void perturb(Integer[] order, Random random, int swaps) {
+        for (int i = 0; i < swaps * 2 && order.length > 1; i++) {
+            int first = random.nextInt(order.length);
+            int second = Math.min(order.length - 1, first + 1 + random.nextInt(Math.min(4, order.length)));
+            Integer swapped = order[first];
+            order[first] = order[second];
+            order[second] = swapped;
+        }
+    }
+
+    private enum SlabStrategy {
+        CHEAPEST_PER_AREA,
+        CHEAPEST,
+        SMALLEST
+    }
+
+    /**
+     * A slab being filled: its placements and its free rectangles ({x, y, width, height})
+     */
+    private final class OpenSlab {
+
+        private int slab;
+        private final List<int[]> freeRectangles = new ArrayList<>();
+        private final List<PlacedPieceDTO> placements = new ArrayList<>();
+
+        private OpenSlab(int slab, int width, int height) {
+            this.slab = slab;
+            freeRectangles.add(new int[]{0, 0, width, height});
+        }
+
+        /**
+         * Places the piece at the corner of the free rectangle and splits the rest of it with a guillotine cut along
+         * the shorter leftover side, the kerf being removed along the cuts
+         */
+        private void place(int piece, int[] rectangle, boolean rotated) {
+            int placedWidth = rotated ? pieceHeights[piece] : pieceWidths[piece];
+            int placedHeight = rotated ? pieceWidths[piece] : pieceHeights[piece];
+            placements.add(new PlacedPieceDTO(pieceIndexes[piece], rectangle[0], rectangle[1], placedWidth, placedHeight, rotated));
+
+            freeRectangles.remove(rectangle);
+
+            int rightWidth = rectangle[2] - placedWidth - kerf;
+            int bottomHeight = rectangle[3] - placedHeight - kerf;
+            boolean splitHorizontally = rectangle[2] - placedWidth < rectangle[3] - placedHeight;
+
+            if (rightWidth > 0) {
+                freeRectangles.add(new int[]{rectangle[0] + placedWidth + kerf, rectangle[1],
+                        rightWidth, splitHorizontally ? placedHeight : rectangle[3]});
+            }
+            if (bottomHeight > 0) {
+                freeRectangles.add(new int[]{rectangle[0], rectangle[1] + placedHeight + kerf,
+                        splitHorizontally ? rectangle[2] : placedWidth, bottomHeight});
+            }
+        }
+
+        private int usedWidth() {
+            return placements.stream().mapToInt(placement -> placement.getX() + placement.getWidth()).max().orElse(0);
+        }
+
+        private int usedHeight() {
+            return placements.stream().mapToInt(placement -> placement.getY() + placement.getHeight()).max().orElse(0);
+        }
+
+        private long usedArea() {
+            return placements.stream().mapToLong(placement -> (long) placement.getWidth() * placement.getHeight()).sum();
+        }
+    }
+
+    /**
+     * Result of an attempt
+     */
+    public final class Packing {
+
+        private final List<OpenSlab> slabs;
+        private final double cost;
+
+        private Packing(List<OpenSlab> slabs) {
+            this.slabs = slabs;
+            this.cost = slabs.stream().mapToDouble(openSlab -> prices[openSlab.slab]).sum();
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        /**
+         * @return the share of the area of the slabs covered by pieces
+         */
+        public double getUtilization() {
+            long slabArea = slabs.stream().mapToLong(openSlab -> (long) widths[openSlab.slab] * heights[openSlab.slab]).sum();
+            long usedArea = slabs.stream().mapToLong(OpenSlab::usedArea).sum();
+            return slabArea == 0 ? 0 : (double) usedArea / slabArea;
+        }
+
+        public List<NestedSlabDTO> toDtos() {
+            return slabs.stream()
+                    .map(openSlab -> new NestedSlabDTO(stock.get(openSlab.slab),
+                            (double) openSlab.usedArea() / ((long) widths[openSlab.slab] * heights[openSlab.slab]),
+                            openSlab.placements))
+                    .toList();
+        }
+    }
+}
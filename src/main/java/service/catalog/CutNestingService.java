@@ -0,0 +1,157 @@
+package service.catalog;
+
+import controller.dto.NestingPieceDTO;
+import controller.dto.NestingRequestDTO;
+import controller.dto.NestingResponseDTO;
+import controller.dto.PricedSlabAvailabilityDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Plans multi-piece orders on the slabs in stock of the catalog snapshot.
+ * CutNestingEngine attempts are run in parallel on a dedicated fork-join pool until the time budget is spent (or the
+ * maximum number of attempts is reached), and the cheapest packing is returned.
+ */
+@Slf4j
+@ApplicationScoped
+public class CutNestingService {
+
+    // Configuration parameters
+    private final long TIME_BUDGET_MS = ConfigProvider.getConfig().getValue("catalog.nesting.time-budget-ms", Long.class);
+    private final int MAX_ATTEMPTS = ConfigProvider.getConfig().getValue("catalog.nesting.max-attempts", Integer.class);
+    private final int MAX_PIECES = ConfigProvider.getConfig().getValue("catalog.nesting.max-pieces", Integer.class);
+    private final int PARALLELISM = ConfigProvider.getConfig().getValue("catalog.nesting.parallelism", Integer.class);
+    private final long TIMEOUT_MARGIN_MS = ConfigProvider.getConfig().getValue("catalog.nesting.timeout-margin-ms", Long.class);
+
+    @Inject
+    CatalogSnapshotService catalogSnapshotService;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(PARALLELISM);
+    }
+
+    @PreDestroy
+    void close() {
+        pool.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return catalogSnapshotService.isEnabled();
+    }
+
+    /**
+     * Finds the cheapest set of slabs in stock the pieces can be cut from, with the layout of each slab
+     * @param request the pieces, the kerf and whether the pieces may be rotated
+     * @return the cheapest packing found within the time budget, or an empty Optional if the pieces can't be cut
+     * from the slabs in stock
+     * @throws IllegalArgumentException if the request is invalid or has too many pieces
+     * @throws RuntimeException if the catalog cannot be loaded or the search fails
+     */
+    public Optional<NestingResponseDTO> nest(NestingRequestDTO request) throws IllegalArgumentException, RuntimeException {
+        List<NestingPieceDTO> pieces = request.getPieces();
+        if (pieces == null || pieces.isEmpty() || request.getKerf() < 0) {
+            throw new IllegalArgumentException("No pieces or negative kerf");
+        }
+
+        int units = 0;
+        for (NestingPieceDTO piece : pieces) {
+            if (piece.getWidth() <= 0 || piece.getHeight() <= 0 || piece.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Pieces must have positive dimensions and quantity");
+            }
+            // Checked before adding, so that a huge quantity can't overflow the sum
+            if (piece.getQuantity() > MAX_PIECES - units) {
+                throw new IllegalArgumentException("More than " + MAX_PIECES + " pieces");
+            }
+            units += piece.getQuantity();
+        }
+
+        int[] pieceWidths = new int[units];
+        int[] pieceHeights = new int[units];
+        int[] pieceIndexes = new int[units];
+        int unit = 0;
+        for (int index = 0; index < pieces.size(); index++) {
+            for (int copy = 0; copy < pieces.get(index).getQuantity(); copy++, unit++) {
+                pieceWidths[unit] = pieces.get(index).getWidth();
+                pieceHeights[unit] = pieces.get(index).getHeight();
+                pieceIndexes[unit] = index;
+            }
+        }
+
+        List<PricedSlabAvailabilityDTO> stock = catalogSnapshotService.current().getProductsWithAvailability().stream()
+                .filter(slab -> slab.getQuantity() > 0 && slab.getPrice() != null)
+                .toList();
+
+        CutNestingEngine engine = new CutNestingEngine(stock, pieceWidths, pieceHeights, pieceIndexes,
+                request.getKerf(), request.isAllowRotation());
+        if (!engine.everyPieceFitsSomeSlab()) {
+            return Optional.empty();
+        }
+
+        AtomicInteger attempts = new AtomicInteger();
+        Optional<CutNestingEngine.Packing> best = search(pool, engine, MAX_ATTEMPTS, TIME_BUDGET_MS, TIMEOUT_MARGIN_MS, attempts);
+
+        log.info("Nested {} pieces with {} attempts: {}", units, attempts.get(),
+                best.map(packing -> "cost " + packing.getCost()).orElse("stock exhausted"));
+
+        return best.map(packing -> new NestingResponseDTO(packing.getCost(), packing.getUtilization(),
+                attempts.get(), packing.toDtos()));
+    }
+
+    /**
+     * Runs the attempts of the engine in parallel on the pool until the time budget is spent or the maximum number of
+     * attempts is reached, and keeps the cheapest packing. The first attempt always runs, whatever the budget
+     * @param pool pool the attempts run on
+     * @param engine engine of the order
+     * @param maxAttempts maximum number of attempts
+     * @param timeBudgetMs time after which no attempt is started
+     * @param timeoutMarginMs time allowed on top of the budget for a busy pool and the last attempts
+     * @param attempts counter of the attempts run
+     * @return the cheapest packing, or an empty Optional if the stock ran out in every attempt
+     * @throws RuntimeException if the search fails or doesn't end within the budget and the margin
+     */
+    static Optional<CutNestingEngine.Packing> search(ForkJoinPool pool, CutNestingEngine engine, int maxAttempts,
+                                                     long timeBudgetMs, long timeoutMarginMs, AtomicInteger attempts) throws RuntimeException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMs);
+
+        // A parallel stream started from a task of the pool runs on that pool rather than on the common one
+        ForkJoinTask<Optional<CutNestingEngine.Packing>> search = pool.submit(() -> IntStream.range(0, maxAttempts)
+                .parallel()
+                .filter(attempt -> attempt == 0 || System.nanoTime() < deadline)
+                .peek(attempt -> attempts.incrementAndGet())
+                .mapToObj(engine::attempt)
+                .filter(Objects::nonNull)
+                .min(Comparator.comparingDouble(CutNestingEngine.Packing::getCost)));
+        try {
+            // The search stops by itself at the deadline; the margin covers the wait for a busy pool and the last
+            // attempts, so that the request thread is never blocked indefinitely
+            return search.get(timeBudgetMs + timeoutMarginMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            search.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Failed to nest pieces: " + e.getMessage());
+        } catch (TimeoutException e) {
+            search.cancel(true);
+            throw new RuntimeException("Failed to nest pieces: no result within " + (timeBudgetMs + timeoutMarginMs) + " ms");
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to nest pieces: " + e.getMessage());
+        }
+    }
+}
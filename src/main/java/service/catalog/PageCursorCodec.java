@@ -0,0 +1,105 @@
+package service.catalog;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Encodes and decodes the opaque cursors of the keyset paginated endpoints.
+ * A cursor carries the sort key of the listing and the last key returned in the previous page, and is signed with
+ * HMAC-SHA256 so that clients can't forge or alter it: a cursor is only accepted for the listing it was issued for.
+ * Without catalog.page.cursor-secret the key is generated at startup, so cursors only work on the instance that
+ * issued them and until it restarts: set the secret when running more than one instance.
+ */
+@Slf4j
+@ApplicationScoped
+public class PageCursorCodec {
+
+    // Configuration parameters
+    private final Optional<String> CURSOR_SECRET = ConfigProvider.getConfig().getOptionalValue("catalog.page.cursor-secret", String.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final char SEPARATOR = '.';
+
+    private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_URL_DECODER = Base64.getUrlDecoder();
+
+    private SecretKeySpec key;
+
+    @PostConstruct
+    void init() {
+        if (CURSOR_SECRET.isPresent()) {
+            key = new SecretKeySpec(CURSOR_SECRET.get().getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        } else {
+            // Cursors issued before a restart, or by another instance, are then rejected
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+            log.warn("catalog.page.cursor-secret is not set: page cursors are signed with a random key of this process");
+        }
+    }
+
+    /**
+     * @param sortKey name of the key the listing is sorted by (e.g.: "id")
+     * @param lastKey value of the sort key of the last element of the page
+     * @return the cursor pointing right after lastKey
+     */
+    public String encode(String sortKey, String lastKey) {
+        byte[] payload = (sortKey + ":" + lastKey).getBytes(StandardCharsets.UTF_8);
+        return BASE64_URL_ENCODER.encodeToString(payload) + SEPARATOR + BASE64_URL_ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * @param sortKey name of the key the listing is sorted by, it must be the one the cursor was issued for
+     * @param cursor the cursor received from the client
+     * @return the last key of the previous page
+     * @throws IllegalArgumentException if the cursor is malformed, tampered with or issued for another sort key
+     */
+    public String decode(String sortKey, String cursor) throws IllegalArgumentException {
+        int separator = cursor.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = BASE64_URL_DECODER.decode(cursor.substring(0, separator));
+            signature = BASE64_URL_DECODER.decode(cursor.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            throw new IllegalArgumentException("Invalid cursor signature");
+        }
+
+        String decoded = new String(payload, StandardCharsets.UTF_8);
+        String prefix = sortKey + ":";
+        if (!decoded.startsWith(prefix)) {
+            throw new IllegalArgumentException("Cursor issued for another listing");
+        }
+
+        return decoded.substring(prefix.length());
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to sign cursor: " + e.getMessage());
+        }
+    }
+}
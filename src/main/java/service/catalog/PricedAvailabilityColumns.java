@@ -0,0 +1,356 @@
+package service.catalog;
+
+import controller.dto.PricedSlabAvailabilityDTO;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column oriented, primitive copy of the priced availability rows of a catalog snapshot.
+ * Numeric attributes are stored in primitive arrays and the string attributes are dictionary encoded (one int code
+ * per row), so that the search index, filters and aggregates are tight loops over arrays instead of walks over boxed
+ * beans. Row i is the i-th element of the list the columns were built from. Instances are immutable.
+ * Scans write the selected rows into a caller provided array and aggregates read them back, so that a caller
+ * reusing its arrays and ColumnFilter doesn't allocate.
+ */
+public final class PricedAvailabilityColumns {
+
+    /**
+     * Returned by the code lookups for values that aren't in the dictionary
+     */
+    public static final int MISSING = -1;
+
+    /**
+     * Code of the rows with a null value
+     */
+    public static final int NO_VALUE = -2;
+
+    private final int size;
+    private final int[] widths;
+    private final int[] heights;
+    private final int[] quantities;
+    private final double[] prices;
+
+    private final Dictionary collections;
+    private final Dictionary colors;
+    private final Dictionary tones;
+    private final Dictionary currencies;
+
+    private final int[] collectionCodes;
+    private final int[] colorCodes;
+    private final int[] toneCodes;
+    private final int[] currencyCodes;
+
+    private PricedAvailabilityColumns(List<PricedSlabAvailabilityDTO> rows) {
+        this.size = rows.size();
+        this.widths = new int[size];
+        this.heights = new int[size];
+        this.quantities = new int[size];
+        this.prices = new double[size];
+
+        this.collections = new Dictionary();
+        this.colors = new Dictionary();
+        this.tones = new Dictionary();
+        this.currencies = new Dictionary();
+
+        this.collectionCodes = new int[size];
+        this.colorCodes = new int[size];
+        this.toneCodes = new int[size];
+        this.currencyCodes = new int[size];
+
+        for (int row = 0; row < size; row++) {
+            PricedSlabAvailabilityDTO product = rows.get(row);
+
+            widths[row] = product.getWidth();
+            heights[row] = product.getHeight();
+            quantities[row] = product.getQuantity();
+            prices[row] = product.getPrice() == null ? Double.NaN : product.getPrice();
+
+            collectionCodes[row] = collections.encode(product.getCollection());
+            colorCodes[row] = colors.encode(product.getColor());
+            toneCodes[row] = tones.encode(product.getTone());
+            currencyCodes[row] = currencies.encode(product.getCurrency());
+        }
+    }
+
+    /**
+     * @param rows the priced availability rows
+     * @return the columns of the rows
+     */
+    public static PricedAvailabilityColumns of(List<PricedSlabAvailabilityDTO> rows) {
+        return new PricedAvailabilityColumns(rows);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int width(int row) {
+        return widths[row];
+    }
+
+    public int height(int row) {
+        return heights[row];
+    }
+
+    public int quantity(int row) {
+        return quantities[row];
+    }
+
+    /**
+     * @return the price of the row, NaN if the row has no price
+     */
+    public double price(int row) {
+        return prices[row];
+    }
+
+    public int collectionCode(int row) {
+        return collectionCodes[row];
+    }
+
+    public int colorCode(int row) {
+        return colorCodes[row];
+    }
+
+    public int toneCode(int row) {
+        return toneCodes[row];
+    }
+
+    public int currencyCode(int row) {
+        return currencyCodes[row];
+    }
+
+    public Dictionary getCollections() {
+        return collections;
+    }
+
+    public Dictionary getColors() {
+        return colors;
+    }
+
+    public Dictionary getTones() {
+        return tones;
+    }
+
+    public Dictionary getCurrencies() {
+        return currencies;
+    }
+
+    /**
+     * Selects the rows matching the filter
+     * @param filter the filter
+     * @param selection receives the matching rows, in increasing order; must be at least size() long
+     * @return the number of matching rows written to selection
+     */
+    public int select(ColumnFilter filter, int[] selection) {
+        int count = 0;
+
+        for (int row = 0; row < size; row++) {
+            if (filter.matches(this, row)) {
+                selection[count++] = row;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @param selection rows, as written by select
+     * @param count number of rows in selection
+     * @return the sum of price * quantity of the rows (rows without a price are ignored)
+     */
+    public double sumStockValue(int[] selection, int count) {
+        double sum = 0;
+
+        for (int i = 0; i < count; i++) {
+            int row = selection[i];
+            double price = prices[row];
+            if (!Double.isNaN(price)) {
+                sum += price * quantities[row];
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * @param selection rows, as written by select
+     * @param count number of rows in selection
+     * @return the lowest price of the rows, NaN if none of them has a price
+     */
+    public double minPrice(int[] selection, int count) {
+        double min = Double.NaN;
+
+        for (int i = 0; i < count; i++) {
+            double price = prices[selection[i]];
+            if (price < min || Double.isNaN(min)) {
+                min = price;
+            }
+        }
+
+        return min;
+    }
+
+    /**
+     * @param selection rows, as written by select
+     * @param count number of rows in selection
+     * @return the highest price of the rows, NaN if none of them has a price
+     */
+    public double maxPrice(int[] selection, int count) {
+        double max = Double.NaN;
+
+        for (int i = 0; i < count; i++) {
+            double price = prices[selection[i]];
+            if (price > max || Double.isNaN(max)) {
+                max = price;
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Distinct values of a string column. Codes are assigned in order of first appearance; lookups are
+     * case-insensitive, like the search filters
+     */
+    public static final class Dictionary {
+
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private int encode(String value) {
+            if (value == null) {
+                return NO_VALUE;
+            }
+
+            return codes.computeIfAbsent(normalize(value), key -> {
+                values.add(value);
+                return values.size() - 1;
+            });
+        }
+
+        /**
+         * @param value the value to look up
+         * @return the code of the value, MISSING if no row has it
+         */
+        public int codeOf(String value) {
+            return value == null ? MISSING : codes.getOrDefault(normalize(value), MISSING);
+        }
+
+        /**
+         * @param code a code of this dictionary
+         * @return the value as first seen in the rows
+         */
+        public String valueOf(int code) {
+            return values.get(code);
+        }
+
+        public int size() {
+            return values.size();
+        }
+
+        private static String normalize(String value) {
+            return value.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Reusable conjunction of single value and range predicates over the columns. Unset predicates don't filter;
+     * a categorical predicate on a value missing from the dictionary matches nothing
+     */
+    public static final class ColumnFilter {
+
+        private static final int ANY = Integer.MIN_VALUE;
+
+        private int collectionCode = ANY;
+        private int colorCode = ANY;
+        private int toneCode = ANY;
+        private int currencyCode = ANY;
+        private int minWidth = Integer.MIN_VALUE;
+        private int maxWidth = Integer.MAX_VALUE;
+        private int minHeight = Integer.MIN_VALUE;
+        private int maxHeight = Integer.MAX_VALUE;
+        private double minPrice = Double.NEGATIVE_INFINITY;
+        private double maxPrice = Double.POSITIVE_INFINITY;
+        private boolean priceBounded;
+        private boolean inStock;
+
+        public ColumnFilter collection(int code) {
+            this.collectionCode = code;
+            return this;
+        }
+
+        public ColumnFilter color(int code) {
+            this.colorCode = code;
+            return this;
+        }
+
+        public ColumnFilter tone(int code) {
+            this.toneCode = code;
+            return this;
+        }
+
+        public ColumnFilter currency(int code) {
+            this.currencyCode = code;
+            return this;
+        }
+
+        public ColumnFilter width(int min, int max) {
+            this.minWidth = min;
+            this.maxWidth = max;
+            return this;
+        }
+
+        public ColumnFilter height(int min, int max) {
+            this.minHeight = min;
+            this.maxHeight = max;
+            return this;
+        }
+
+        public ColumnFilter price(double min, double max) {
+            this.minPrice = min;
+            this.maxPrice = max;
+            this.priceBounded = true;
+            return this;
+        }
+
+        public ColumnFilter inStock(boolean inStock) {
+            this.inStock = inStock;
+            return this;
+        }
+
+        /**
+         * Removes every predicate, so that the instance can be reused
+         */
+        public ColumnFilter reset() {
+            collectionCode = ANY;
+            colorCode = ANY;
+            toneCode = ANY;
+            currencyCode = ANY;
+            minWidth = Integer.MIN_VALUE;
+            maxWidth = Integer.MAX_VALUE;
+            minHeight = Integer.MIN_VALUE;
+            maxHeight = Integer.MAX_VALUE;
+            minPrice = Double.NEGATIVE_INFINITY;
+            maxPrice = Double.POSITIVE_INFINITY;
+            priceBounded = false;
+            inStock = false;
+            return this;
+        }
+
+        private boolean matches(PricedAvailabilityColumns columns, int row) {
+            // NaN prices fail the comparisons, so rows without a price never match a price range
+            return (collectionCode == ANY || columns.collectionCodes[row] == collectionCode)
+                    && (colorCode == ANY || columns.colorCodes[row] == colorCode)
+                    && (toneCode == ANY || columns.toneCodes[row] == toneCode)
+                    && (currencyCode == ANY || columns.currencyCodes[row] == currencyCode)
+                    && columns.widths[row] >= minWidth && columns.widths[row] <= maxWidth
+                    && columns.heights[row] >= minHeight && columns.heights[row] <= maxHeight
+                    && (!priceBounded || (columns.prices[row] >= minPrice && columns.prices[row] <= maxPrice))
+                    && (!inStock || columns.quantities[row] > 0);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package service.catalog;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import repository.SlabRepository;
+
+/**
+ * Keeps the priced_availability materialized view up to date.
+ * The triggers of slab, pricelist and availability flag every change; the view is refreshed when the flag is set,
+ * every refresh-interval and right after the catalog batches written by this application. The refresh is concurrent:
+ * the availability queries keep reading the previous content of the view until it completes.
+ * A refresh done by the poll (i.e. for changes not written through the catalog batches, which reload the snapshot
+ * themselves) also reloads the catalog snapshot, so that the snapshot never serves an older catalog than the view.
+ */
+@Slf4j
+@ApplicationScoped
+public class PricedAvailabilityViewService {
+
+    @Inject
+    SlabRepository slabRepository;
+
+    @Inject
+    CatalogSnapshotService catalogSnapshotService;
+
+    /**
+     * Refreshes the view if the catalog changed since its last refresh
+     * @return true if the view was refreshed
+     * @throws RuntimeException if the view can't be refreshed
+     */
+    public boolean refreshIfChanged() throws RuntimeException {
+        long start = System.nanoTime();
+        try {
+            if (!slabRepository.refreshPricedAvailabilityIfChanged()) {
+                return false;
+            }
+
+            log.info("priced_availability refreshed in {} ms", (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to refresh priced_availability: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(every = "${catalog.priced-availability.refresh-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void poll() {
+        boolean refreshed;
+        try {
+            refreshed = refreshIfChanged();
+        } catch (Exception e) {
+            log.warn("{}, retrying at the next poll", e.getMessage());
+            return;
+        }
+
+        if (refreshed && catalogSnapshotService.isEnabled()) {
+            try {
+                catalogSnapshotService.refresh();
+            } catch (Exception e) {
+                log.warn("Catalog snapshot not reloaded after the priced_availability refresh: {}", e.getMessage());
+            }
+        }
+    }
+}
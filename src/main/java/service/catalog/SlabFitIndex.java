@@ -0,0 +1,332 @@
+package service.catalog;
+
+import controller.dto.PricedSlabAvailabilityDTO;
+import controller.dto.SlabFitDTO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+
+/**
+ * Answers "which in-stock slabs can contain a W x H piece" queries, rotation allowed.
+ * With rotation, a piece fits a slab if and only if the longer side of the slab is at least the longer side of the
+ * piece and the shorter side of the slab is at least the shorter side of the piece: a fit query is a 2D dominance
+ * query over the (longer side, shorter side) points of the slabs.
+ * Slabs with the same dimensions share one point. Points are sorted by longer side and kept in a merge sort tree:
+ * each node holds its points sorted by shorter side, with the suffix minimum of the area, so the smallest fitting
+ * slab is found in O(log^2 n) and the fitting slabs are enumerated in O(log^2 n + k). The rows of each point are
+ * sorted by price when the index is built; a fit query keeps the limit smallest fitting points in a bounded heap
+ * instead of sorting all of them.
+ */
+public final class SlabFitIndex {
+
+    private final List<PricedSlabAvailabilityDTO> rows;
+
+    // Distinct dimensions, sorted by longer side
+    private final int[] longSides;
+    private final int[] shortSides;
+    private final long[] areas;
+    // Rows (in stock) of each point, cheapest first
+    private final int[][] rowsByPoint;
+    private final double[] cheapestPrices;
+
+    // Merge sort tree over the points: node i covers a range of points, sorted by shorter side
+    private final int[][] pointsByShortSide;
+    private final int[][] suffixSmallestPoint;
+    private final int leaves;
+
+    private SlabFitIndex(List<PricedSlabAvailabilityDTO> rows, PricedAvailabilityColumns columns) {
+        this.rows = rows;
+
+        Map<Long, List<Integer>> rowsByDimensions = new HashMap<>();
+        for (int row = 0; row < columns.size(); row++) {
+            if (columns.quantity(row) > 0) {
+                int longSide = Math.max(columns.width(row), columns.height(row));
+                int shortSide = Math.min(columns.width(row), columns.height(row));
+                rowsByDimensions.computeIfAbsent(((long) longSide << 32) | shortSide, key -> new ArrayList<>()).add(row);
+            }
+        }
+
+        long[] dimensions = rowsByDimensions.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        int points = dimensions.length;
+
+        this.longSides = new int[points];
+        this.shortSides = new int[points];
+        this.areas = new long[points];
+        this.rowsByPoint = new int[points][];
+        this.cheapestPrices = new double[points];
+        for (int point = 0; point < points; point++) {
+            longSides[point] = (int) (dimensions[point] >>> 32);
+            shortSides[point] = (int) dimensions[point];
+            areas[point] = (long) longSides[point] * shortSides[point];
+            rowsByPoint[point] = rowsByDimensions.get(dimensions[point]).stream()
+                    .sorted(Comparator.comparingDouble(row -> priceOf(rows.get(row))))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            cheapestPrices[point] = priceOf(rows.get(rowsByPoint[point][0]));
+        }
+
+        int leaves = 1;
+        while (leaves < points) {
+            leaves <<= 1;
+        }
+        this.leaves = leaves;
+        this.pointsByShortSide = new int[2 * leaves][];
+        this.suffixSmallestPoint = new int[2 * leaves][];
+
+        for (int leaf = 0; leaf < leaves; leaf++) {
+            pointsByShortSide[leaves + leaf] = leaf < points ? new int[]{leaf} : new int[0];
+        }
+        for (int node = leaves - 1; node >= 1; node--) {
+            pointsByShortSide[node] = mergeByShortSide(pointsByShortSide[2 * node], pointsByShortSide[2 * node + 1]);
+        }
+        for (int node = 1; node < 2 * leaves; node++) {
+            suffixSmallestPoint[node] = suffixSmallest(pointsByShortSide[node]);
+        }
+    }
+
+    /**
+     * @param rows the priced availability rows of a snapshot
+     * @param columns the columns of the same rows
+     * @return the fit index of the in-stock rows
+     */
+    public static SlabFitIndex build(List<PricedSlabAvailabilityDTO> rows, PricedAvailabilityColumns columns) {
+        return new SlabFitIndex(rows, columns);
+    }
+
+    /**
+     * Lists the in-stock slabs that can contain the piece, least waste first (then cheapest)
+     * @param pieceWidth width of the piece
+     * @param pieceHeight height of the piece
+     * @param limit maximum number of slabs to return
+     * @return the fitting slabs
+     */
+    public List<SlabFitDTO> fits(int pieceWidth, int pieceHeight, int limit) {
+        int pieceLong = Math.max(pieceWidth, pieceHeight);
+        int pieceShort = Math.min(pieceWidth, pieceHeight);
+
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        // Every point has at least one row, so the limit smallest fitting points hold the limit best fits
+        PointHeap smallest = new PointHeap(Math.min(limit, longSides.length));
+        forEachCanonicalNode(pieceLong, node -> {
+            int[] nodePoints = pointsByShortSide[node];
+            for (int i = firstNotShorter(nodePoints, pieceShort); i < nodePoints.length; i++) {
+                smallest.offer(nodePoints[i]);
+            }
+        });
+        int[] points = smallest.sortedPoints();
+
+        List<SlabFitDTO> fits = new ArrayList<>(Math.min(limit, 64));
+        for (int point : points) {
+            for (int row : rowsByPoint[point]) {
+                if (fits.size() >= limit) {
+                    return fits;
+                }
+                fits.add(toFit(row, point, pieceWidth, pieceHeight));
+            }
+        }
+
+        return fits;
+    }
+
+    /**
+     * Finds the in-stock slab with the smallest area that can contain the piece (the cheapest among same sized ones)
+     * @param pieceWidth width of the piece
+     * @param pieceHeight height of the piece
+     * @return the smallest fitting slab, or an empty Optional if no slab fits
+     */
+    public Optional<SlabFitDTO> smallestFit(int pieceWidth, int pieceHeight) {
+        int pieceLong = Math.max(pieceWidth, pieceHeight);
+        int pieceShort = Math.min(pieceWidth, pieceHeight);
+
+        int[] best = {-1};
+        forEachCanonicalNode(pieceLong, node -> {
+            int first = firstNotShorter(pointsByShortSide[node], pieceShort);
+            if (first < pointsByShortSide[node].length) {
+                int candidate = suffixSmallestPoint[node][first];
+                if (best[0] < 0 || areas[candidate] < areas[best[0]]) {
+                    best[0] = candidate;
+                }
+            }
+        });
+
+        if (best[0] < 0) {
+            return Optional.empty();
+        }
+
+        return Optional.of(toFit(rowsByPoint[best[0]][0], best[0], pieceWidth, pieceHeight));
+    }
+
+    /**
+     * Visits the O(log n) tree nodes covering the points whose longer side is at least minLongSide
+     */
+    private void forEachCanonicalNode(int minLongSide, IntConsumer visitor) {
+        int low = 0;
+        int high = longSides.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (longSides[middle] < minLongSide) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        // Points [low, leaves) over the implicit tree, bottom up
+        int left = low + leaves;
+        int right = 2 * leaves;
+        while (left < right) {
+            if ((left & 1) == 1) {
+                visitor.accept(left++);
+            }
+            if ((right & 1) == 1) {
+                visitor.accept(--right);
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+    }
+
+    private int firstNotShorter(int[] nodePoints, int minShortSide) {
+        int low = 0;
+        int high = nodePoints.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (shortSides[nodePoints[middle]] < minShortSide) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int[] mergeByShortSide(int[] left, int[] right) {
+        int[] merged = new int[left.length + right.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < left.length && j < right.length) {
+            merged[k++] = shortSides[left[i]] <= shortSides[right[j]] ? left[i++] : right[j++];
+        }
+        while (i < left.length) {
+            merged[k++] = left[i++];
+        }
+        while (j < right.length) {
+            merged[k++] = right[j++];
+        }
+        return merged;
+    }
+
+    private int[] suffixSmallest(int[] nodePoints) {
+        int[] smallest = new int[nodePoints.length];
+        for (int i = nodePoints.length - 1; i >= 0; i--) {
+            smallest[i] = i == nodePoints.length - 1 || areas[nodePoints[i]] < areas[smallest[i + 1]]
+                    ? nodePoints[i]
+                    : smallest[i + 1];
+        }
+        return smallest;
+    }
+
+    private SlabFitDTO toFit(int row, int point, int pieceWidth, int pieceHeight) {
+        PricedSlabAvailabilityDTO product = rows.get(row);
+        boolean rotated = product.getWidth() < pieceWidth || product.getHeight() < pieceHeight;
+        long waste = areas[point] - (long) pieceWidth * pieceHeight;
+
+        return new SlabFitDTO(product, rotated, waste, areas[point] == 0 ? 0 : (double) waste / areas[point]);
+    }
+
+    private static double priceOf(PricedSlabAvailabilityDTO product) {
+        return product.getPrice() == null ? Double.MAX_VALUE : product.getPrice();
+    }
+
+    /**
+     * Bounded max-heap of points by area (then cheapest price, then point), keeping the capacity smallest points
+     * offered
+     */
+    private final class PointHeap {
+
+        private final int[] heap;
+        private int size;
+
+        private PointHeap(int capacity) {
+            this.heap = new int[capacity];
+        }
+
+        private void offer(int point) {
+            if (size < heap.length) {
+                heap[size] = point;
+                siftUp(size++);
+            } else if (heap.length > 0 && larger(heap[0], point)) {
+                heap[0] = point;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * @return the points kept, smallest first
+         */
+        private int[] sortedPoints() {
+            int[] sorted = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                sorted[i] = heap[0];
+                heap[0] = heap[--size];
+                siftDown(0);
+            }
+            return sorted;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!larger(heap[index], heap[parent])) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int largest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && larger(heap[left], heap[largest])) {
+                    largest = left;
+                }
+                if (right < size && larger(heap[right], heap[largest])) {
+                    largest = right;
+                }
+                if (largest == index) {
+                    return;
+                }
+                swap(index, largest);
+                index = largest;
+            }
+        }
+
+        private boolean larger(int first, int second) {
+            if (areas[first] != areas[second]) {
+                return areas[first] > areas[second];
+            }
+            if (cheapestPrices[first] != cheapestPrices[second]) {
+                return cheapestPrices[first] > cheapestPrices[second];
+            }
+            return first > second;
+        }
+
+        private void swap(int first, int second) {
+            int swapped = heap[first];
+            heap[first] = heap[second];
+            heap[second] = swapped;
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package service.catalog;
+
+import controller.dto.PricedSlabAvailabilityDTO;
+import controller.dto.SlabFacetsResponseDTO;
+import controller.dto.SlabSearchResponseDTO;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import service.catalog.PricedAvailabilityColumns.Dictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Immutable search index over the priced availability rows of a catalog snapshot.
+ * Rows are identified by their position in the snapshot list (so results come out in id order) and the index is
+ * built from the columnar copy of the rows held by the snapshot. Each categorical
+ * value has a compressed bitmap of the rows holding it, numeric attributes are kept as row ids sorted by value, so
+ * that a range is a contiguous slice found with two binary searches. A query is the intersection of the bitmaps of
+ * its predicates; a range whose slice is larger than the rows still matching is checked row by row instead.
+ * Facet counts are the cardinalities of the intersections of the postings (and of the size/price band bitmaps) with
+ * the matching rows; the unfiltered counts are computed once per index.
+ */
+public final class SlabSearchIndex {
+
+    private final long version;
+    private final List<PricedSlabAvailabilityDTO> rows;
+
+    private final PricedAvailabilityColumns columns;
+
+    private final RoaringBitmap allRows;
+    private final RoaringBitmap inStockRows;
+    // Postings indexed by dictionary code
+    private final RoaringBitmap[] rowsByCollection;
+    private final RoaringBitmap[] rowsByColor;
+    private final RoaringBitmap[] rowsByTone;
+
+    private final NumericColumn widths;
+    private final NumericColumn heights;
+    private final NumericColumn prices;
+
+    // Facet bands: bucket i holds the values in [edges[i - 1], edges[i]), with open ends
+    private final double[] sizeBandEdges;
+    private final double[] priceBandEdges;
+    private final RoaringBitmap[] rowsBySizeBand;
+    private final RoaringBitmap[] rowsByPriceBand;
+    private final SlabFacetsResponseDTO unfilteredFacets;
+
+    private final SlabFitIndex fitIndex;
+
+    private SlabSearchIndex(CatalogSnapshot snapshot, double[] sizeBandEdges, double[] priceBandEdges) {
+        this.version = snapshot.getVersion();
+        this.rows = snapshot.getProductsWithAvailability();
+        this.columns = snapshot.getProductsWithAvailabilityColumns();
+
+        int size = columns.size();
+        this.allRows = RoaringBitmap.bitmapOfRange(0, size);
+        this.inStockRows = new RoaringBitmap();
+        this.rowsByCollection = newPostings(columns.getCollections());
+        this.rowsByColor = newPostings(columns.getColors());
+        this.rowsByTone = newPostings(columns.getTones());
+
+        this.sizeBandEdges = sizeBandEdges;
+        this.priceBandEdges = priceBandEdges;
+        this.rowsBySizeBand = newBands(sizeBandEdges);
+        this.rowsByPriceBand = newBands(priceBandEdges);
+
+        for (int row = 0; row < size; row++) {
+            addPosting(rowsByCollection, columns.collectionCode(row), row);
+            addPosting(rowsByColor, columns.colorCode(row), row);
+            addPosting(rowsByTone, columns.toneCode(row), row);
+            if (columns.quantity(row) > 0) {
+                inStockRows.add(row);
+            }
+            // The size of a slab is its longer side
+            rowsBySizeBand[band(sizeBandEdges, Math.max(columns.width(row), columns.height(row)))].add(row);
+            if (!Double.isNaN(columns.price(row))) {
+                rowsByPriceBand[band(priceBandEdges, columns.price(row))].add(row);
+            }
+        }
+
+        inStockRows.runOptimize();
+        Stream.of(rowsByCollection, rowsByColor, rowsByTone, rowsBySizeBand, rowsByPriceBand)
+                .flatMap(Arrays::stream)
+                .forEach(RoaringBitmap::runOptimize);
+
+        this.widths = new NumericColumn(size, columns::width);
+        this.heights = new NumericColumn(size, columns::height);
+        this.prices = new NumericColumn(size, columns::price);
+
+        this.unfilteredFacets = facetsOf(null);
+
+        this.fitIndex = SlabFitIndex.build(rows, columns);
+    }
+
+    /**
+     * @param snapshot the snapshot to index
+     * @param sizeBandEdges increasing bounds of the size facet bands
+     * @param priceBandEdges increasing bounds of the price facet bands
+     * @return the index of the priced availability rows of the snapshot
+     */
+    public static SlabSearchIndex build(CatalogSnapshot snapshot, double[] sizeBandEdges, double[] priceBandEdges) {
+        return new SlabSearchIndex(snapshot, sizeBandEdges, priceBandEdges);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the fit index of the in-stock rows of the same snapshot
+     */
+    public SlabFitIndex getFitIndex() {
+        return fitIndex;
+    }
+
+    /**
+     * @param query the filters
+     * @param limit maximum number of rows to return
+     * @param offset number of matching rows to skip, in id order
+     * @return the number of matching rows and the requested page of them
+     */
+    public SlabSearchResponseDTO search(SlabSearchQuery query, int limit, int offset) {
+        RoaringBitmap matches = matching(query);
+        if (matches == null) {
+            matches = allRows;
+        }
+
+        List<PricedSlabAvailabilityDTO> page = new ArrayList<>(Math.max(0, Math.min(limit, matches.getCardinality() - offset)));
+        IntIterator iterator = matches.getIntIterator();
+        for (int skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(rows.get(iterator.next()));
+        }
+
+        return new SlabSearchResponseDTO(matches.getCardinality(), page);
+    }
+
+    /**
+     * Counts the rows matching the query per collection, color, tone, size band and price band.
+     * The counts without filters are computed once, when the index is built
+     * @param query the filters
+     * @return the facet counts; values without matching rows are omitted
+     */
+    public SlabFacetsResponseDTO facets(SlabSearchQuery query) {
+        return query.isUnfiltered() ? unfilteredFacets : facetsOf(matching(query));
+    }
+
+    /**
+     * @return the rows matching the query, null if the query has no filter
+     */
+    private RoaringBitmap matching(SlabSearchQuery query) {
+        RoaringBitmap matches = null;
+
+        matches = intersectAny(matches, rowsByCollection, columns.getCollections(), query.collections());
+        matches = intersectAny(matches, rowsByColor, columns.getColors(), query.colors());
+        matches = intersectAny(matches, rowsByTone, columns.getTones(), query.tones());
+        if (query.inStock()) {
+            matches = intersect(matches, inStockRows);
+        }
+
+        matches = widths.filter(matches, toDouble(query.minWidth()), toDouble(query.maxWidth()));
+        matches = heights.filter(matches, toDouble(query.minHeight()), toDouble(query.maxHeight()));
+        return prices.filter(matches, query.minPrice(), query.maxPrice());
+    }
+
+    /**
+     * @param matches the rows to count, null for all rows
+     */
+    private SlabFacetsResponseDTO facetsOf(RoaringBitmap matches) {
+        return new SlabFacetsResponseDTO(
+                matches == null ? allRows.getCardinality() : matches.getCardinality(),
+                countByValue(rowsByCollection, columns.getCollections(), matches),
+                countByValue(rowsByColor, columns.getColors(), matches),
+                countByValue(rowsByTone, columns.getTones(), matches),
+                countByBand(rowsBySizeBand, sizeBandEdges, matches),
+                countByBand(rowsByPriceBand, priceBandEdges, matches));
+    }
+
+    private static Map<String, Integer> countByValue(RoaringBitmap[] postings, Dictionary dictionary, RoaringBitmap matches) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int code = 0; code < postings.length; code++) {
+            int count = count(postings[code], matches);
+            if (count > 0) {
+                counts.put(dictionary.valueOf(code), count);
+            }
+        }
+        return counts;
+    }
+
+    private static Map<String, Integer> countByBand(RoaringBitmap[] bands, double[] edges, RoaringBitmap matches) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int band = 0; band < bands.length; band++) {
+            int count = count(bands[band], matches);
+            if (count > 0) {
+                counts.put(bandLabel(edges, band), count);
+            }
+        }
+        return counts;
+    }
+
+    private static int count(RoaringBitmap posting, RoaringBitmap matches) {
+        return matches == null ? posting.getCardinality() : RoaringBitmap.andCardinality(posting, matches);
+    }
+
+    /**
+     * Intersects the candidates with the union of the postings of the values
+     * @return the new candidates, or the given ones if values is empty (null candidates meaning all rows)
+     */
+    private static RoaringBitmap intersectAny(RoaringBitmap candidates, RoaringBitmap[] postings, Dictionary dictionary,
+                                              Set<String> values) {
+        if (values == null || values.isEmpty()) {
+            return candidates;
+        }
+
+        List<RoaringBitmap> matching = new ArrayList<>(values.size());
+        for (String value : values) {
+            int code = dictionary.codeOf(value);
+            if (code >= 0) {
+                matching.add(postings[code]);
+            }
+        }
+
+        RoaringBitmap union = switch (matching.size()) {
+            case 0 -> new RoaringBitmap();
+            case 1 -> matching.get(0);
+            default -> FastAggregation.or(matching.iterator());
+        };
+
+        return intersect(candidates, union);
+    }
+
+    // Postings are shared by all queries and must never be modified: intersections always allocate a new bitmap
+    private static RoaringBitmap intersect(RoaringBitmap candidates, RoaringBitmap bitmap) {
+        return candidates == null ? bitmap : RoaringBitmap.and(candidates, bitmap);
+    }
+
+    private static RoaringBitmap[] newPostings(Dictionary dictionary) {
+        RoaringBitmap[] postings = new RoaringBitmap[dictionary.size()];
+        Arrays.setAll(postings, code -> new RoaringBitmap());
+        return postings;
+    }
+
+    private static RoaringBitmap[] newBands(double[] edges) {
+        RoaringBitmap[] bands = new RoaringBitmap[edges.length + 1];
+        Arrays.setAll(bands, band -> new RoaringBitmap());
+        return bands;
+    }
+
+    private static int band(double[] edges, double value) {
+        int band = 0;
+        while (band < edges.length && value >= edges[band]) {
+            band++;
+        }
+        return band;
+    }
+
+    private static String bandLabel(double[] edges, int band) {
+        if (edges.length == 0) {
+            return "all";
+        }
+        if (band == 0) {
+            return "<" + formatEdge(edges[0]);
+        }
+        if (band == edges.length) {
+            return ">=" + formatEdge(edges[edges.length - 1]);
+        }
+        return formatEdge(edges[band - 1]) + "-" + formatEdge(edges[band]);
+    }
+
+    private static String formatEdge(double edge) {
+        return edge == Math.rint(edge) ? String.valueOf((long) edge) : String.valueOf(edge);
+    }
+
+    private static void addPosting(RoaringBitmap[] postings, int code, int row) {
+        if (code >= 0) {
+            postings[code].add(row);
+        }
+    }
+
+    private static Double toDouble(Integer value) {
+        return value == null ? null : value.doubleValue();
+    }
+
+    /**
+     * Row ids sorted by the value of a numeric attribute (NaN values are not indexed); the values by row are read
+     * from the snapshot columns.
+     * The sorted row ids are split into buckets of about the same size, each with its own bitmap: a range is the
+     * union of the bitmaps of the buckets it fully covers, plus the few rows of the two partially covered ones
+     */
+    private static final class NumericColumn {
+
+        private static final int BUCKETS = 64;
+
+        private final IntToDoubleFunction valuesByRow;
+        private final int[] rowsByValue;
+        private final double[] sortedValues;
+        // Bucket b holds rowsByValue[bucketStarts[b], bucketStarts[b + 1])
+        private final int[] bucketStarts;
+        private final RoaringBitmap[] bucketRows;
+
+        private NumericColumn(int size, IntToDoubleFunction valuesByRow) {
+            this.valuesByRow = valuesByRow;
+            this.rowsByValue = IntStream.range(0, size)
+                    .filter(row -> !Double.isNaN(valuesByRow.applyAsDouble(row)))
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(valuesByRow::applyAsDouble))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            this.sortedValues = new double[rowsByValue.length];
+            for (int i = 0; i < rowsByValue.length; i++) {
+                sortedValues[i] = valuesByRow.applyAsDouble(rowsByValue[i]);
+            }
+
+            int buckets = Math.min(BUCKETS, Math.max(1, rowsByValue.length));
+            this.bucketStarts = new int[buckets + 1];
+            this.bucketRows = new RoaringBitmap[buckets];
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                bucketStarts[bucket + 1] = (int) ((long) rowsByValue.length * (bucket + 1) / buckets);
+                bucketRows[bucket] = slice(bucketStarts[bucket], bucketStarts[bucket + 1]);
+            }
+        }
+
+        /**
+         * Keeps the candidates whose value is in [min, max]
+         * @return the new candidates, or the given ones if both bounds are null (null candidates meaning all rows)
+         */
+        private RoaringBitmap filter(RoaringBitmap candidates, Double min, Double max) {
+            if (min == null && max == null) {
+                return candidates;
+            }
+
+            double low = min == null ? Double.NEGATIVE_INFINITY : min;
+            double high = max == null ? Double.POSITIVE_INFINITY : max;
+            int from = firstIndexNotBelow(low);
+            int to = firstIndexAbove(high);
+
+            if (from >= to) {
+                return new RoaringBitmap();
+            }
+
+            // Checking few candidates one by one is cheaper than materializing a large slice
+            if (candidates != null && candidates.getCardinality() < to - from) {
+                RoaringBitmap kept = new RoaringBitmap();
+                candidates.forEach((int row) -> {
+                    double value = valuesByRow.applyAsDouble(row);
+                    if (value >= low && value <= high) {
+                        kept.add(row);
+                    }
+                });
+                return kept;
+            }
+
+            return intersect(candidates, rowsInRange(from, to));
+        }
+
+        /**
+         * @return the rows of rowsByValue[from, to)
+         */
+        private RoaringBitmap rowsInRange(int from, int to) {
+            int firstFullBucket = 0;
+            while (bucketStarts[firstFullBucket] < from) {
+                firstFullBucket++;
+            }
+            int endFullBuckets = firstFullBucket;
+            while (endFullBuckets < bucketRows.length && bucketStarts[endFullBuckets + 1] <= to) {
+                endFullBuckets++;
+            }
+
+            if (firstFullBucket >= endFullBuckets) {
+                return slice(from, to);
+            }
+
+            List<RoaringBitmap> parts = new ArrayList<>(endFullBuckets - firstFullBucket + 2);
+            parts.addAll(Arrays.asList(bucketRows).subList(firstFullBucket, endFullBuckets));
+            parts.add(slice(from, bucketStarts[firstFullBucket]));
+            parts.add(slice(bucketStarts[endFullBuckets], to));
+
+            return FastAggregation.or(parts.iterator());
+        }
+
+        private RoaringBitmap slice(int from, int to) {
+            RoaringBitmap slice = new RoaringBitmap();
+            if (to > from) {
+                slice.addN(rowsByValue, from, to - from);
+            }
+            return slice;
+        }
+
+        private int firstIndexNotBelow(double value) {
+            int low = 0;
+            int high = sortedValues.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sortedValues[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int firstIndexAbove(double value) {
+            int low = 0;
+            int high = sortedValues.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sortedValues[middle] <= value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package service.catalog;
+
+import java.util.Set;
+
+/**
+ * Filters of a slab search. Values of the same attribute are in OR, attributes are in AND; null bounds and empty
+ * sets don't filter. Categorical values are compared case-insensitively
+ */
+public record SlabSearchQuery(Set<String> collections,
+                              Set<String> colors,
+                              Set<String> tones,
+                              Integer minWidth,
+                              Integer maxWidth,
+                              Integer minHeight,
+                              Integer maxHeight,
+                              Double minPrice,
+                              Double maxPrice,
+                              boolean inStock) {
+
+    /**
+     * @return true if the query has no filter at all
+     */
+    public boolean isUnfiltered() {
+        return (collections == null || collections.isEmpty())
+                && (colors == null || colors.isEmpty())
+                && (tones == null || tones.isEmpty())
+                && minWidth == null && maxWidth == null
+                && minHeight == null && maxHeight == null
+                && minPrice == null && maxPrice == null
+                && !inStock;
+    }
+}
@@ -0,0 +1,106 @@
+package service.catalog;
+
+import controller.dto.SlabFacetsResponseDTO;
+import controller.dto.SlabFitDTO;
+import controller.dto.SlabSearchResponseDTO;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.ObservesAsync;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the SlabSearchIndex (search, facet counts and fit queries) in step with the catalog snapshot.
+ * A new index is built in the background as soon as a snapshot is loaded, while queries keep being answered by the
+ * previous index; queries only build the index themselves when none exists yet.
+ */
+@Slf4j
+@ApplicationScoped
+public class SlabSearchService {
+
+    @Inject
+    CatalogSnapshotService catalogSnapshotService;
+
+    // Configuration parameters
+    private final double[] SIZE_BAND_EDGES = ConfigProvider.getConfig().getOptionalValues("catalog.facets.size-band-edges", Double.class)
+            .map(edges -> edges.stream().mapToDouble(Double::doubleValue).sorted().toArray()).orElse(new double[0]);
+    private final double[] PRICE_BAND_EDGES = ConfigProvider.getConfig().getOptionalValues("catalog.facets.price-band-edges", Double.class)
+            .map(edges -> edges.stream().mapToDouble(Double::doubleValue).sorted().toArray()).orElse(new double[0]);
+
+    private final AtomicReference<SlabSearchIndex> index = new AtomicReference<>();
+
+    public boolean isEnabled() {
+        return catalogSnapshotService.isEnabled();
+    }
+
+    /**
+     * @param query the filters
+     * @param limit maximum number of products to return
+     * @param offset number of matching products to skip, in id order
+     * @return the number of matching products and the requested page of them
+     * @throws RuntimeException if the catalog cannot be loaded
+     */
+    public SlabSearchResponseDTO search(SlabSearchQuery query, int limit, int offset) throws RuntimeException {
+        return currentIndex().search(query, limit, offset);
+    }
+
+    /**
+     * @param query the filters
+     * @return the counts of the matching products per collection, color, tone, size band and price band
+     * @throws RuntimeException if the catalog cannot be loaded
+     */
+    public SlabFacetsResponseDTO facets(SlabSearchQuery query) throws RuntimeException {
+        return currentIndex().facets(query);
+    }
+
+    /**
+     * @param pieceWidth width of the piece to cut
+     * @param pieceHeight height of the piece to cut
+     * @param limit maximum number of slabs to return
+     * @return the in-stock slabs that can contain the piece, rotation allowed, least waste first
+     * @throws RuntimeException if the catalog cannot be loaded
+     */
+    public List<SlabFitDTO> fits(int pieceWidth, int pieceHeight, int limit) throws RuntimeException {
+        return currentIndex().getFitIndex().fits(pieceWidth, pieceHeight, limit);
+    }
+
+    /**
+     * @param pieceWidth width of the piece to cut
+     * @param pieceHeight height of the piece to cut
+     * @return the smallest in-stock slab that can contain the piece, rotation allowed, or an empty Optional
+     * @throws RuntimeException if the catalog cannot be loaded
+     */
+    public Optional<SlabFitDTO> smallestFit(int pieceWidth, int pieceHeight) throws RuntimeException {
+        return currentIndex().getFitIndex().smallestFit(pieceWidth, pieceHeight);
+    }
+
+    private SlabSearchIndex currentIndex() throws RuntimeException {
+        SlabSearchIndex current = index.get();
+        return current != null ? current : rebuild(catalogSnapshotService.current());
+    }
+
+    void onSnapshotLoaded(@ObservesAsync CatalogSnapshot snapshot) {
+        rebuild(snapshot);
+    }
+
+    /**
+     * Indexes the snapshot, unless a newer one has already been indexed
+     */
+    private synchronized SlabSearchIndex rebuild(CatalogSnapshot snapshot) {
+        SlabSearchIndex current = index.get();
+        if (current != null && current.getVersion() >= snapshot.getVersion()) {
+            return current;
+        }
+
+        long start = System.nanoTime();
+        SlabSearchIndex newIndex = SlabSearchIndex.build(snapshot, SIZE_BAND_EDGES, PRICE_BAND_EDGES);
+        index.set(newIndex);
+
+        log.info("Search index of catalog version {} built in {} ms", snapshot.getVersion(), (System.nanoTime() - start) / 1_000_000);
+        return newIndex;
+    }
+}
@@ -0,0 +1,109 @@
+package utils;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Semaphore whose permits are acquired through futures, so that it can gate both blocking and non-blocking callers.
+ * Callers that find no permit available are queued in FIFO order and completed when a permit is released.
+ */
+public class AsyncSemaphore {
+
+    private final int permits;
+    private final AtomicInteger available;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Queue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+
+    public AsyncSemaphore(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+        this.permits = permits;
+        this.available = new AtomicInteger(permits);
+    }
+
+    /**
+     * Acquires a permit
+     * @return a future completed once the permit is granted. The permit must then be returned with release().
+     * Cancelling the future before it completes withdraws the request
+     */
+    public CompletableFuture<Void> acquire() {
+        int current;
+        while ((current = available.get()) > 0) {
+            if (available.compareAndSet(current, current - 1)) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        pending.incrementAndGet();
+        waiters.add(waiter);
+
+        // A permit may have been released between the check above and the enqueue
+        drain();
+        return waiter;
+    }
+
+    /**
+     * Returns a permit, handing it over to the oldest waiter if any
+     */
+    public void release() {
+        available.incrementAndGet();
+        drain();
+    }
+
+    private void drain() {
+        while (!waiters.isEmpty()) {
+            int current = available.get();
+            if (current <= 0) {
+                return;
+            }
+            if (!available.compareAndSet(current, current - 1)) {
+                continue;
+            }
+
+            CompletableFuture<Void> waiter = waiters.poll();
+            if (waiter == null) {
+                available.incrementAndGet();
+                return;
+            }
+
+            pending.decrementAndGet();
+
+            // Waiters cancelled while queued give the permit back
+            if (!waiter.complete(null)) {
+                available.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return the total number of permits
+     */
+    public int permits() {
+        return permits;
+    }
+
+    /**
+     * @return the number of permits currently granted
+     */
+    public int leased() {
+        return permits - Math.max(available.get(), 0);
+    }
+
+    /**
+     * @return the number of permits currently available
+     */
+    public int idle() {
+        return Math.max(available.get(), 0);
+    }
+
+    /**
+     * @return the number of callers waiting for a permit
+     */
+    public int pending() {
+        return pending.get();
+    }
+}
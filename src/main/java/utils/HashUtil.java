@@ -36,4 +36,25 @@ public class HashUtil {
             throw new RuntimeException("error", e);
         }
     }
+
+    /**
+     * Computes the SHA-256 digest of a string, encoded in url friendly base 64.
+     * Used to key in-memory structures by secrets (e.g.: bearer tokens) without retaining the secret itself
+     * @param string The string to digest
+     * @return A base64 string representing the digest
+     * @throws RuntimeException If the SHA-256 algorithm is not available
+     */
+    public static String sha256UrlFriendly(String string) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+            byte[] hashBytes = digest.digest(string.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hashBytes);
+
+        } catch (NoSuchAlgorithmException e) {
+            String error = String.format("Error while generating SHA-256 digest: %s", e.getMessage());
+            log.error(error);
+            throw new RuntimeException("error", e);
+        }
+    }
 }
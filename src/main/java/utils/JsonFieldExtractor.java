@@ -0,0 +1,174 @@
+package utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.ws.rs.core.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pulls a few scalar fields out of a JSON object without building the whole tree.
+ * The body is read straight from the input stream with a streaming parser, nested objects and arrays that are not
+ * needed are skipped without being materialized, and parsing stops as soon as all the requested fields were read.
+ * Fields of nested objects are requested with a dotted path (e.g. "realm_access.roles"); a requested array is read
+ * as the list of its scalar elements.
+ */
+public final class JsonFieldExtractor {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private JsonFieldExtractor() {
+    }
+
+    /**
+     * Reads the requested fields from the body of the response
+     * @param response the response with a JSON object body
+     * @param fieldNames names (or dotted paths) of the fields to read
+     * @return the fields found in the body
+     * @throws RuntimeException if the body is not a JSON object
+     */
+    public static JsonFields extract(Response response, String... fieldNames) throws RuntimeException {
+        try (InputStream inputStream = response.readEntity(InputStream.class)) {
+            return extract(inputStream, fieldNames);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse response body: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the requested fields from a JSON object
+     * @param inputStream stream of a JSON object
+     * @param fieldNames names (or dotted paths) of the fields to read
+     * @return the fields found in the stream
+     * @throws IOException if the stream cannot be read or is not a JSON object
+     */
+    public static JsonFields extract(InputStream inputStream, String... fieldNames) throws IOException {
+        Set<String> wanted = Set.of(fieldNames);
+        Map<String, String> values = new HashMap<>(fieldNames.length * 2);
+        Map<String, List<String>> lists = new HashMap<>();
+
+        try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
+            }
+
+            readObject(parser, "", wanted, values, lists);
+        }
+
+        return new JsonFields(values, lists);
+    }
+
+    /**
+     * Reads the object the parser is positioned on, until its END_OBJECT or until all the fields were found
+     * @return true if all the requested fields were found
+     */
+    private static boolean readObject(JsonParser parser, String prefix, Set<String> wanted,
+                                      Map<String, String> values, Map<String, List<String>> lists) throws IOException {
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String path = prefix + parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+
+            if (valueToken == JsonToken.START_OBJECT && isParentOfWanted(path, wanted)) {
+                if (readObject(parser, path + ".", wanted, values, lists)) {
+                    return true;
+                }
+            } else if (valueToken == JsonToken.START_ARRAY && wanted.contains(path)) {
+                lists.put(path, readScalarArray(parser));
+            } else if (valueToken.isStructStart()) {
+                parser.skipChildren();
+            } else if (wanted.contains(path) && valueToken != JsonToken.VALUE_NULL) {
+                values.put(path, parser.getText());
+            }
+
+            if (values.size() + lists.size() == wanted.size()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isParentOfWanted(String path, Set<String> wanted) {
+        for (String fieldName : wanted) {
+            if (fieldName.length() > path.length() && fieldName.startsWith(path) && fieldName.charAt(path.length()) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> readScalarArray(JsonParser parser) throws IOException {
+        List<String> elements = new ArrayList<>();
+
+        JsonToken elementToken;
+        while ((elementToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (elementToken.isStructStart()) {
+                parser.skipChildren();
+            } else if (elementToken != JsonToken.VALUE_NULL) {
+                elements.add(parser.getText());
+            }
+        }
+
+        return elements;
+    }
+
+    /**
+     * Scalar fields read from a JSON object, kept in their textual form
+     */
+    public static final class JsonFields {
+
+        private final Map<String, String> values;
+        private final Map<String, List<String>> lists;
+
+        private JsonFields(Map<String, String> values, Map<String, List<String>> lists) {
+            this.values = values;
+            this.lists = lists;
+        }
+
+        public boolean has(String fieldName) {
+            return values.containsKey(fieldName) || lists.containsKey(fieldName);
+        }
+
+        /**
+         * @param fieldName name of the field
+         * @return the value of the field
+         * @throws IllegalArgumentException if the field is missing or null
+         */
+        public String getString(String fieldName) throws IllegalArgumentException {
+            String value = values.get(fieldName);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing field " + fieldName);
+            }
+            return value;
+        }
+
+        public String optString(String fieldName) {
+            return values.get(fieldName);
+        }
+
+        public boolean optBoolean(String fieldName) {
+            return Boolean.parseBoolean(values.get(fieldName));
+        }
+
+        public Long optLong(String fieldName) {
+            String value = values.get(fieldName);
+            return value == null ? null : Long.valueOf(value);
+        }
+
+        /**
+         * @param fieldName name of an array field
+         * @return the scalar elements of the array, empty if the field is missing
+         */
+        public List<String> optStringList(String fieldName) {
+            return lists.getOrDefault(fieldName, List.of());
+        }
+    }
+}
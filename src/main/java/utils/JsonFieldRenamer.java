@@ -0,0 +1,124 @@
+package utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Incrementally rewrites a JSON object whose bytes arrive in chunks: the top level fields listed in the renames are
+ * written under their new name, every other top level field is dropped. Chunks are fed to a non-blocking parser and
+ * the output produced so far is returned after each chunk, so the document is never held in memory as a whole.
+ * An instance handles exactly one document and is not thread safe.
+ */
+public class JsonFieldRenamer {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Map<String, String> renames;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final ByteArrayBuilder output = new ByteArrayBuilder();
+    private final JsonGenerator generator;
+
+    private int depth;
+    private boolean dropNextValue;
+    // Depth at which the dropped structured value ends, -1 when nothing is being dropped
+    private int droppingUntilDepth = -1;
+
+    /**
+     * @param renames original top level field name -> name written in the output
+     * @throws IOException if the parser or the generator cannot be created
+     */
+    public JsonFieldRenamer(Map<String, String> renames) throws IOException {
+        this.renames = renames;
+        this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.generator = JSON_FACTORY.createGenerator(output);
+    }
+
+    /**
+     * Feeds the next chunk of the document
+     * @param chunk bytes of the document
+     * @return the rewritten bytes that could be produced with the input received so far (possibly empty)
+     * @throws IOException if the document is not valid JSON
+     */
+    public byte[] transform(byte[] chunk) throws IOException {
+        feeder.feedInput(chunk, 0, chunk.length);
+        drainTokens();
+        return flushOutput();
+    }
+
+    /**
+     * Signals the end of the document
+     * @return the remaining rewritten bytes
+     * @throws IOException if the document is truncated or not valid JSON
+     */
+    public byte[] finish() throws IOException {
+        feeder.endOfInput();
+        drainTokens();
+
+        if (depth != 0) {
+            throw new IOException("Truncated JSON document");
+        }
+
+        generator.close();
+        return output.toByteArray();
+    }
+
+    private void drainTokens() throws IOException {
+        JsonToken token;
+
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (droppingUntilDepth >= 0) {
+                depth += depthChange(token);
+                if (depth == droppingUntilDepth) {
+                    droppingUntilDepth = -1;
+                }
+                continue;
+            }
+
+            if (dropNextValue) {
+                dropNextValue = false;
+                if (token.isStructStart()) {
+                    droppingUntilDepth = depth;
+                    depth += 1;
+                }
+                continue;
+            }
+
+            if (token == JsonToken.FIELD_NAME && depth == 1) {
+                String renamed = renames.get(parser.currentName());
+
+                if (renamed == null) {
+                    dropNextValue = true;
+                } else {
+                    generator.writeFieldName(renamed);
+                }
+                continue;
+            }
+
+            depth += depthChange(token);
+            generator.copyCurrentEvent(parser);
+        }
+    }
+
+    private static int depthChange(JsonToken token) {
+        if (token.isStructStart()) {
+            return 1;
+        }
+        return token.isStructEnd() ? -1 : 0;
+    }
+
+    private byte[] flushOutput() throws IOException {
+        generator.flush();
+        byte[] bytes = output.toByteArray();
+        output.reset();
+        return bytes;
+    }
+}
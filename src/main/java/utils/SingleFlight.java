@@ -0,0 +1,78 @@
+package utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of in-flight calls: concurrent callers asking for the same key share one outstanding call and its result.
+ * The first caller (the leader) starts the call, the others wait for the same future. The entry is removed as soon as
+ * the call completes, successfully or not, so failures are propagated to the current waiters but never cached.
+ * The registry is lock-free: it only relies on ConcurrentHashMap atomic operations.
+ * @param <K> type of the key identifying identical calls
+ * @param <V> type of the call result
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Joins the in-flight call for the key, or starts it if there is none
+     * @param key the key identifying identical calls
+     * @param call supplier starting the call
+     * @return a future completed with the result of the shared call
+     */
+    public CompletableFuture<V> execute(K key, Supplier<? extends CompletionStage<V>> call) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            call.get().whenComplete((result, throwable) -> {
+                inFlight.remove(key, created);
+
+                if (throwable != null) {
+                    created.completeExceptionally(throwable);
+                } else {
+                    created.complete(result);
+                }
+            });
+        } catch (Throwable throwable) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(throwable);
+        }
+
+        return created;
+    }
+
+    /**
+     * Blocking variant of execute: the leader runs the call on the current thread, the others wait for its result
+     * @param key the key identifying identical calls
+     * @param call the blocking call
+     * @return the result of the shared call
+     * @throws RuntimeException the exception thrown by the shared call
+     */
+    public V executeBlocking(K key, Supplier<V> call) throws RuntimeException {
+        try {
+            return execute(key, () -> CompletableFuture.completedFuture(call.get())).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of calls currently in flight
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
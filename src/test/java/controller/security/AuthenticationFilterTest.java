@@ -0,0 +1,29 @@
+package controller.security;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that only a missing or invalid token is reported as 401, and that a Keycloak or JWKS outage is reported as 503
+ */
+class AuthenticationFilterTest {
+
+    @Test
+    void invalidTokenIsUnauthorized() {
+        WebApplicationException failure = AuthenticationFilter.toAuthenticationFailure(
+                new WebApplicationException("Unauthorized", Response.Status.UNAUTHORIZED));
+
+        assertEquals(401, failure.getResponse().getStatus());
+    }
+
+    @Test
+    void unreachableKeycloakIsServiceUnavailable() {
+        WebApplicationException failure = AuthenticationFilter.toAuthenticationFailure(
+                new RuntimeException("Failed to validate token: Connection refused"));
+
+        assertEquals(503, failure.getResponse().getStatus());
+    }
+}
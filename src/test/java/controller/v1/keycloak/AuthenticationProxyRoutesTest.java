@@ -0,0 +1,181 @@
+package controller.v1.keycloak;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import service.KeycloakTokenProxy;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the proxy routes in front of a fake Keycloak over HTTP/1.1: error responses, with or without a Content-Length,
+ * must be passed through as they are, and successful ones renamed
+ */
+class AuthenticationProxyRoutesTest {
+
+    private static Vertx vertx;
+    private static HttpServer keycloak;
+    private static HttpServer proxy;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void start() throws Exception {
+        // Read by the routes and the token proxy when they're created
+        System.setProperty("keycloak.token-proxy.enabled", "true");
+        System.setProperty("keycloak.token-proxy.rename-fields", "true");
+        System.setProperty("keycloak.token-proxy.max-body-bytes", "1024");
+        System.setProperty("keycloak.auth-server-url", "http://localhost");
+        System.setProperty("keycloak.realm", "/realms/test");
+        System.setProperty("keycloak.token-request-endpoint", "/token");
+        System.setProperty("keycloak.token-refresh-endpoint", "/token");
+        System.setProperty("keycloak.token-rest-client.resource", "token-rest-client");
+
+        vertx = Vertx.vertx();
+        client = vertx.createHttpClient();
+
+        keycloak = await(vertx.createHttpServer()
+                .requestHandler(request -> request.body().onSuccess(body -> {
+                    String form = body.toString();
+                    if (form.contains("password=bad")) {
+                        // Error with a Content-Length
+                        request.response().setStatusCode(401)
+                                .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                                .end("{\"error\":\"invalid_grant\"}");
+                    } else if (form.contains("refresh_token=expired")) {
+                        // Error sent chunked, without a Content-Length
+                        request.response().setStatusCode(400).setChunked(true)
+                                .putHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+                        request.response().write("{\"error\":");
+                        request.response().end("\"invalid_grant\"}");
+                    } else {
+                        request.response().putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                                .end("{\"access_token\":\"access\",\"expires_in\":300,\"refresh_token\":\"refresh\",\"token_type\":\"Bearer\"}");
+                    }
+                }))
+                .listen(0));
+
+        AuthenticationProxyRoutes routes = new AuthenticationProxyRoutes();
+        routes.keycloakTokenProxy = new FakeKeycloakTokenProxy(keycloak.actualPort());
+        Router router = Router.router(vertx);
+        routes.registerRoutes(router);
+        proxy = await(vertx.createHttpServer().requestHandler(router).listen(0));
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        await(vertx.close());
+    }
+
+    @Test
+    void errorWithContentLengthIsPassedThrough() throws Exception {
+        Reply reply = post("/api/v1/authentication/token/request", new JsonObject().put("username", "user").put("password", "bad"));
+
+        assertEquals(401, reply.status);
+        assertEquals("{\"error\":\"invalid_grant\"}", reply.body);
+    }
+
+    @Test
+    void chunkedErrorIsPassedThrough() throws Exception {
+        Reply reply = post("/api/v1/authentication/token/refresh", new JsonObject().put("refreshToken", "expired"));
+
+        assertEquals(400, reply.status);
+        assertEquals("{\"error\":\"invalid_grant\"}", reply.body);
+    }
+
+    @Test
+    void successIsRenamed() throws Exception {
+        Reply reply = post("/api/v1/authentication/token/request", new JsonObject().put("username", "user").put("password", "good"));
+
+        assertEquals(200, reply.status);
+        JsonObject body = new JsonObject(reply.body);
+        assertEquals("access", body.getString("token"));
+        assertEquals("refresh", body.getString("refreshToken"));
+        assertFalse(body.containsKey("access_token"));
+    }
+
+    @Test
+    void oversizedBodyIsRejected() throws Exception {
+        Reply reply = post("/api/v1/authentication/token/request", new JsonObject().put("username", "x".repeat(2048)).put("password", "good"));
+
+        assertEquals(413, reply.status);
+    }
+
+    @Test
+    void unreachableKeycloakKeepsTheStatusOfTheResource() throws Exception {
+        Reply reply = post("/api/v1/authentication/token/refresh", new JsonObject().put("refreshToken", "unreachable"));
+
+        assertEquals(401, reply.status);
+        assertTrue(reply.body.isEmpty());
+    }
+
+    private static Reply post(String path, JsonObject body) throws Exception {
+        RequestOptions options = new RequestOptions()
+                .setMethod(HttpMethod.POST)
+                .setPort(proxy.actualPort())
+                .setHost("localhost")
+                .setURI(path)
+                .putHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+
+        return await(client.request(options)
+                .compose(request -> request.send(body.toBuffer()))
+                .compose(response -> response.body().map(buffer -> new Reply(response.statusCode(), buffer.toString()))));
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    private record Reply(int status, String body) {
+    }
+
+    /**
+     * Sends the grants straight to the fake Keycloak; a refresh token "unreachable" fails like a connection error
+     */
+    private static final class FakeKeycloakTokenProxy extends KeycloakTokenProxy {
+
+        private final int port;
+
+        private FakeKeycloakTokenProxy(int port) {
+            this.port = port;
+        }
+
+        @Override
+        public Future<HttpClientResponse> requestToken(String username, String password) {
+            return post("grant_type=password&username=" + username + "&password=" + password);
+        }
+
+        @Override
+        public Future<HttpClientResponse> refreshToken(String refreshToken) {
+            if (refreshToken.equals("unreachable")) {
+                return Future.failedFuture(new IllegalStateException("Connection refused"));
+            }
+            return post("grant_type=refresh_token&refresh_token=" + refreshToken);
+        }
+
+        private Future<HttpClientResponse> post(String form) {
+            RequestOptions options = new RequestOptions()
+                    .setMethod(HttpMethod.POST)
+                    .setPort(port)
+                    .setHost("localhost")
+                    .setURI("/token")
+                    .putHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded");
+
+            return client.request(options).compose(request -> request.send(Buffer.buffer(form)));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package producer;
+
+import io.agroal.api.AgroalDataSource;
+import io.agroal.api.configuration.supplier.AgroalDataSourceConfigurationSupplier;
+import io.agroal.api.security.NamePrincipal;
+import io.agroal.api.security.SimplePassword;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import repository.dao.SlabDAO;
+import repository.model.SlabEntity;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the per-call cost of a DAO call, before and after the single Jdbi of JdbiProducer.
+ * Before: every call builds a new Jdbi, installs the SqlObject plugin and sets a SQL logger, as the removed
+ * JdbiProducer.getJdbi did, on a pool with the driver's default statement settings. After: the calls go through an
+ * on-demand DAO of the Jdbi produced by JdbiProducer, query metrics included, on a pool with the statement settings of
+ * application.properties. A limit of 0 returns no row, so that the overhead isn't hidden by the rows fetched and
+ * mapped. The GC profiler reports the bytes allocated per call. Needs a database with the catalog tables; disabled by
+ * default, run with:
+ * mvn test -Dgroups=benchmark -Dbenchmark=true -Dbenchmark.db.url=postgresql://localhost:5432/slab-seller
+ * -Dbenchmark.db.username=developer -Dbenchmark.db.password=...
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JdbiProducerBenchmarkTest {
+
+    private static final int POOL_SIZE = 4;
+
+    @Param({"0", "21"})
+    public int limit;
+
+    private AgroalDataSource defaultSettingsDataSource;
+    private AgroalDataSource appSettingsDataSource;
+    private SlabDAO slabDAO;
+
+    @Setup
+    public void setUp() throws SQLException {
+        // Read by JdbiProducer and JdbiQueryMetrics when they're created
+        System.setProperty("jdbi.warm-up.enabled", "false");
+        System.setProperty("db.replica.enabled", "false");
+        System.setProperty("jdbi.metrics.slow-journal-size", "50");
+        System.setProperty("jdbi.metrics.slow-threshold-ms", "20");
+
+        defaultSettingsDataSource = dataSource(false);
+        appSettingsDataSource = dataSource(true);
+
+        JdbiQueryMetrics queryMetrics = new JdbiQueryMetrics();
+        queryMetrics.meterRegistry = new SimpleMeterRegistry();
+        queryMetrics.init();
+
+        JdbiProducer jdbiProducer = new JdbiProducer();
+        jdbiProducer.defaultDataSource = appSettingsDataSource;
+        jdbiProducer.queryMetrics = queryMetrics;
+        slabDAO = jdbiProducer.jdbi().onDemand(SlabDAO.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        defaultSettingsDataSource.close();
+        appSettingsDataSource.close();
+    }
+
+    @Benchmark
+    public List<SlabEntity> jdbiPerCall() {
+        Jdbi jdbi = Jdbi.create(defaultSettingsDataSource).installPlugin(new SqlObjectPlugin());
+        // The removed logger only logged at DEBUG level
+        jdbi.setSqlLogger(new SqlLogger() {
+        });
+
+        return jdbi.withExtension(SlabDAO.class, dao -> dao.getProductTypesPaged(limit, 0));
+    }
+
+    @Benchmark
+    public List<SlabEntity> producedJdbi() {
+        return slabDAO.getProductTypesPaged(limit, 0);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+    void compareWithJdbiPerCall() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JdbiProducerBenchmarkTest.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+
+    private static AgroalDataSource dataSource(boolean appStatementSettings) throws SQLException {
+        String url = System.getProperty("benchmark.db.url");
+        String username = System.getProperty("benchmark.db.username", "developer");
+        String password = System.getProperty("benchmark.db.password", "");
+
+        return AgroalDataSource.from(new AgroalDataSourceConfigurationSupplier()
+                .connectionPoolConfiguration(pool -> pool
+                        .minSize(POOL_SIZE)
+                        .maxSize(POOL_SIZE)
+                        .connectionFactoryConfiguration(factory -> {
+                            factory.jdbcUrl("jdbc:" + url)
+                                    .principal(new NamePrincipal(username))
+                                    .credential(new SimplePassword(password));
+                            if (appStatementSettings) {
+                                factory.jdbcProperty("prepareThreshold", "1")
+                                        .jdbcProperty("preparedStatementCacheQueries", "256")
+                                        .jdbcProperty("preparedStatementCacheSizeMiB", "5");
+                            }
+                            return factory;
+                        })));
+    }
+}
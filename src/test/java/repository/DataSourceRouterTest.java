@@ -0,0 +1,134 @@
+package repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.UnableToExecuteStatementException;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a read of a replica that can't be reached is retried once on the primary and marks the replica out of
+ * sync until the next lag check, and that the other failures are neither retried nor change the route
+ */
+class DataSourceRouterTest {
+
+    private DataSourceRouter router;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void configure() {
+        // Read by the router when it's created
+        System.setProperty("db.replica.enabled", "true");
+        System.setProperty("db.replica.max-lag-seconds", "5");
+        System.setProperty("db.replica.read-your-writes-window-ms", "0");
+    }
+
+    @BeforeEach
+    void createRouter() {
+        meterRegistry = new SimpleMeterRegistry();
+        router = new DataSourceRouter();
+        router.jdbi = unreachable("primary");
+        // Every statement of the replica fails to get a connection
+        router.replicaJdbi = unreachable("replica");
+        router.meterRegistry = meterRegistry;
+        router.init();
+
+        router.replicationDAO = () -> 0.5;
+        router.checkReplicaLag();
+        assertTrue(router.isReplicaInSync());
+    }
+
+    @Test
+    void unreachableReplicaReadIsRetriedOnPrimary() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = router.read(slabDAO -> {
+            attempts.incrementAndGet();
+            // The primary DAO answers without a statement, the replica one runs it and can't connect
+            return slabDAO == router.slabDAO(DataSourceRoute.PRIMARY) ? "primary" : slabDAO.getCatalogChecksum();
+        });
+
+        assertEquals("primary", result);
+        assertEquals(2, attempts.get());
+        assertFalse(router.isReplicaInSync());
+        assertEquals(DataSourceRoute.PRIMARY, router.readRoute());
+        assertEquals(1, meterRegistry.get("db.route.replica-failovers").counter().count());
+
+        // The next successful lag check sends the reads to the replica again
+        router.checkReplicaLag();
+        assertEquals(DataSourceRoute.REPLICA, router.readRoute());
+    }
+
+    @Test
+    void unreachableReplicaTransactionIsRetriedOnPrimary() {
+        String result = router.readWithJdbi(jdbi -> jdbi == router.jdbi ? "primary" : jdbi.withHandle(handle -> "replica"));
+
+        assertEquals("primary", result);
+        assertFalse(router.isReplicaInSync());
+    }
+
+    @Test
+    void unreachableReplicaAsyncReadIsRetriedOnPrimary() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = router.readAsync(route -> {
+            attempts.incrementAndGet();
+            return route == DataSourceRoute.PRIMARY
+                    ? Uni.createFrom().item("primary")
+                    : Uni.createFrom().<String>failure(new ConnectException("Connection refused"));
+        }).await().indefinitely();
+
+        assertEquals("primary", result);
+        assertEquals(2, attempts.get());
+        assertFalse(router.isReplicaInSync());
+    }
+
+    @Test
+    void statementFailureIsNotRetried() {
+        RuntimeException failure = new UnableToExecuteStatementException(new SQLException("syntax error", "42601"), null);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertSame(failure, assertThrows(RuntimeException.class, () -> router.read(slabDAO -> {
+            attempts.incrementAndGet();
+            throw failure;
+        })));
+        assertEquals(1, attempts.get());
+        assertTrue(router.isReplicaInSync());
+
+        assertThrows(IllegalStateException.class, () -> router.readAsync(route -> {
+            attempts.incrementAndGet();
+            return Uni.createFrom().failure(new IllegalStateException());
+        }).await().indefinitely());
+        assertEquals(2, attempts.get());
+        assertTrue(router.isReplicaInSync());
+    }
+
+    @Test
+    void connectionFailuresAreRecognized() {
+        assertTrue(DataSourceRouter.isConnectionFailure(new UnableToExecuteStatementException(
+                new SQLException("An I/O error occurred while sending to the backend", "08006"), null)));
+        assertTrue(DataSourceRouter.isConnectionFailure(new RuntimeException(
+                new SQLException("the database system is starting up", "57P03"))));
+        assertFalse(DataSourceRouter.isConnectionFailure(new UnableToExecuteStatementException(
+                new SQLException("canceling statement due to conflict with recovery", "40001"), null)));
+    }
+
+    private static Jdbi unreachable(String database) {
+        return Jdbi.create(() -> {
+            throw new SQLException("Connection to the " + database + " refused", "08001");
+        }).installPlugin(new SqlObjectPlugin());
+    }
+}
@@ -0,0 +1,213 @@
+package repository;
+
+import io.agroal.api.AgroalDataSource;
+import io.agroal.api.configuration.supplier.AgroalDataSourceConfigurationSupplier;
+import io.agroal.api.security.NamePrincipal;
+import io.agroal.api.security.SimplePassword;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.sqlclient.PoolOptions;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of the catalog reads under concurrency, through the reactive repository and through the JDBI one run on
+ * a worker pool, the two paths of SlabService when the catalog snapshot is disabled.
+ * Each client sends its next read as soon as the previous one completes; for each path, query and number of clients,
+ * prints the reads per second, the 50th and 99th latency percentiles, the failed reads and the largest number of
+ * worker threads blocked in reads at the same time. Both paths use pools of the same size and the statement settings of
+ * application.properties. Needs a database with the catalog tables and the
+ * priced_availability view; disabled by default, run with:
+ * mvn test -Dgroups=benchmark -Dbenchmark=true -Dbenchmark.db.url=postgresql://localhost:5432/slab-seller
+ * -Dbenchmark.db.username=developer -Dbenchmark.db.password=...
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+class ReactiveSlabRepositoryBenchmarkTest {
+
+    private static final int POOL_SIZE = Integer.getInteger("benchmark.db.pool-size", 16);
+    // Default size of the Quarkus worker pool
+    private static final int WORKER_THREADS = Math.max(8 * Runtime.getRuntime().availableProcessors(), 200);
+    private static final long WARM_UP_SECONDS = 3;
+    private static final long DURATION_SECONDS = 10;
+    private static final int PAGE_SIZE = 21;
+    private static final int FETCH_SIZE = 500;
+
+    private static Vertx vertx;
+    private static PgPool pgPool;
+    private static AgroalDataSource dataSource;
+    private static ExecutorService workerPool;
+    private static SlabRepository slabRepository;
+    private static ReactiveSlabRepository reactiveSlabRepository;
+
+    @BeforeAll
+    static void start() throws Exception {
+        // Read by the router when it's created: every read goes to the primary
+        System.setProperty("db.replica.enabled", "false");
+        System.setProperty("db.replica.max-lag-seconds", "5");
+        System.setProperty("db.replica.read-your-writes-window-ms", "0");
+
+        String url = System.getProperty("benchmark.db.url");
+        String username = System.getProperty("benchmark.db.username", "developer");
+        String password = System.getProperty("benchmark.db.password", "");
+
+        dataSource = AgroalDataSource.from(new AgroalDataSourceConfigurationSupplier()
+                .connectionPoolConfiguration(pool -> pool
+                        .minSize(POOL_SIZE)
+                        .maxSize(POOL_SIZE)
+                        .connectionFactoryConfiguration(factory -> factory
+                                .jdbcUrl("jdbc:" + url)
+                                .jdbcProperty("prepareThreshold", "1")
+                                .jdbcProperty("preparedStatementCacheQueries", "256")
+                                .jdbcProperty("preparedStatementCacheSizeMiB", "5")
+                                .principal(new NamePrincipal(username))
+                                .credential(new SimplePassword(password)))));
+        Jdbi jdbi = Jdbi.create(dataSource).installPlugin(new SqlObjectPlugin());
+
+        vertx = Vertx.vertx();
+        pgPool = PgPool.pool(vertx, PgConnectOptions.fromUri(url).setUser(username).setPassword(password),
+                new PoolOptions().setMaxSize(POOL_SIZE));
+
+        DataSourceRouter dataSourceRouter = new DataSourceRouter();
+        dataSourceRouter.jdbi = jdbi;
+        dataSourceRouter.replicaJdbi = jdbi;
+        dataSourceRouter.meterRegistry = new SimpleMeterRegistry();
+        dataSourceRouter.init();
+
+        slabRepository = new SlabRepository();
+        slabRepository.dataSourceRouter = dataSourceRouter;
+
+        reactiveSlabRepository = new ReactiveSlabRepository();
+        reactiveSlabRepository.client = pgPool;
+        reactiveSlabRepository.dataSourceRouter = dataSourceRouter;
+
+        workerPool = Executors.newFixedThreadPool(WORKER_THREADS);
+
+        System.out.printf("%-9s %-12s %7s %10s %9s %9s %7s %8s%n",
+                "path", "query", "clients", "reads/s", "p50", "p99", "errors", "workers");
+    }
+
+    @AfterAll
+    static void stop() {
+        workerPool.shutdownNow();
+        pgPool.closeAndAwait();
+        vertx.closeAndAwait();
+        dataSource.close();
+    }
+
+    @ParameterizedTest(name = "{0} {1}, {2} clients")
+    @CsvSource({
+            "jdbi, page, 16", "reactive, page, 16",
+            "jdbi, page, 64", "reactive, page, 64",
+            "jdbi, page, 256", "reactive, page, 256",
+            "jdbi, page, 1024", "reactive, page, 1024",
+            "jdbi, availability, 16", "reactive, availability, 16",
+            "jdbi, availability, 64", "reactive, availability, 64",
+            "jdbi, availability, 256", "reactive, availability, 256"
+    })
+    void throughputUnderConcurrency(String path, String query, int clients) throws InterruptedException {
+        run(path, query, clients, WARM_UP_SECONDS);
+        Result result = run(path, query, clients, DURATION_SECONDS);
+
+        assertTrue(result.reads.get() > 0, "No read completed");
+        assertEquals(0, result.errors.get(), "Failed reads");
+
+        System.out.printf("%-9s %-12s %7d %10.0f %7.2fms %7.2fms %7d %8d%n",
+                path, query, clients, (double) result.reads.get() / DURATION_SECONDS,
+                result.latencies.getValueAtPercentile(50) / 1e6, result.latencies.getValueAtPercentile(99) / 1e6,
+                result.errors.get(), result.maxBusyWorkers.get());
+    }
+
+    /**
+     * @return the read of the path, as SlabService runs it
+     */
+    private static Supplier<Uni<?>> read(String path, String query, Result result) {
+        boolean page = "page".equals(query);
+
+        if ("reactive".equals(path)) {
+            return page
+                    ? () -> reactiveSlabRepository.getProductTypesPaged(PAGE_SIZE, 0)
+                    : () -> reactiveSlabRepository.streamAllProductsWithDetailsAndAvailability(FETCH_SIZE).collect().asList();
+        }
+
+        return page
+                ? () -> Uni.createFrom().item(() -> result.onWorker(() -> slabRepository.getProductTypesPaged(PAGE_SIZE, 0))).runSubscriptionOn(workerPool)
+                : () -> Uni.createFrom().item(() -> result.onWorker(slabRepository::getAllProductsWithDetailsAndAvailability)).runSubscriptionOn(workerPool);
+    }
+
+    /**
+     * Runs the clients for the duration, each one sending its next read when the previous one completes
+     */
+    private static Result run(String path, String query, int clients, long durationSeconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        Result result = new Result();
+        Supplier<Uni<?>> read = read(path, query, result);
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int client = 0; client < clients; client++) {
+            next(read, deadline, result, done);
+        }
+
+        assertTrue(done.await(durationSeconds + 60, TimeUnit.SECONDS), "Reads still running after the duration");
+        return result;
+    }
+
+    private static void next(Supplier<Uni<?>> read, long deadline, Result result, CountDownLatch done) {
+        if (System.nanoTime() - deadline >= 0) {
+            done.countDown();
+            return;
+        }
+
+        long start = System.nanoTime();
+        read.get().subscribe().with(
+                item -> {
+                    result.latencies.recordValue(System.nanoTime() - start);
+                    result.reads.incrementAndGet();
+                    next(read, deadline, result, done);
+                },
+                failure -> {
+                    result.errors.incrementAndGet();
+                    next(read, deadline, result, done);
+                });
+    }
+
+    private static final class Result {
+        private final Histogram latencies = new ConcurrentHistogram(3);
+        private final AtomicLong reads = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicInteger busyWorkers = new AtomicInteger();
+        private final AtomicInteger maxBusyWorkers = new AtomicInteger();
+
+        private <T> T onWorker(Supplier<T> read) {
+            maxBusyWorkers.accumulateAndGet(busyWorkers.incrementAndGet(), Math::max);
+            try {
+                return read.get();
+            } finally {
+                busyWorkers.decrementAndGet();
+            }
+        }
+    }
+}
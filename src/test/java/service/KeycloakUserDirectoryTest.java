@@ -0,0 +1,151 @@
+package service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.camel.util.Pair;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.model.UserEntity;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a lookup racing an invalidation doesn't cache its outdated result, and that invalidating a user drops
+ * every lookup resolving to it and only those
+ */
+class KeycloakUserDirectoryTest {
+
+    private FakeUserDirectory directory;
+
+    @BeforeAll
+    static void configure() {
+        // Read by the directory when it's created
+        System.setProperty("keycloak.user-directory.enabled", "true");
+        System.setProperty("keycloak.user-directory.max-size", "100");
+        System.setProperty("keycloak.user-directory.ttl-seconds", "30");
+        System.setProperty("keycloak.user-directory.negative-ttl-seconds", "60");
+    }
+
+    @BeforeEach
+    void createDirectory() {
+        directory = new FakeUserDirectory();
+        directory.meterRegistry = new SimpleMeterRegistry();
+        directory.init();
+    }
+
+    @Test
+    void lookupsAreCached() {
+        directory.users.put("email=ada@example.com", user("1", "ada", "ada@example.com"));
+
+        assertEquals("1", directory.findByEmail("Ada@example.com").orElseThrow().getId());
+        assertTrue(directory.findByEmail("ada@example.com").isPresent());
+        assertTrue(directory.findByEmail("nobody@example.com").isEmpty());
+        assertTrue(directory.findByEmail("nobody@example.com").isEmpty());
+
+        assertEquals(2, directory.fetches.get());
+    }
+
+    @Test
+    void lookupStartedBeforeCreationDoesNotCacheAbsence() throws Exception {
+        directory.blockNextFetch();
+        CompletableFuture<Optional<UserEntity>> staleLookup = CompletableFuture.supplyAsync(() -> directory.findByEmail("ada@example.com"));
+        assertTrue(directory.fetchStarted.await(5, TimeUnit.SECONDS));
+
+        // The user is created while the lookup is still waiting for Keycloak
+        directory.users.put("email=ada@example.com", user("1", "ada", "ada@example.com"));
+        directory.invalidateLookup("email", "ada@example.com");
+        directory.releaseFetch.countDown();
+
+        assertTrue(staleLookup.get(5, TimeUnit.SECONDS).isEmpty());
+        assertEquals("1", directory.findByEmail("ada@example.com").orElseThrow().getId());
+    }
+
+    @Test
+    void lookupStartedBeforeUpdateDoesNotCacheOutdatedUser() throws Exception {
+        directory.users.put("username=ada", user("1", "ada", "ada@example.com"));
+        directory.blockNextFetch();
+        CompletableFuture<Optional<UserEntity>> staleLookup = CompletableFuture.supplyAsync(() -> directory.findByUsername("ada"));
+        assertTrue(directory.fetchStarted.await(5, TimeUnit.SECONDS));
+
+        directory.users.put("username=ada", user("1", "ada", "ada@lovelace.org"));
+        directory.invalidateUser("1");
+        directory.releaseFetch.countDown();
+
+        assertEquals("ada@example.com", staleLookup.get(5, TimeUnit.SECONDS).orElseThrow().getEmail());
+        assertEquals("ada@lovelace.org", directory.findByUsername("ada").orElseThrow().getEmail());
+    }
+
+    @Test
+    void invalidateUserDropsOnlyItsLookups() {
+        directory.users.put("email=ada@example.com", user("1", "ada", "ada@example.com"));
+        directory.users.put("username=ada", user("1", "ada", "ada@example.com"));
+        directory.users.put("username=alan", user("2", "alan", "alan@example.com"));
+        directory.findByEmail("ada@example.com");
+        directory.findByUsername("ada");
+        directory.findByUsername("alan");
+        directory.findByUsername("nobody");
+
+        directory.users.put("email=ada@example.com", user("1", "ada", "ada@lovelace.org"));
+        directory.users.put("username=ada", user("1", "ada", "ada@lovelace.org"));
+        directory.invalidateUser("1");
+
+        assertEquals("ada@lovelace.org", directory.findByEmail("ada@example.com").orElseThrow().getEmail());
+        assertEquals("ada@lovelace.org", directory.findByUsername("ada").orElseThrow().getEmail());
+        directory.findByUsername("alan");
+        directory.findByUsername("nobody");
+
+        // The two lookups of the user are fetched again, the others are still cached
+        assertEquals(6, directory.fetches.get());
+    }
+
+    private static UserEntity user(String id, String username, String email) {
+        UserEntity user = new UserEntity();
+        user.setId(id);
+        user.setUsername(username);
+        user.setEmail(email);
+        return user;
+    }
+
+    /**
+     * Directory answering the lookups from a map instead of Keycloak, and able to hold a lookup until released
+     */
+    private static class FakeUserDirectory extends KeycloakUserDirectory {
+        private final Map<String, UserEntity> users = new ConcurrentHashMap<>();
+        private final AtomicInteger fetches = new AtomicInteger();
+        private volatile boolean blockNextFetch;
+        private final CountDownLatch fetchStarted = new CountDownLatch(1);
+        private final CountDownLatch releaseFetch = new CountDownLatch(1);
+
+        void blockNextFetch() {
+            blockNextFetch = true;
+        }
+
+        @Override
+        Optional<UserEntity> fetchUser(Pair<String> queryParam) {
+            fetches.incrementAndGet();
+            // Read before blocking, as the response Keycloak sent before the change
+            Optional<UserEntity> user = Optional.ofNullable(users.get(queryParam.getLeft() + "=" + queryParam.getRight().toLowerCase()));
+
+            if (blockNextFetch) {
+                blockNextFetch = false;
+                fetchStarted.countDown();
+                try {
+                    releaseFetch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return user;
+        }
+    }
+}
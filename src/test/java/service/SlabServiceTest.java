@@ -0,0 +1,142 @@
+package service;
+
+import controller.dto.PricedSlabAvailabilityDTO;
+import controller.dto.SlabDTO;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import mapper.SlabMapperImpl;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.ReactiveSlabRepository;
+import repository.model.PricedSlabAvailabilityEntity;
+import repository.model.SlabEntity;
+import service.catalog.CatalogSnapshot;
+import service.catalog.CatalogSnapshotService;
+import service.catalog.CatalogSnapshots;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks which source the non blocking catalog reads use: the catalog snapshot when it's enabled, without touching
+ * the reactive repository, and the reactive repository otherwise
+ */
+class SlabServiceTest {
+
+    private static final String IMAGE_BASE_URL = "https://images.example.com/";
+
+    private final AtomicInteger reactiveReads = new AtomicInteger();
+    private SlabService slabService;
+    private boolean snapshotEnabled;
+
+    @BeforeAll
+    static void configure() {
+        // Read by the services when they're created
+        System.setProperty("catalog.snapshot.enabled", "true");
+        System.setProperty("catalog.reactive-repository.enabled", "true");
+        System.setProperty("catalog.stream.fetch-size", "2");
+        System.setProperty("image.base.url", IMAGE_BASE_URL);
+    }
+
+    @BeforeEach
+    void createService() {
+        CatalogSnapshot snapshot = CatalogSnapshots.of(
+                List.of(productType("SLAB-1", IMAGE_BASE_URL + "snapshot.png"), productType("SLAB-2", IMAGE_BASE_URL + "snapshot.png")),
+                List.of(product("SLAB-1", "snapshot"), product("SLAB-2", "snapshot")));
+
+        slabService = new SlabService();
+        slabService.slabMapper = new SlabMapperImpl();
+        slabService.catalogSnapshotService = new CatalogSnapshotService() {
+            @Override
+            public boolean isEnabled() {
+                return snapshotEnabled;
+            }
+
+            @Override
+            public CatalogSnapshot current() {
+                return snapshot;
+            }
+        };
+        slabService.reactiveSlabRepository = new ReactiveSlabRepository() {
+            @Override
+            public Uni<List<SlabEntity>> getProductTypesPaged(int limit, int offset) {
+                reactiveReads.incrementAndGet();
+                return Uni.createFrom().item(List.of(slabEntity("SLAB-1"), slabEntity("SLAB-2")));
+            }
+
+            @Override
+            public Uni<List<SlabEntity>> getProductTypesAfter(String afterId, int limit) {
+                reactiveReads.incrementAndGet();
+                return Uni.createFrom().item(List.of(slabEntity("SLAB-2")));
+            }
+
+            @Override
+            public Multi<PricedSlabAvailabilityEntity> streamAllProductsWithDetailsAndAvailability(int fetchSize) {
+                reactiveReads.incrementAndGet();
+                return Multi.createFrom().items(productEntity("SLAB-1"), productEntity("SLAB-2"));
+            }
+        };
+    }
+
+    @Test
+    void snapshotServesTheReactiveReads() {
+        snapshotEnabled = true;
+
+        List<SlabDTO> page = slabService.getProductTypesPageAsync(null, null, 10).await().indefinitely();
+        List<SlabDTO> nextPage = slabService.getProductTypesPageAsync("SLAB-1", null, 10).await().indefinitely();
+        List<PricedSlabAvailabilityDTO> products = slabService.streamProductsWithDetailsAndAvailabilityAsync()
+                .collect().asList().await().indefinitely();
+
+        assertEquals(List.of("SLAB-1", "SLAB-2"), page.stream().map(SlabDTO::getId).toList());
+        assertEquals(List.of("SLAB-2"), nextPage.stream().map(SlabDTO::getId).toList());
+        assertEquals(List.of("snapshot", "snapshot"), products.stream().map(PricedSlabAvailabilityDTO::getCurrency).toList());
+        assertEquals(0, reactiveReads.get());
+    }
+
+    @Test
+    void reactiveRepositoryServesTheReactiveReadsWithoutSnapshot() {
+        snapshotEnabled = false;
+
+        List<SlabDTO> page = slabService.getProductTypesPageAsync(null, null, 10).await().indefinitely();
+        List<SlabDTO> nextPage = slabService.getProductTypesPageAsync("SLAB-1", null, 10).await().indefinitely();
+        List<PricedSlabAvailabilityDTO> products = slabService.streamProductsWithDetailsAndAvailabilityAsync()
+                .collect().asList().await().indefinitely();
+
+        assertEquals(List.of("SLAB-1", "SLAB-2"), page.stream().map(SlabDTO::getId).toList());
+        assertEquals(IMAGE_BASE_URL + "db.png", page.get(0).getImagePath());
+        assertEquals(List.of("SLAB-2"), nextPage.stream().map(SlabDTO::getId).toList());
+        assertEquals(List.of("db", "db"), products.stream().map(PricedSlabAvailabilityDTO::getCurrency).toList());
+        assertEquals(3, reactiveReads.get());
+    }
+
+    private static SlabDTO productType(String id, String imagePath) {
+        SlabDTO productType = new SlabDTO();
+        productType.setId(id);
+        productType.setImagePath(imagePath);
+        return productType;
+    }
+
+    private static PricedSlabAvailabilityDTO product(String id, String currency) {
+        PricedSlabAvailabilityDTO product = new PricedSlabAvailabilityDTO();
+        product.setId(id);
+        product.setCurrency(currency);
+        return product;
+    }
+
+    private static SlabEntity slabEntity(String id) {
+        SlabEntity slab = new SlabEntity();
+        slab.setId(id);
+        slab.setImagePath("db.png");
+        return slab;
+    }
+
+    private static PricedSlabAvailabilityEntity productEntity(String id) {
+        PricedSlabAvailabilityEntity product = new PricedSlabAvailabilityEntity();
+        product.setId(id);
+        product.setCurrency("db");
+        return product;
+    }
+}
@@ -0,0 +1,92 @@
+package service;
+
+import controller.dto.TokenValidationResponseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that the introspection outcomes are cached, that the failures are not, and that the introspection runs
+ * outside of the cache
+ */
+class TokenIntrospectionCacheTest {
+
+    private TokenIntrospectionCache cache;
+
+    @BeforeAll
+    static void configure() {
+        // Read by the cache when it's created
+        System.setProperty("keycloak.introspection-cache.enabled", "true");
+        System.setProperty("keycloak.introspection-cache.max-size", "100");
+        System.setProperty("keycloak.introspection-cache.max-ttl-seconds", "300");
+        System.setProperty("keycloak.introspection-cache.negative-ttl-seconds", "10");
+    }
+
+    @BeforeEach
+    void createCache() {
+        cache = new TokenIntrospectionCache();
+        cache.meterRegistry = new SimpleMeterRegistry();
+        cache.init();
+    }
+
+    @Test
+    void outcomeIsCached() {
+        AtomicInteger introspections = new AtomicInteger();
+        TokenValidationResponseDTO active = active();
+
+        cache.get("token", token -> {
+            introspections.incrementAndGet();
+            return active;
+        });
+        TokenValidationResponseDTO cached = cache.get("token", token -> {
+            introspections.incrementAndGet();
+            return active;
+        });
+
+        assertSame(active, cached);
+        assertEquals(1, introspections.get());
+    }
+
+    @Test
+    void failureIsNotCached() {
+        AtomicInteger introspections = new AtomicInteger();
+
+        assertThrows(RuntimeException.class, () -> cache.get("token", token -> {
+            introspections.incrementAndGet();
+            throw new RuntimeException("Failed to validate token: Status code: 503");
+        }));
+        cache.get("token", token -> {
+            introspections.incrementAndGet();
+            return active();
+        });
+
+        assertEquals(2, introspections.get());
+    }
+
+    @Test
+    void introspectionRunsOutsideOfTheCache() {
+        TokenValidationResponseDTO active = active();
+
+        // Writing the entry of the token while introspecting it fails inside a Caffeine compute
+        TokenValidationResponseDTO result = cache.get("token", token -> {
+            cache.put(token, active);
+            return active;
+        });
+
+        assertSame(active, result);
+        assertSame(active, cache.getIfPresent("token"));
+    }
+
+    private static TokenValidationResponseDTO active() {
+        return new TokenValidationResponseDTO(new JSONObject().put("exp", Instant.now().getEpochSecond() + 60));
+    }
+}
@@ -0,0 +1,20 @@
+package service.catalog;
+
+import controller.dto.PricedSlabAvailabilityDTO;
+import controller.dto.SlabDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds catalog snapshots for the tests outside of this package
+ */
+public final class CatalogSnapshots {
+
+    private CatalogSnapshots() {
+    }
+
+    public static CatalogSnapshot of(List<SlabDTO> productTypes, List<PricedSlabAvailabilityDTO> productsWithAvailability) {
+        return new CatalogSnapshot(1, "checksum", new ArrayList<>(productTypes), new ArrayList<>(productsWithAvailability), new ArrayList<>());
+    }
+}
@@ -0,0 +1,128 @@
+package service.catalog;
+
+import controller.dto.PricedSlabAvailabilityDTO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Solution quality against latency of the nesting search, on seeded synthetic orders.
+ * For each order and time budget, prints the cost of the cheapest packing, its gap to the first (greedy) attempt,
+ * the utilization, the number of attempts and the elapsed time, so that changes to the engine or to the search
+ * settings can be compared run to run. Disabled by default, run with:
+ * mvn test -Dgroups=benchmark -Dbenchmark=true
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CutNestingBenchmarkTest {
+
+    private static final int KERF = 4;
+    private static final int MAX_ATTEMPTS = 100_000;
+    private static final long TIMEOUT_MARGIN_MS = 1000;
+    private static final int RUNS = 5;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void start() {
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-8s %6s %6s %10s %8s %8s %10s %10s%n",
+                "order", "pieces", "budget", "cost", "gap", "util", "attempts", "elapsed");
+    }
+
+    @AfterAll
+    static void stop() {
+        pool.shutdownNow();
+    }
+
+    @ParameterizedTest(name = "{0} pieces, {2} ms")
+    @CsvSource({
+            "10, 1, 10", "10, 1, 50", "10, 1, 300",
+            "60, 2, 10", "60, 2, 50", "60, 2, 300", "60, 2, 1000",
+            "250, 3, 10", "250, 3, 50", "250, 3, 300", "250, 3, 1000"
+    })
+    void costAndAttemptsAgainstTimeBudget(int pieces, long seed, long timeBudgetMs) {
+        CutNestingEngine engine = order(pieces, seed);
+        assertTrue(engine.everyPieceFitsSomeSlab());
+
+        CutNestingEngine.Packing greedy = engine.attempt(0);
+
+        // The first run warms the engine up and isn't reported
+        for (int run = 0; run <= RUNS; run++) {
+            AtomicInteger attempts = new AtomicInteger();
+            long start = System.nanoTime();
+            Optional<CutNestingEngine.Packing> best = CutNestingService.search(pool, engine, MAX_ATTEMPTS,
+                    timeBudgetMs, TIMEOUT_MARGIN_MS, attempts);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(best.isPresent(), "Stock exhausted");
+            assertTrue(elapsedMs <= timeBudgetMs + TIMEOUT_MARGIN_MS, "Search took " + elapsedMs + " ms");
+
+            if (run > 0) {
+                double cost = best.get().getCost();
+                System.out.printf("%-8s %6d %6d %10.2f %7.2f%% %7.2f%% %10d %8d ms%n",
+                        "seed-" + seed, pieces, timeBudgetMs, cost,
+                        greedy == null ? Double.NaN : 100 * (cost - greedy.getCost()) / greedy.getCost(),
+                        100 * best.get().getUtilization(), attempts.get(), elapsedMs);
+            }
+        }
+    }
+
+    /**
+     * Builds a synthetic order: a stock of a few dozen slab formats and prices, and pieces of kitchen-top to
+     * tile sizes, in quantities summing up to the number of pieces
+     */
+    private static CutNestingEngine order(int pieces, long seed) {
+        Random random = new Random(seed);
+
+        List<PricedSlabAvailabilityDTO> stock = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            int width = 1500 + random.nextInt(1800);
+            int height = 1200 + random.nextInt(800);
+            // Roughly proportional to the area, so that the slab choice matters
+            double price = Math.round(width * (long) height / 20_000.0 * (0.8 + 0.4 * random.nextDouble()));
+            stock.add(slab("SLAB-" + i, width, height, price, 1 + pieces / 10 + random.nextInt(10)));
+        }
+
+        int[] pieceWidths = new int[pieces];
+        int[] pieceHeights = new int[pieces];
+        int[] pieceIndexes = new int[pieces];
+        int unit = 0;
+        for (int piece = 0; unit < pieces; piece++) {
+            int width = 100 + random.nextInt(1100);
+            int height = 100 + random.nextInt(800);
+            for (int copy = 1 + random.nextInt(6); copy > 0 && unit < pieces; copy--, unit++) {
+                pieceWidths[unit] = width;
+                pieceHeights[unit] = height;
+                pieceIndexes[unit] = piece;
+            }
+        }
+
+        return new CutNestingEngine(stock, pieceWidths, pieceHeights, pieceIndexes, KERF, true);
+    }
+
+    private static PricedSlabAvailabilityDTO slab(String id, int width, int height, double price, int quantity) {
+        PricedSlabAvailabilityDTO slab = new PricedSlabAvailabilityDTO();
+        slab.setId(id);
+        slab.setCollection("Marble");
+        slab.setWidth(width);
+        slab.setHeight(height);
+        slab.setPrice(price);
+        slab.setCurrency("EUR");
+        slab.setQuantity(quantity);
+        return slab;
+    }
+}
@@ -0,0 +1,144 @@
+package service.catalog;
+
+import controller.dto.NestedSlabDTO;
+import controller.dto.PlacedPieceDTO;
+import controller.dto.PricedSlabAvailabilityDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the layouts of the nesting attempts are valid: every piece placed once with its own dimensions, inside
+ * its slab, no two pieces overlapping or closer than the kerf, and no more slabs used than in stock
+ */
+class CutNestingEngineTest {
+
+    private static final int KERF = 4;
+
+    @Test
+    void layoutsAreValidWithRotation() {
+        assertValidLayouts(true, 1);
+    }
+
+    @Test
+    void layoutsAreValidWithoutRotation() {
+        assertValidLayouts(false, 2);
+    }
+
+    @Test
+    void piecesLargerThanEverySlabDontFit() {
+        List<PricedSlabAvailabilityDTO> stock = List.of(slab("SLAB-1", 1000, 800, 50.0, 3));
+        CutNestingEngine engine = new CutNestingEngine(stock, new int[]{900, 1200}, new int[]{700, 500}, new int[]{0, 1}, KERF, false);
+
+        assertFalse(engine.everyPieceFitsSomeSlab());
+    }
+
+    private static void assertValidLayouts(boolean allowRotation, long seed) {
+        Random random = new Random(seed);
+
+        List<PricedSlabAvailabilityDTO> stock = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            stock.add(slab("SLAB-" + i, 1500 + random.nextInt(1800), 1200 + random.nextInt(800),
+                    100.0 + random.nextInt(400), 1 + random.nextInt(6)));
+        }
+
+        int[] requestWidths = new int[8];
+        int[] requestHeights = new int[8];
+        int[] requestQuantities = new int[8];
+        List<Integer> units = new ArrayList<>();
+        for (int piece = 0; piece < requestWidths.length; piece++) {
+            requestWidths[piece] = 150 + random.nextInt(900);
+            requestHeights[piece] = 100 + random.nextInt(700);
+            requestQuantities[piece] = 1 + random.nextInt(5);
+            for (int copy = 0; copy < requestQuantities[piece]; copy++) {
+                units.add(piece);
+            }
+        }
+
+        int[] pieceIndexes = units.stream().mapToInt(Integer::intValue).toArray();
+        int[] pieceWidths = units.stream().mapToInt(piece -> requestWidths[piece]).toArray();
+        int[] pieceHeights = units.stream().mapToInt(piece -> requestHeights[piece]).toArray();
+
+        CutNestingEngine engine = new CutNestingEngine(stock, pieceWidths, pieceHeights, pieceIndexes, KERF, allowRotation);
+        assertTrue(engine.everyPieceFitsSomeSlab());
+
+        for (int attempt = 0; attempt < 50; attempt++) {
+            CutNestingEngine.Packing packing = engine.attempt(attempt);
+            assertNotNull(packing, "Attempt " + attempt + " ran out of stock");
+
+            int[] placedCounts = new int[requestWidths.length];
+            Map<String, Integer> slabsUsed = new HashMap<>();
+            double cost = 0;
+
+            for (NestedSlabDTO nestedSlab : packing.toDtos()) {
+                PricedSlabAvailabilityDTO slab = nestedSlab.getProduct();
+                slabsUsed.merge(slab.getId(), 1, Integer::sum);
+                cost += slab.getPrice();
+
+                List<PlacedPieceDTO> placements = nestedSlab.getPieces();
+                for (PlacedPieceDTO placement : placements) {
+                    placedCounts[placement.getPiece()]++;
+                    assertDimensions(placement, requestWidths[placement.getPiece()], requestHeights[placement.getPiece()], allowRotation);
+                    assertTrue(placement.getX() >= 0 && placement.getY() >= 0
+                                    && placement.getX() + placement.getWidth() <= slab.getWidth()
+                                    && placement.getY() + placement.getHeight() <= slab.getHeight(),
+                            "Piece outside slab " + slab.getId() + ": " + placement);
+                }
+
+                for (int first = 0; first < placements.size(); first++) {
+                    for (int second = first + 1; second < placements.size(); second++) {
+                        assertTrue(separatedByKerf(placements.get(first), placements.get(second)),
+                                "Pieces closer than the kerf: " + placements.get(first) + ", " + placements.get(second));
+                    }
+                }
+            }
+
+            for (int piece = 0; piece < requestWidths.length; piece++) {
+                assertEquals(requestQuantities[piece], placedCounts[piece], "Placements of piece " + piece);
+            }
+            for (PricedSlabAvailabilityDTO slab : stock) {
+                assertTrue(slabsUsed.getOrDefault(slab.getId(), 0) <= slab.getQuantity(), "More " + slab.getId() + " than in stock");
+            }
+            assertEquals(cost, packing.getCost(), 1e-6);
+        }
+    }
+
+    private static void assertDimensions(PlacedPieceDTO placement, int width, int height, boolean allowRotation) {
+        if (placement.isRotated()) {
+            assertTrue(allowRotation, "Piece rotated although rotation isn't allowed");
+            assertEquals(height, placement.getWidth());
+            assertEquals(width, placement.getHeight());
+        } else {
+            assertEquals(width, placement.getWidth());
+            assertEquals(height, placement.getHeight());
+        }
+    }
+
+    private static boolean separatedByKerf(PlacedPieceDTO first, PlacedPieceDTO second) {
+        return first.getX() + first.getWidth() + KERF <= second.getX()
+                || second.getX() + second.getWidth() + KERF <= first.getX()
+                || first.getY() + first.getHeight() + KERF <= second.getY()
+                || second.getY() + second.getHeight() + KERF <= first.getY();
+    }
+
+    private static PricedSlabAvailabilityDTO slab(String id, int width, int height, double price, int quantity) {
+        PricedSlabAvailabilityDTO slab = new PricedSlabAvailabilityDTO();
+        slab.setId(id);
+        slab.setCollection("Marble");
+        slab.setWidth(width);
+        slab.setHeight(height);
+        slab.setPrice(price);
+        slab.setCurrency("EUR");
+        slab.setQuantity(quantity);
+        return slab;
+    }
+}
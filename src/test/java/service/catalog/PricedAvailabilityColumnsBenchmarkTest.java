@@ -0,0 +1,109 @@
+package service.catalog;
+
+import controller.dto.PricedSlabAvailabilityDTO;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the same filter and aggregates (stock value, min and max price of the in stock rows of a
+ * collection within a width range) computed by scanning the List of PricedSlabAvailabilityDTO and by scanning the
+ * columns. The GC profiler reports the bytes allocated per operation. Disabled by default, run with:
+ * mvn test -Dgroups=benchmark -Dbenchmark=true
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PricedAvailabilityColumnsBenchmarkTest {
+
+    private static final String COLLECTION = "Granite";
+    private static final int MIN_WIDTH = 1000;
+    private static final int MAX_WIDTH = 3000;
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private List<PricedSlabAvailabilityDTO> list;
+    private PricedAvailabilityColumns columns;
+    private PricedAvailabilityColumns.ColumnFilter filter;
+    private int[] selection;
+    private int collectionCode;
+
+    @Setup
+    public void setUp() {
+        list = PricedAvailabilityColumnsTest.rows(rows, 42);
+        columns = PricedAvailabilityColumns.of(list);
+        filter = new PricedAvailabilityColumns.ColumnFilter();
+        selection = new int[columns.size()];
+        // Looked up once: the lookup normalizes the value, which allocates
+        collectionCode = columns.getCollections().codeOf(COLLECTION);
+    }
+
+    @Benchmark
+    public void listScan(Blackhole blackhole) {
+        double stockValue = 0;
+        double minPrice = Double.NaN;
+        double maxPrice = Double.NaN;
+
+        for (PricedSlabAvailabilityDTO row : list) {
+            if (COLLECTION.equalsIgnoreCase(row.getCollection())
+                    && row.getWidth() >= MIN_WIDTH && row.getWidth() <= MAX_WIDTH
+                    && row.getQuantity() > 0 && row.getPrice() != null) {
+                double price = row.getPrice();
+                stockValue += price * row.getQuantity();
+                minPrice = Double.isNaN(minPrice) ? price : Math.min(minPrice, price);
+                maxPrice = Double.isNaN(maxPrice) ? price : Math.max(maxPrice, price);
+            }
+        }
+
+        blackhole.consume(stockValue);
+        blackhole.consume(minPrice);
+        blackhole.consume(maxPrice);
+    }
+
+    @Benchmark
+    public void columnsScan(Blackhole blackhole) {
+        filter.reset()
+                .collection(collectionCode)
+                .width(MIN_WIDTH, MAX_WIDTH)
+                .inStock(true);
+        int count = columns.select(filter, selection);
+
+        blackhole.consume(columns.sumStockValue(selection, count));
+        blackhole.consume(columns.minPrice(selection, count));
+        blackhole.consume(columns.maxPrice(selection, count));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void compareWithListScan() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PricedAvailabilityColumnsBenchmarkTest.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
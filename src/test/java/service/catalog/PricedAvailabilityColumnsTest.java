@@ -0,0 +1,156 @@
+package service.catalog;
+
+import controller.dto.PricedSlabAvailabilityDTO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the scans and aggregates of the columns against a plain scan of the List of PricedSlabAvailabilityDTO, and
+ * that a caller reusing its filter and selection array doesn't allocate
+ */
+class PricedAvailabilityColumnsTest {
+
+    private static final String[] COLLECTIONS = {"Marble", "Granite", "Quartz", "Onyx"};
+    private static final String[] COLORS = {"White", "Black", "Grey", "Beige", "Green"};
+    private static final String[] TONES = {"Light", "Dark"};
+    private static final String[] CURRENCIES = {"EUR", "USD"};
+
+    private static List<PricedSlabAvailabilityDTO> rows;
+    private static PricedAvailabilityColumns columns;
+
+    @BeforeAll
+    static void buildColumns() {
+        rows = rows(5000, 42);
+        columns = PricedAvailabilityColumns.of(rows);
+    }
+
+    @Test
+    void unfilteredScanMatchesList() {
+        assertMatchesList(new PricedAvailabilityColumns.ColumnFilter(), row -> true);
+    }
+
+    @Test
+    void categoricalFiltersMatchList() {
+        assertMatchesList(new PricedAvailabilityColumns.ColumnFilter()
+                        .collection(columns.getCollections().codeOf("marble"))
+                        .currency(columns.getCurrencies().codeOf("EUR")),
+                row -> "Marble".equals(row.getCollection()) && "EUR".equals(row.getCurrency()));
+        assertMatchesList(new PricedAvailabilityColumns.ColumnFilter()
+                        .tone(columns.getTones().codeOf("Dark"))
+                        .inStock(true),
+                row -> "Dark".equals(row.getTone()) && row.getQuantity() > 0);
+        assertMatchesList(new PricedAvailabilityColumns.ColumnFilter()
+                        .color(columns.getColors().codeOf("Red")),
+                row -> false);
+    }
+
+    @Test
+    void rangeFiltersMatchList() {
+        assertMatchesList(new PricedAvailabilityColumns.ColumnFilter()
+                        .width(1000, 2000)
+                        .height(600, 1500),
+                row -> row.getWidth() >= 1000 && row.getWidth() <= 2000 && row.getHeight() >= 600 && row.getHeight() <= 1500);
+        assertMatchesList(new PricedAvailabilityColumns.ColumnFilter()
+                        .price(99.5, 150)
+                        .collection(columns.getCollections().codeOf("Granite")),
+                row -> row.getPrice() != null && row.getPrice() >= 99.5 && row.getPrice() <= 150 && "Granite".equals(row.getCollection()));
+    }
+
+    @Test
+    void emptySelectionHasNoPrice() {
+        int[] selection = new int[columns.size()];
+        int count = columns.select(new PricedAvailabilityColumns.ColumnFilter().price(-2, -1), selection);
+
+        assertEquals(0, count);
+        assertEquals(0, columns.sumStockValue(selection, count));
+        assertTrue(Double.isNaN(columns.minPrice(selection, count)));
+        assertTrue(Double.isNaN(columns.maxPrice(selection, count)));
+    }
+
+    @Test
+    void reusedFilterAndSelectionDontAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        PricedAvailabilityColumns.ColumnFilter filter = new PricedAvailabilityColumns.ColumnFilter();
+        int[] selection = new int[columns.size()];
+        int granite = columns.getCollections().codeOf("Granite");
+
+        // Warms the scan up, so that the class loading and the compilation aren't measured
+        double checksum = scanAndAggregate(filter, selection, granite, 20_000);
+
+        long baseline = threads.getCurrentThreadAllocatedBytes();
+        long measurement = threads.getCurrentThreadAllocatedBytes() - baseline;
+
+        long start = threads.getCurrentThreadAllocatedBytes();
+        checksum += scanAndAggregate(filter, selection, granite, 20_000);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - start - measurement;
+
+        assertTrue(checksum > 0);
+        // A single allocation per scan would add up to hundreds of kilobytes
+        assertTrue(allocated < 1024, allocated + " bytes allocated by 20000 scans");
+    }
+
+    private static double scanAndAggregate(PricedAvailabilityColumns.ColumnFilter filter, int[] selection, int collection, int iterations) {
+        double checksum = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            filter.reset().collection(collection).width(1000 + i % 500, 3000).inStock(true);
+            int count = columns.select(filter, selection);
+            checksum += columns.sumStockValue(selection, count) + columns.minPrice(selection, count) + columns.maxPrice(selection, count);
+        }
+
+        return checksum;
+    }
+
+    private static void assertMatchesList(PricedAvailabilityColumns.ColumnFilter filter, Predicate<PricedSlabAvailabilityDTO> matches) {
+        int[] expected = IntStream.range(0, rows.size()).filter(row -> matches.test(rows.get(row))).toArray();
+
+        int[] selection = new int[columns.size()];
+        int count = columns.select(filter, selection);
+
+        assertArrayEquals(expected, Arrays.copyOf(selection, count));
+
+        List<PricedSlabAvailabilityDTO> selected = IntStream.of(expected).mapToObj(rows::get).toList();
+        assertEquals(selected.stream().filter(row -> row.getPrice() != null).mapToDouble(row -> row.getPrice() * row.getQuantity()).sum(),
+                columns.sumStockValue(selection, count), 1e-6);
+        assertEquals(selected.stream().filter(row -> row.getPrice() != null).mapToDouble(PricedSlabAvailabilityDTO::getPrice).min().orElse(Double.NaN),
+                columns.minPrice(selection, count));
+        assertEquals(selected.stream().filter(row -> row.getPrice() != null).mapToDouble(PricedSlabAvailabilityDTO::getPrice).max().orElse(Double.NaN),
+                columns.maxPrice(selection, count));
+    }
+
+    /**
+     * @return seeded random rows, some of them without tone or price, and out of stock
+     */
+    static List<PricedSlabAvailabilityDTO> rows(int count, long seed) {
+        Random random = new Random(seed);
+        List<PricedSlabAvailabilityDTO> generated = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            PricedSlabAvailabilityDTO row = new PricedSlabAvailabilityDTO();
+            row.setId(String.format("SLAB-%06d", i));
+            row.setCollection(COLLECTIONS[random.nextInt(COLLECTIONS.length)]);
+            row.setColor(COLORS[random.nextInt(COLORS.length)]);
+            row.setTone(random.nextInt(10) == 0 ? null : TONES[random.nextInt(TONES.length)]);
+            row.setWidth(500 + random.nextInt(3000));
+            row.setHeight(500 + random.nextInt(2000));
+            row.setPrice(random.nextInt(8) == 0 ? null : 10 + random.nextInt(300) + random.nextInt(100) / 100.0);
+            row.setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+            row.setQuantity(random.nextInt(4) == 0 ? 0 : random.nextInt(20));
+            generated.add(row);
+        }
+
+        return generated;
+    }
+}
@@ -0,0 +1,132 @@
+package service.catalog;
+
+import controller.dto.PricedSlabAvailabilityDTO;
+import controller.dto.SlabFacetsResponseDTO;
+import controller.dto.SlabSearchResponseDTO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the columnar search index against a plain scan of the List of PricedSlabAvailabilityDTO it replaces
+ */
+class SlabSearchIndexTest {
+
+    private static final String[] COLLECTIONS = {"Marble", "Granite", "Quartz", "Onyx"};
+    private static final String[] COLORS = {"White", "Black", "Grey", "Beige", "Green"};
+    private static final String[] TONES = {"Light", "Dark"};
+    private static final double[] SIZE_BANDS = {1000, 2000, 3000};
+    private static final double[] PRICE_BANDS = {50, 100, 200};
+
+    private static List<PricedSlabAvailabilityDTO> rows;
+    private static SlabSearchIndex index;
+
+    @BeforeAll
+    static void buildIndex() {
+        Random random = new Random(42);
+        List<PricedSlabAvailabilityDTO> generated = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            PricedSlabAvailabilityDTO row = new PricedSlabAvailabilityDTO();
+            row.setId(String.format("SLAB-%05d", random.nextInt(100000)) + "-" + i);
+            row.setCollection(COLLECTIONS[random.nextInt(COLLECTIONS.length)]);
+            row.setColor(COLORS[random.nextInt(COLORS.length)]);
+            row.setTone(random.nextInt(10) == 0 ? null : TONES[random.nextInt(TONES.length)]);
+            row.setWidth(500 + random.nextInt(3000));
+            row.setHeight(500 + random.nextInt(2000));
+            row.setPrice(random.nextInt(8) == 0 ? null : 10 + random.nextInt(300) + random.nextInt(100) / 100.0);
+            row.setCurrency("EUR");
+            row.setQuantity(random.nextInt(4) == 0 ? 0 : random.nextInt(20));
+            generated.add(row);
+        }
+
+        CatalogSnapshot snapshot = new CatalogSnapshot(1, "checksum", new ArrayList<>(), generated, new ArrayList<>());
+        rows = snapshot.getProductsWithAvailability();
+        index = SlabSearchIndex.build(snapshot, SIZE_BANDS, PRICE_BANDS);
+    }
+
+    @Test
+    void unfilteredSearchMatchesScan() {
+        assertMatchesScan(query(null, null, null, null, null, null, null, null, null, false), 50, 0);
+    }
+
+    @Test
+    void categoricalFiltersMatchScan() {
+        assertMatchesScan(query(Set.of("marble", "ONYX"), Set.of("White"), null, null, null, null, null, null, null, false), 20, 10);
+        assertMatchesScan(query(null, null, Set.of("dark"), null, null, null, null, null, null, true), 100, 0);
+        assertMatchesScan(query(Set.of("Basalt"), null, null, null, null, null, null, null, null, false), 10, 0);
+    }
+
+    @Test
+    void rangeFiltersMatchScan() {
+        assertMatchesScan(query(null, null, null, 1000, 2000, null, null, null, null, false), 30, 5);
+        assertMatchesScan(query(null, null, null, null, null, 600, 610, null, null, false), 30, 0);
+        assertMatchesScan(query(null, null, null, null, null, null, null, 99.5, 150.0, true), 30, 0);
+        assertMatchesScan(query(Set.of("Granite"), null, null, 3000, null, null, 800, null, 50.0, false), 30, 0);
+    }
+
+    @Test
+    void facetsMatchScan() {
+        SlabSearchQuery query = query(Set.of("Quartz", "Marble"), null, null, 800, null, null, null, null, 250.0, true);
+        List<PricedSlabAvailabilityDTO> expected = scan(query);
+        SlabFacetsResponseDTO facets = index.facets(query);
+
+        assertEquals(expected.size(), facets.getTotal());
+        assertEquals(countBy(expected, PricedSlabAvailabilityDTO::getCollection), facets.getCollection());
+        assertEquals(countBy(expected, PricedSlabAvailabilityDTO::getColor), facets.getColor());
+        assertEquals(countBy(expected, PricedSlabAvailabilityDTO::getTone), facets.getTone());
+    }
+
+    private static void assertMatchesScan(SlabSearchQuery query, int limit, int offset) {
+        List<PricedSlabAvailabilityDTO> expected = scan(query);
+        SlabSearchResponseDTO response = index.search(query, limit, offset);
+
+        assertEquals(expected.size(), response.getTotal());
+        assertEquals(expected.stream().skip(offset).limit(limit).map(PricedSlabAvailabilityDTO::getId).toList(),
+                response.getItems().stream().map(PricedSlabAvailabilityDTO::getId).toList());
+    }
+
+    private static List<PricedSlabAvailabilityDTO> scan(SlabSearchQuery query) {
+        Predicate<PricedSlabAvailabilityDTO> matches = row ->
+                anyOf(query.collections(), row.getCollection())
+                        && anyOf(query.colors(), row.getColor())
+                        && anyOf(query.tones(), row.getTone())
+                        && (query.minWidth() == null || row.getWidth() >= query.minWidth())
+                        && (query.maxWidth() == null || row.getWidth() <= query.maxWidth())
+                        && (query.minHeight() == null || row.getHeight() >= query.minHeight())
+                        && (query.maxHeight() == null || row.getHeight() <= query.maxHeight())
+                        && ((query.minPrice() == null && query.maxPrice() == null) || (row.getPrice() != null
+                        && (query.minPrice() == null || row.getPrice() >= query.minPrice())
+                        && (query.maxPrice() == null || row.getPrice() <= query.maxPrice())))
+                        && (!query.inStock() || row.getQuantity() > 0);
+
+        return rows.stream().filter(matches).toList();
+    }
+
+    private static boolean anyOf(Set<String> values, String value) {
+        return values == null || values.isEmpty()
+                || (value != null && values.stream().anyMatch(candidate -> candidate.equalsIgnoreCase(value)));
+    }
+
+    private static Map<String, Integer> countBy(List<PricedSlabAvailabilityDTO> rows, Function<PricedSlabAvailabilityDTO, String> attribute) {
+        return rows.stream()
+                .filter(row -> attribute.apply(row) != null)
+                .collect(Collectors.groupingBy(attribute, Collectors.summingInt(row -> 1)));
+    }
+
+    private static SlabSearchQuery query(Set<String> collections, Set<String> colors, Set<String> tones,
+                                         Integer minWidth, Integer maxWidth, Integer minHeight, Integer maxHeight,
+                                         Double minPrice, Double maxPrice, boolean inStock) {
+        return new SlabSearchQuery(collections, colors, tones, minWidth, maxWidth, minHeight, maxHeight, minPrice, maxPrice, inStock);
+    }
+}